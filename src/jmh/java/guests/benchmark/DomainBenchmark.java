@@ -0,0 +1,97 @@
+package guests.benchmark;
+
+import guests.config.HashGenerator;
+import guests.domain.*;
+import guests.scim.ExternalID;
+import guests.scim.GroupURN;
+import guests.validation.EmailFormatValidator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Baseline of the domain operations executed for every invitation, provisioning and SCIM call
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DomainBenchmark {
+
+    private static final String GROUP_URN_PREFIX = "urn:collab:group:test.eduid.nl";
+
+    private Role role;
+    private String urnRole;
+    private final EmailFormatValidator emailFormatValidator = new EmailFormatValidator();
+
+    @Setup
+    public void setup() {
+        Institution institution = Fixtures.institution(1L);
+        role = Fixtures.roles(Fixtures.applications(institution, 1), 1).get(0);
+        urnRole = GroupURN.urnFromRole(GROUP_URN_PREFIX, role);
+    }
+
+    @State(Scope.Benchmark)
+    public static class Emails {
+
+        @Param({"1000", "10000"})
+        private int emailCount;
+
+        private List<String> emails;
+
+        @Setup
+        public void setup() {
+            emails = Fixtures.emails(emailCount);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class UserWithRoles {
+
+        @Param({"10", "1000"})
+        private int roleCount;
+
+        private User user;
+
+        @Setup
+        public void setup() {
+            Institution institution = Fixtures.institution(1L);
+            user = Fixtures.user(1L, Authority.GUEST, institution, Fixtures.applications(institution, 20), roleCount);
+        }
+    }
+
+    @Benchmark
+    public String generateHash() {
+        return HashGenerator.generateHash();
+    }
+
+    @Benchmark
+    public String compatibleUrnName() {
+        return role.compatibleUrnName(" Récéption Désk: Güest Âccess (2022) ");
+    }
+
+    @Benchmark
+    public String urnFromRole() {
+        return GroupURN.urnFromRole(GROUP_URN_PREFIX, role);
+    }
+
+    @Benchmark
+    public ExternalID parseUrnRole() {
+        return GroupURN.parseUrnRole(urnRole);
+    }
+
+    @Benchmark
+    public Set<String> validateEmails(Emails emails) {
+        return emailFormatValidator.validateEmails(emails.emails);
+    }
+
+    @Benchmark
+    public Map<Application, List<UserRole>> userRolesPerApplicationProvisioningEnabled(UserWithRoles userWithRoles) {
+        return userWithRoles.user.userRolesPerApplicationProvisioningEnabled();
+    }
+}
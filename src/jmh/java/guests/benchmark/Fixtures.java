@@ -0,0 +1,77 @@
+package guests.benchmark;
+
+import guests.domain.*;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/*
+ * Detached domain objects with identifiers, as they are loaded by Hibernate, to feed the benchmarks
+ */
+class Fixtures {
+
+    private Fixtures() {
+    }
+
+    static Institution institution(long id) {
+        Institution institution = new Institution("University " + id, "https://university/" + id, "university" + id + ".nl",
+                "https://university/aup", 1);
+        institution.setId(id);
+        return institution;
+    }
+
+    /*
+     * Every other application has provisioning enabled
+     */
+    static List<Application> applications(Institution institution, int count) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> {
+                    Application application = new Application(institution,
+                            "https://application/" + i,
+                            "https://landing.nl",
+                            i % 2 == 0 ? "https://scim/" + i : null,
+                            "inviter",
+                            "secret");
+                    application.setId((long) i + 1);
+                    application.setName("application_" + i);
+                    return application;
+                })
+                .collect(Collectors.toList());
+    }
+
+    static User user(long id, Authority authority, Institution institution, List<Application> applications, int roleCount) {
+        User user = new User(authority, "eppn" + id + "@example.com", "urn:collab:person:" + id, "John", "Doe",
+                "jdoe" + id + "@example.com", institution);
+        user.setId(id);
+        user.getInstitutionMemberships().forEach(membership -> membership.setId(id));
+        List<Role> roles = roles(applications, roleCount);
+        for (int i = 0; i < roles.size(); i++) {
+            UserRole userRole = new UserRole(roles.get(i), Instant.now());
+            userRole.setId((long) i + 1);
+            user.addUserRole(userRole);
+        }
+        return user;
+    }
+
+    static List<Role> roles(List<Application> applications, int count) {
+        List<Role> roles = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Role role = new Role("role_" + i, applications.get(i % applications.size()));
+            role.setId((long) i + 1);
+            roles.add(role);
+        }
+        return roles;
+    }
+
+    /*
+     * Nine out of ten addresses are valid
+     */
+    static List<String> emails(int count) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> i % 10 == 0 ? "invalid-" + i + "@example" : "guest." + i + "@university.example.com")
+                .collect(Collectors.toList());
+    }
+}
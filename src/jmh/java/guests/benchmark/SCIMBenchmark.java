@@ -0,0 +1,46 @@
+package guests.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import guests.scim.GroupRequest;
+import guests.scim.Member;
+import guests.scim.SCIMJson;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/*
+ * Baseline of the serialization of the SCIM group payload, which contains all members of the role
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SCIMBenchmark {
+
+    @Param({"100", "10000"})
+    private int memberCount;
+
+    private SCIMJson scimJson;
+    private GroupRequest groupRequest;
+
+    @Setup
+    public void setup() {
+        scimJson = new SCIMJson(new ObjectMapper());
+        List<Member> members = IntStream.range(0, memberCount)
+                .mapToObj(i -> new Member(UUID.randomUUID().toString()))
+                .collect(Collectors.toList());
+        groupRequest = new GroupRequest("urn:collab:group:test.eduid.nl:university.nl:application:guests",
+                "Guests", members);
+    }
+
+    @Benchmark
+    public String groupRequest() {
+        return scimJson.compact(groupRequest);
+    }
+}
@@ -0,0 +1,70 @@
+package guests.benchmark;
+
+import guests.api.UserPermissions;
+import guests.domain.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+/*
+ * Baseline of the authorization checks executed for every API request. The principal is an institution admin with
+ * memberships of several institutions, the subject is a guest of the last one.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UserPermissionsBenchmark {
+
+    @Param({"1", "25"})
+    private int institutionCount;
+
+    private UserPrincipal institutionAdmin;
+    private UserPrincipal superAdmin;
+    private User subject;
+    private Long institutionId;
+
+    @Setup
+    public void setup() {
+        Map<Long, Authority> authorities = LongStream.rangeClosed(1, institutionCount).boxed()
+                .collect(Collectors.toMap(Function.identity(), id -> Authority.INSTITUTION_ADMINISTRATOR));
+        institutionAdmin = new UserPrincipal(1L, "admin@example.com", "Mary", "Doe", "mdoe@example.com",
+                AuthorityIndex.of(authorities));
+        superAdmin = new UserPrincipal(2L, "super@example.com", "Super", "User", "super@example.com",
+                AuthorityIndex.of(Map.of(1L, Authority.SUPER_ADMIN)));
+        institutionId = (long) institutionCount;
+        Institution institution = Fixtures.institution(institutionId);
+        subject = Fixtures.user(3L, Authority.GUEST, institution, Fixtures.applications(institution, 1), 1);
+    }
+
+    @Benchmark
+    public void verifyUser() {
+        UserPermissions.verifyUser(institutionAdmin, institutionId);
+    }
+
+    @Benchmark
+    public void verifySuperUser() {
+        UserPermissions.verifySuperUser(superAdmin);
+    }
+
+    @Benchmark
+    public void verifyAuthority() {
+        UserPermissions.verifyAuthority(institutionAdmin, institutionId, Authority.INVITER);
+    }
+
+    @Benchmark
+    public void viewOtherUserAllowed() {
+        UserPermissions.viewOtherUserAllowed(institutionAdmin, subject);
+    }
+
+    @Benchmark
+    public void deleteOtherUserAllowed() {
+        UserPermissions.deleteOtherUserAllowed(institutionAdmin, subject);
+    }
+}
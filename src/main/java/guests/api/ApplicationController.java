@@ -2,12 +2,16 @@ package guests.api;
 
 import guests.domain.Application;
 import guests.domain.ApplicationExists;
+import guests.domain.ApplicationListing;
 import guests.domain.Authority;
+import guests.domain.RoleListing;
 import guests.domain.User;
+import guests.domain.UserPrincipal;
 import guests.exception.NotAllowedException;
 import guests.exception.NotFoundException;
 import guests.repository.ApplicationRepository;
-import guests.repository.UserRepository;
+import guests.repository.RoleRepository;
+import guests.usercount.UserCounts;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -18,6 +22,7 @@ import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
 
 import javax.servlet.http.HttpServletRequest;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -34,41 +39,48 @@ public class ApplicationController {
     private static final Log LOG = LogFactory.getLog(ApplicationController.class);
 
     private final ApplicationRepository applicationRepository;
-    private final UserRepository userRepository;
+    private final RoleRepository roleRepository;
+    private final UserCounts userCounts;
 
     @Autowired
-    public ApplicationController(ApplicationRepository applicationRepository, UserRepository userRepository) {
+    public ApplicationController(ApplicationRepository applicationRepository, RoleRepository roleRepository, UserCounts userCounts) {
         this.applicationRepository = applicationRepository;
-        this.userRepository = userRepository;
+        this.roleRepository = roleRepository;
+        this.userCounts = userCounts;
     }
 
     @GetMapping("/user-count/{applicationId}")
     public ResponseEntity<Long> userCount(@PathVariable("applicationId") Long applicationId) {
-        return ResponseEntity.ok(applicationRepository.countUsers(applicationId));
+        return ResponseEntity.ok(userCounts.applicationUserCount(applicationId));
     }
 
     @GetMapping("/user")
     public ResponseEntity<List<Application>> getForUser(User authenticatedUser) {
-        User user = userRepository.findById(authenticatedUser.getId()).orElseThrow(NotFoundException::new);
-        List<Long> roleIdentifiers = user.getUserRoles().stream().map(role -> role.getRole().getId()).collect(Collectors.toList());
+        List<Long> roleIdentifiers = authenticatedUser.getUserRoles().stream().map(role -> role.getRole().getId()).collect(Collectors.toList());
         return ResponseEntity.ok(unProxy(applicationRepository.findByRoles_IdIn(roleIdentifiers), Application.class));
     }
 
     @GetMapping("/institution/{institutionId}")
-    public ResponseEntity<List<Application>> getForInstitution(User authenticatedUser, @PathVariable("institutionId") Long institutionId) {
+    public ResponseEntity<List<ApplicationListing>> getForInstitution(UserPrincipal authenticatedUser, @PathVariable("institutionId") Long institutionId) {
         verifyAuthority(authenticatedUser, institutionId, Authority.INVITER);
-        return ResponseEntity.ok(applicationRepository.findByInstitution_id(institutionId));
+        List<ApplicationListing> applications = applicationRepository.findListingsByInstitution(institutionId);
+        //The roles of all applications with one query
+        Map<Long, List<RoleListing>> rolesPerApplication = roleRepository.findListingsByInstitution(institutionId).stream()
+                .collect(Collectors.groupingBy(role -> role.getApplication().id()));
+        applications.forEach(application ->
+                application.getRoles().addAll(rolesPerApplication.getOrDefault(application.getId(), Collections.emptyList())));
+        return ResponseEntity.ok(applications);
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<Application> getById(User authenticatedUser, @PathVariable("id") Long id) {
+    public ResponseEntity<Application> getById(UserPrincipal authenticatedUser, @PathVariable("id") Long id) {
         Application application = applicationRepository.findById(id).orElseThrow(NotFoundException::new);
         verifyAuthority(authenticatedUser, application.getInstitution().getId(), Authority.INSTITUTION_ADMINISTRATOR);
         return ResponseEntity.ok(application);
     }
 
     @RequestMapping(method = {RequestMethod.POST, RequestMethod.PUT})
-    public ResponseEntity<Application> save(HttpServletRequest request, User authenticatedUser, @RequestBody Application application) {
+    public ResponseEntity<Application> save(HttpServletRequest request, UserPrincipal authenticatedUser, @RequestBody Application application) {
         verifyAuthority(authenticatedUser, application.getInstitution().getId(), Authority.INSTITUTION_ADMINISTRATOR);
         application.validateProvisioning();
 
@@ -81,12 +93,12 @@ public class ApplicationController {
     }
 
     @DeleteMapping("/{id}")
-    public ResponseEntity<Map<String, Integer>> delete(User authenticatedUser, @PathVariable("id") Long id) {
+    public ResponseEntity<Map<String, Integer>> delete(UserPrincipal authenticatedUser, @PathVariable("id") Long id) {
         Application application = applicationRepository.findById(id).orElseThrow(NotFoundException::new);
 
         verifyAuthority(authenticatedUser, application.getInstitution().getId(), Authority.INSTITUTION_ADMINISTRATOR);
 
-        Long countUsers = applicationRepository.countUsers(application.getId());
+        long countUsers = userCounts.applicationUserCount(application.getId());
         if (countUsers > 0) {
             throw new NotAllowedException(String.format("Application %s can not be deleted as there are %s active users",
                     application.getName(),
@@ -103,7 +115,7 @@ public class ApplicationController {
     }
 
     @PostMapping("entity-id-exists")
-    public ResponseEntity<Map<String, Boolean>> entityIdExists(User authenticatedUser, @RequestBody ApplicationExists applicationExists) {
+    public ResponseEntity<Map<String, Boolean>> entityIdExists(UserPrincipal authenticatedUser, @RequestBody ApplicationExists applicationExists) {
         verifyAuthority(authenticatedUser, applicationExists.getInstitutionId(), Authority.INSTITUTION_ADMINISTRATOR);
         Optional<Application> optionalApplication = applicationRepository.findByInstitution_idAndEntityIdIgnoreCase(
                 applicationExists.getInstitutionId(), applicationExists.getUniqueAttribute());
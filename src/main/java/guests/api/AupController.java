@@ -40,15 +40,14 @@ public class AupController {
     }
 
     @PutMapping
-    public ResponseEntity<Map<String, Integer>> aups(User authenticatedUser, @RequestBody List<Long> institutionIdentifiers) {
-        User user = userRepository.findById(authenticatedUser.getId()).orElseThrow(NotFoundException::new);
+    public ResponseEntity<Map<String, Integer>> aups(User user, @RequestBody List<Long> institutionIdentifiers) {
         institutionIdentifiers.forEach(institutionIdentifier -> {
             verifyUser(user, institutionIdentifier);
             Institution institution = institutionRepository.findById(institutionIdentifier).orElseThrow(NotFoundException::new);
             if (!user.hasAgreedWithAup(institution)) {
                 LOG.info(String.format("Adding AUP for institution %s by user %s",
                         institution.getHomeInstitution(),
-                        authenticatedUser.getName()));
+                        user.getName()));
 
                 user.addAup(new Aup(institution));
             }
@@ -3,10 +3,11 @@ package guests.api;
 import guests.domain.Authority;
 import guests.domain.Institution;
 import guests.domain.ObjectExists;
-import guests.domain.User;
+import guests.domain.UserPrincipal;
 import guests.exception.NotAllowedException;
 import guests.exception.NotFoundException;
 import guests.repository.InstitutionRepository;
+import guests.usercount.UserCounts;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -32,51 +33,53 @@ public class InstitutionController {
     private static final Log LOG = LogFactory.getLog(InstitutionController.class);
 
     private final InstitutionRepository institutionRepository;
+    private final UserCounts userCounts;
 
     @Autowired
-    public InstitutionController(InstitutionRepository institutionRepository) {
+    public InstitutionController(InstitutionRepository institutionRepository, UserCounts userCounts) {
         this.institutionRepository = institutionRepository;
+        this.userCounts = userCounts;
     }
 
     @GetMapping
-    public ResponseEntity<List<Institution>> get(User user) {
+    public ResponseEntity<List<Institution>> get(UserPrincipal user) {
         verifySuperUser(user);
         return ResponseEntity.ok(institutionRepository.findAll());
     }
 
     @GetMapping("/mine")
-    public ResponseEntity<List<Institution>> mine(User user) {
+    public ResponseEntity<List<Institution>> mine(UserPrincipal user) {
         return ResponseEntity.ok(institutionRepository.findByInstitutionMemberships_user_id(user.getId()));
     }
 
     @GetMapping("/user-count/{institutionId}")
     public ResponseEntity<Long> userCount(@PathVariable("institutionId") Long institutionId) {
-        return ResponseEntity.ok(institutionRepository.countUsers(institutionId));
+        return ResponseEntity.ok(userCounts.institutionUserCount(institutionId));
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<Institution> getById(User user, @PathVariable("id") Long id) {
+    public ResponseEntity<Institution> getById(UserPrincipal user, @PathVariable("id") Long id) {
         verifyUser(user, id);
         Institution institution = institutionRepository.findById(id).orElseThrow(NotFoundException::new);
         return ResponseEntity.ok(institution);
     }
 
     @PostMapping("entity-id-exists")
-    public ResponseEntity<Map<String, Boolean>> entityIdExists(User user, @RequestBody ObjectExists objectExists) {
+    public ResponseEntity<Map<String, Boolean>> entityIdExists(UserPrincipal user, @RequestBody ObjectExists objectExists) {
         verifySuperUser(user);
         Optional<Institution> optionalInstitution = institutionRepository.findByEntityIdIgnoreCase(objectExists.getUniqueAttribute());
         return doesExists(objectExists, optionalInstitution);
     }
 
     @PostMapping("schac-home-exists")
-    public ResponseEntity<Map<String, Boolean>> schacHomeExists(User user, @RequestBody ObjectExists objectExists) {
+    public ResponseEntity<Map<String, Boolean>> schacHomeExists(UserPrincipal user, @RequestBody ObjectExists objectExists) {
         verifySuperUser(user);
         Optional<Institution> optionalInstitution = institutionRepository.findByHomeInstitutionIgnoreCase(objectExists.getUniqueAttribute());
         return doesExists(objectExists, optionalInstitution);
     }
 
     @PostMapping
-    public ResponseEntity<Institution> save(User user, @RequestBody Institution institution) {
+    public ResponseEntity<Institution> save(UserPrincipal user, @RequestBody Institution institution) {
         verifySuperUser(user);
         institution.invariantAupVersion();
 
@@ -88,7 +91,7 @@ public class InstitutionController {
     }
 
     @PutMapping
-    public ResponseEntity<Institution> update(User user, @RequestBody Institution institution) {
+    public ResponseEntity<Institution> update(UserPrincipal user, @RequestBody Institution institution) {
         verifyAuthority(user, institution.getId(), Authority.INSTITUTION_ADMINISTRATOR);
         Institution institutionFromDb = institutionRepository.findById(institution.getId()).orElseThrow(NotFoundException::new);
         if (!user.isSuperAdmin()) {
@@ -105,7 +108,7 @@ public class InstitutionController {
     }
 
     @PutMapping("increment-aup/{id}")
-    public ResponseEntity<Map<String, Integer>> incrementAup(User authenticatedUser, @PathVariable("id") Long id) {
+    public ResponseEntity<Map<String, Integer>> incrementAup(UserPrincipal authenticatedUser, @PathVariable("id") Long id) {
         Institution institution = institutionRepository.findById(id).orElseThrow(NotFoundException::new);
         verifyAuthority(authenticatedUser, id, Authority.INSTITUTION_ADMINISTRATOR);
         institution.incrementAup();
@@ -119,11 +122,12 @@ public class InstitutionController {
     }
 
     @DeleteMapping("/{id}")
-    public ResponseEntity<Map<String, Integer>> delete(User user, @PathVariable("id") Long id) {
+    public ResponseEntity<Map<String, Integer>> delete(UserPrincipal user, @PathVariable("id") Long id) {
         verifySuperUser(user);
         Institution institution = institutionRepository.findById(id).orElseThrow(NotFoundException::new);
 
-        Long countUsers = institutionRepository.countUsers(institution.getId());
+        //Members without a role - e.g. the administrators and inviters - do not block the deletion
+        long countUsers = userCounts.institutionRoleHolderCount(institution.getId());
         if (countUsers > 0) {
             throw new NotAllowedException(String.format("Institution %s can not be deleted as there are %s active users",
                     institution.getHomeInstitution(),
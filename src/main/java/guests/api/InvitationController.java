@@ -5,9 +5,10 @@ import guests.config.HashGenerator;
 import guests.domain.*;
 import guests.exception.InvitationEmailMatchingException;
 import guests.exception.NotFoundException;
+import guests.invitation.BulkInvitationService;
+import guests.invitation.InvitationJob;
 import guests.mail.MailBox;
 import guests.repository.*;
-import guests.scim.OperationType;
 import guests.scim.SCIMService;
 import guests.validation.EmailFormatValidator;
 import org.apache.commons.logging.Log;
@@ -18,10 +19,14 @@ import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.oauth2.server.resource.authentication.BearerTokenAuthentication;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import static guests.api.Shared.createdResponse;
@@ -44,6 +49,7 @@ public class InvitationController {
 
     private final MailBox mailBox;
     private final SCIMService scimService;
+    private final BulkInvitationService bulkInvitationService;
 
     private final EmailFormatValidator emailFormatValidator = new EmailFormatValidator();
 
@@ -54,7 +60,8 @@ public class InvitationController {
                                 RoleRepository roleRepository,
                                 InstitutionRepository institutionRepository,
                                 MailBox mailBox,
-                                SCIMService scimService) {
+                                SCIMService scimService,
+                                BulkInvitationService bulkInvitationService) {
         this.invitationRepository = invitationRepository;
         this.userRepository = userRepository;
         this.applicationRepository = applicationRepository;
@@ -62,46 +69,69 @@ public class InvitationController {
         this.roleRepository = roleRepository;
         this.mailBox = mailBox;
         this.scimService = scimService;
+        this.bulkInvitationService = bulkInvitationService;
     }
 
     @GetMapping("/{hash}")
     public ResponseEntity<Invitation> invitationByHash(BearerTokenAuthentication authentication, @PathVariable("hash") String hash) {
-        Invitation invitation = invitationRepository.findByHashAndStatus(hash, Status.OPEN).orElseThrow(NotFoundException::new);
+        Invitation invitation = invitationRepository.findByHashAndStatusAndExpiryDateAfter(hash, Status.OPEN, Instant.now()).orElseThrow(NotFoundException::new);
         Object details = authentication.getDetails();
-        String email = details instanceof User ? ((User) details).getEmail() : (String) authentication.getTokenAttributes().get("email");
+        String email = details instanceof UserPrincipal ? ((UserPrincipal) details).getEmail() : (String) authentication.getTokenAttributes().get("email");
         invitation.setEmailEqualityConflict(invitation.isEnforceEmailEquality() && !invitation.getEmail().equalsIgnoreCase(email));
         return ResponseEntity.ok(invitation);
     }
 
     @GetMapping("/id/{id}")
-    public ResponseEntity<Invitation> invitationById(User authenticatedUser, @PathVariable("id") Long id) {
+    public ResponseEntity<Invitation> invitationById(UserPrincipal authenticatedUser, @PathVariable("id") Long id) {
         Invitation invitation = invitationRepository.findById(id).orElseThrow(NotFoundException::new);
         verifyAuthority(authenticatedUser, invitation.getInstitution().getId(), Authority.INVITER);
         return ResponseEntity.ok(invitation);
     }
 
     @GetMapping("/institution/{institutionId}")
-    public ResponseEntity<List<Invitation>> getByInstitution(@PathVariable("institutionId") Long institutionId, User authenticatedUser) {
+    public ResponseEntity<List<Invitation>> getByInstitution(@PathVariable("institutionId") Long institutionId, UserPrincipal authenticatedUser) {
         verifyAuthority(authenticatedUser, institutionId, Authority.INVITER);
         return ResponseEntity.ok(invitationRepository.findByInstitution_id(institutionId));
     }
 
     @GetMapping("/application/{applicationId}")
-    public ResponseEntity<List<Invitation>> getByApplication(@PathVariable("applicationId") Long applicationId, User authenticatedUser) {
+    public ResponseEntity<List<Invitation>> getByApplication(@PathVariable("applicationId") Long applicationId, UserPrincipal authenticatedUser) {
         Application application = applicationRepository.findById(applicationId).orElseThrow(NotFoundException::new);
         verifyAuthority(authenticatedUser, application.getInstitution().getId(), Authority.INVITER);
         return ResponseEntity.ok(invitationRepository.findByRoles_role_application_id(applicationId));
     }
 
+    /*
+     * Keyset paginated variants of getByInstitution and getByApplication with flat invitations
+     */
+    @GetMapping("/institution/{institutionId}/page")
+    @Transactional(readOnly = true)
+    public ResponseEntity<KeysetPage<InvitationSummary>> pageByInstitution(@PathVariable("institutionId") Long institutionId,
+                                                                           UserPrincipal authenticatedUser,
+                                                                           InvitationFilter invitationFilter) {
+        verifyAuthority(authenticatedUser, institutionId, Authority.INVITER);
+        return ResponseEntity.ok(invitationRepository.findInvitationSummariesByInstitution(institutionId, invitationFilter));
+    }
+
+    @GetMapping("/application/{applicationId}/page")
+    @Transactional(readOnly = true)
+    public ResponseEntity<KeysetPage<InvitationSummary>> pageByApplication(@PathVariable("applicationId") Long applicationId,
+                                                                           UserPrincipal authenticatedUser,
+                                                                           InvitationFilter invitationFilter) {
+        Application application = applicationRepository.findById(applicationId).orElseThrow(NotFoundException::new);
+        verifyAuthority(authenticatedUser, application.getInstitution().getId(), Authority.INVITER);
+        return ResponseEntity.ok(invitationRepository.findInvitationSummariesByApplication(applicationId, invitationFilter));
+    }
+
     @PostMapping
     public ResponseEntity<User> accept(BearerTokenAuthentication authentication,
                                        @RequestBody Invitation invitation) throws JsonProcessingException {
-        Invitation invitationFromDB = invitationRepository.findByHashAndStatus(invitation.getHash(), Status.OPEN).orElseThrow(NotFoundException::new);
+        Invitation invitationFromDB = invitationRepository.findByHashAndStatusAndExpiryDateAfter(invitation.getHash(), Status.OPEN, Instant.now()).orElseThrow(NotFoundException::new);
         Object details = authentication.getDetails();
         User newUser;
         User user;
         Institution institution = invitationFromDB.getInstitution();
-        if (details instanceof User detailsFromUser) {
+        if (details instanceof UserPrincipal detailsFromUser) {
             user = userRepository.findById(detailsFromUser.getId()).orElseThrow(NotFoundException::new);
             Optional<InstitutionMembership> membershipOptional = user.getInstitutionMemberships().stream()
                     .filter(ms -> ms.getInstitution().getId().equals(institution.getId()))
@@ -127,7 +157,7 @@ public class InvitationController {
         }
         /*
          * Chicken & egg problem. The user including his / hers roles must be first known in Scim, and then we
-         * need to send the updateRoleRequests for each new Role of this user.
+         * need to send the updateRoleRequests for each new Role of this user. The SCIMService takes care of the order.
          */
         List<UserRole> newUserRoles = new ArrayList<>();
         invitationFromDB.getRoles()
@@ -139,13 +169,10 @@ public class InvitationController {
                         newUserRoles.add(userRole);
                     }
                 });
-        // This will assign the external ID to the userRoles
-        if (user.getId() == null || user.getUserRoles().stream().anyMatch(userRole -> !StringUtils.hasText(userRole.getServiceProviderId()))) {
-            scimService.newUserRequest(user);
-        }
+        // The user and userRoles must be persisted before they can be referenced by the SCIM outbox events
         newUser = userRepository.save(user);
-
-        newUserRoles.forEach(userRole -> scimService.updateRoleRequest(userRole, OperationType.Add));
+        // This will assign the external ID to the userRoles
+        scimService.newUserRolesRequest(newUser, newUserRoles);
 
         invitationRepository.delete(invitationFromDB);
 
@@ -161,17 +188,7 @@ public class InvitationController {
     public ResponseEntity<Map<String, Integer>> invite(User authenticatedUser, @RequestBody InvitationRequest invitationRequest) {
         Invitation invitationData = invitationRequest.getInvitation();
         Institution institution = institutionRepository.findById(invitationRequest.getInstitutionId()).orElseThrow(NotFoundException::new);
-        // authenticatedUser must be at least Inviter
-        verifyAuthority(authenticatedUser, institution.getId(), Authority.INVITER);
-        // can not invite user for a higher role
-        verifyAuthority(authenticatedUser, institution.getId(), invitationData.getIntendedAuthority());
-        if (!authenticatedUser.isSuperAdmin()) {
-            Authority authority = authenticatedUser.authorityByInstitution(institution.getId()).orElseThrow(() -> userRestrictedException(authenticatedUser, institution.getId()));
-            // Inviter can only invite GUESTS
-            if (authority.equals(Authority.INVITER) && !invitationData.getIntendedAuthority().equals(Authority.GUEST)) {
-                throw userRestrictedException(authenticatedUser, institution.getId());
-            }
-        }
+        verifyInvitationAuthority(authenticatedUser, institution, invitationData);
 
         List<String> invites = invitationRequest.getInvites();
         Set<String> emails = emailFormatValidator.validateEmails(invites);
@@ -211,6 +228,57 @@ public class InvitationController {
         return ResponseEntity.status(HttpStatus.CREATED).body(Collections.singletonMap("status", 201));
     }
 
+    /*
+     * For large numbers of invites. The invitations are created in the background, the progress of the returned job
+     * can be polled or streamed.
+     */
+    @PutMapping("/bulk")
+    public ResponseEntity<InvitationJob> bulkInvite(User authenticatedUser, @RequestBody InvitationRequest invitationRequest) {
+        Invitation invitationData = invitationRequest.getInvitation();
+        Institution institution = institutionRepository.findById(invitationRequest.getInstitutionId()).orElseThrow(NotFoundException::new);
+        verifyInvitationAuthority(authenticatedUser, institution, invitationData);
+
+        Set<String> emails = emailFormatValidator.validateEmails(invitationRequest.getInvites());
+        InvitationJob job = bulkInvitationService.submit(authenticatedUser, institution, invitationData, emails);
+
+        LOG.info(String.format("Started bulk invitation job %s for %s invites in institution %s by %s",
+                job.getId(),
+                emails.size(),
+                institution.getHomeInstitution(),
+                authenticatedUser.getName()));
+
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(job);
+    }
+
+    @GetMapping("/bulk/{jobId}")
+    public ResponseEntity<InvitationJob> bulkInviteProgress(UserPrincipal authenticatedUser, @PathVariable("jobId") String jobId) {
+        return ResponseEntity.ok(getInvitationJob(authenticatedUser, jobId));
+    }
+
+    @GetMapping(value = "/bulk/{jobId}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter bulkInviteProgressStream(UserPrincipal authenticatedUser, @PathVariable("jobId") String jobId) {
+        InvitationJob invitationJob = getInvitationJob(authenticatedUser, jobId);
+        SseEmitter emitter = new SseEmitter(Duration.ofMinutes(30).toMillis());
+        Consumer<InvitationJob> listener = new Consumer<>() {
+            @Override
+            public void accept(InvitationJob job) {
+                try {
+                    emitter.send(SseEmitter.event().name("progress").data(job, MediaType.APPLICATION_JSON));
+                    if (job.isDone()) {
+                        emitter.complete();
+                    }
+                } catch (IOException | IllegalStateException e) {
+                    //The client has gone
+                    job.unsubscribe(this);
+                }
+            }
+        };
+        emitter.onCompletion(() -> invitationJob.unsubscribe(listener));
+        emitter.onTimeout(() -> invitationJob.unsubscribe(listener));
+        invitationJob.subscribe(listener);
+        return emitter;
+    }
+
     @PutMapping("/resend")
     public ResponseEntity<Map<String, Integer>> resend(User authenticatedUser, @RequestBody InvitationUpdate invitation) {
         Invitation invitationFromDB = getInvitationFromDB(authenticatedUser, invitation.getId());
@@ -230,7 +298,7 @@ public class InvitationController {
     }
 
     @PutMapping("/update-expiry-date")
-    public ResponseEntity<Map<String, Integer>> update(User authenticatedUser, @RequestBody InvitationUpdate invitation) {
+    public ResponseEntity<Map<String, Integer>> update(UserPrincipal authenticatedUser, @RequestBody InvitationUpdate invitation) {
         Invitation invitationFromDB = getInvitationFromDB(authenticatedUser, invitation.getId());
 
         invitationFromDB.setExpiryDate(invitation.getExpiryDate());
@@ -239,7 +307,7 @@ public class InvitationController {
     }
 
     @DeleteMapping("{id}")
-    public ResponseEntity<Map<String, Integer>> deleteInvitation(User authenticatedUser, @PathVariable("id") Long id) {
+    public ResponseEntity<Map<String, Integer>> deleteInvitation(UserPrincipal authenticatedUser, @PathVariable("id") Long id) {
         Invitation invitation = getInvitationFromDB(authenticatedUser, id);
 
         invitationRepository.delete(invitation);
@@ -252,7 +320,27 @@ public class InvitationController {
         return createdResponse();
     }
 
-    private Invitation getInvitationFromDB(User authenticatedUser, Long id) {
+    private void verifyInvitationAuthority(AuthorizedUser authenticatedUser, Institution institution, Invitation invitationData) {
+        // authenticatedUser must be at least Inviter
+        verifyAuthority(authenticatedUser, institution.getId(), Authority.INVITER);
+        // can not invite user for a higher role
+        verifyAuthority(authenticatedUser, institution.getId(), invitationData.getIntendedAuthority());
+        if (!authenticatedUser.isSuperAdmin()) {
+            Authority authority = authenticatedUser.authorityByInstitution(institution.getId()).orElseThrow(() -> userRestrictedException(authenticatedUser, institution.getId()));
+            // Inviter can only invite GUESTS
+            if (authority.equals(Authority.INVITER) && !invitationData.getIntendedAuthority().equals(Authority.GUEST)) {
+                throw userRestrictedException(authenticatedUser, institution.getId());
+            }
+        }
+    }
+
+    private InvitationJob getInvitationJob(UserPrincipal authenticatedUser, String jobId) {
+        InvitationJob invitationJob = bulkInvitationService.job(jobId).orElseThrow(NotFoundException::new);
+        verifyAuthority(authenticatedUser, invitationJob.getInstitutionId(), Authority.INVITER);
+        return invitationJob;
+    }
+
+    private Invitation getInvitationFromDB(AuthorizedUser authenticatedUser, Long id) {
         Invitation invitationFromDB = invitationRepository.findById(id).orElseThrow(NotFoundException::new);
         Long institutionId = invitationFromDB.getInstitution().getId();
 
@@ -261,7 +349,7 @@ public class InvitationController {
         return invitationFromDB;
     }
 
-    private void verifyInviterAuthority(User authenticatedUser, Invitation invitation, Long institutionId) {
+    private void verifyInviterAuthority(AuthorizedUser authenticatedUser, Invitation invitation, Long institutionId) {
         if (!authenticatedUser.isSuperAdmin()) {
             Authority authority = authenticatedUser.authorityByInstitution(institutionId).orElseThrow(NotFoundException::new);
             if (authority.equals(Authority.INVITER) && !invitation.getIntendedAuthority().equals(Authority.GUEST)) {
@@ -43,30 +43,28 @@ public class RoleController {
     }
 
     @GetMapping("/institution/{institutionId}")
-    public ResponseEntity<List<Role>> rolesByInstitution(@PathVariable("institutionId") Long institutionId, User user) {
+    public ResponseEntity<List<RoleListing>> rolesByInstitution(@PathVariable("institutionId") Long institutionId, UserPrincipal user) {
         verifyUser(user, institutionId);
-        List<Role> roles = roleRepository.findByApplication_institution_id(institutionId);
-        return ResponseEntity.ok(roles);
+        return ResponseEntity.ok(roleRepository.findListingsByInstitution(institutionId));
     }
 
     @GetMapping("/application/{applicationId}")
-    public ResponseEntity<List<Role>> rolesByApplication(@PathVariable("applicationId") Long applicationId, User user) {
+    public ResponseEntity<List<RoleListing>> rolesByApplication(@PathVariable("applicationId") Long applicationId, UserPrincipal user) {
         Application application = applicationRepository.findById(applicationId).orElseThrow(NotFoundException::new);
         verifyUser(user, application.getInstitution().getId());
 
-        List<Role> roles = roleRepository.findByApplication_id(applicationId);
-        return ResponseEntity.ok(roles);
+        return ResponseEntity.ok(roleRepository.findListingsByApplication(applicationId));
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<Role> getById(User user, @PathVariable("id") Long id) {
+    public ResponseEntity<Role> getById(UserPrincipal user, @PathVariable("id") Long id) {
         Role role = roleRepository.findById(id).orElseThrow(NotFoundException::new);
         verifyAuthority(user, role.getApplication().getInstitution().getId(), Authority.INSTITUTION_ADMINISTRATOR);
         return ResponseEntity.ok(role);
     }
 
     @RequestMapping(method = {RequestMethod.POST, RequestMethod.PUT})
-    public ResponseEntity<Role> save(User user, @RequestBody Role role) {
+    public ResponseEntity<Role> save(UserPrincipal user, @RequestBody Role role) {
         this.restrictUser(user, role);
         boolean isTransientRole = role.getId() == null;
         role = roleRepository.save(role);
@@ -84,7 +82,7 @@ public class RoleController {
     }
 
     @PostMapping("name-exists")
-    public ResponseEntity<Map<String, Boolean>> namExists(User authenticatedUser, @RequestBody RoleExists roleExists) {
+    public ResponseEntity<Map<String, Boolean>> namExists(UserPrincipal authenticatedUser, @RequestBody RoleExists roleExists) {
         Application application = applicationRepository.findById(roleExists.getApplicationId()).orElseThrow(NotFoundException::new);
         verifyAuthority(authenticatedUser, application.getInstitution().getId(), Authority.INSTITUTION_ADMINISTRATOR);
 
@@ -94,7 +92,7 @@ public class RoleController {
 
 
     @DeleteMapping("/{id}")
-    public ResponseEntity<Map<String, Integer>> delete(User authenticatedUser, @PathVariable("id") Long id) {
+    public ResponseEntity<Map<String, Integer>> delete(UserPrincipal authenticatedUser, @PathVariable("id") Long id) {
         Role role = roleRepository.findById(id).get();
         this.restrictUser(authenticatedUser, role);
         roleRepository.delete(role);
@@ -108,7 +106,7 @@ public class RoleController {
         return createdResponse();
     }
 
-    private void restrictUser(User user, Role role) throws AuthenticationException {
+    private void restrictUser(UserPrincipal user, Role role) throws AuthenticationException {
         Application application = applicationRepository.findById(role.getApplication().getId()).orElseThrow(NotFoundException::new);
         verifyAuthority(user, application.getInstitution().getId(), Authority.INSTITUTION_ADMINISTRATOR);
     }
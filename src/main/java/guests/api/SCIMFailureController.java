@@ -5,10 +5,12 @@ import guests.domain.Authority;
 import guests.domain.Role;
 import guests.domain.SCIMFailure;
 import guests.domain.User;
+import guests.domain.UserPrincipal;
 import guests.exception.NotFoundException;
 import guests.repository.RoleRepository;
 import guests.repository.SCIMFailureRepository;
 import guests.repository.UserRepository;
+import guests.scim.SCIMJson;
 import guests.scim.SCIMService;
 import guests.scim.ThreadLocalSCIMFailureStrategy;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -35,42 +37,47 @@ public class SCIMFailureController {
     private final RoleRepository roleRepository;
     private final SCIMFailureRepository scimFailureRepository;
     private final SCIMService scimService;
+    private final SCIMJson scimJson;
 
     @Autowired
     public SCIMFailureController(UserRepository userRepository,
                                  RoleRepository roleRepository,
                                  SCIMFailureRepository scimFailureRepository,
-                                 SCIMService scimService) {
+                                 SCIMService scimService,
+                                 SCIMJson scimJson) {
         this.userRepository = userRepository;
         this.roleRepository = roleRepository;
         this.scimFailureRepository = scimFailureRepository;
         this.scimService = scimService;
+        this.scimJson = scimJson;
     }
 
     @GetMapping("/institution/{institutionId}")
-    public ResponseEntity<List<SCIMFailure>> failures(User authenticatedUser, @PathVariable("institutionId") Long institutionId) {
+    public ResponseEntity<List<SCIMFailure>> failures(UserPrincipal authenticatedUser, @PathVariable("institutionId") Long institutionId) {
         verifyAuthority(authenticatedUser, institutionId, Authority.INSTITUTION_ADMINISTRATOR);
         List<SCIMFailure> scimFailures = this.scimFailureRepository.findByApplication_institution_id(institutionId);
         return ResponseEntity.ok(scimFailures);
     }
 
     @GetMapping("/institution/{institutionId}/count")
-    public ResponseEntity<Map<String, Long>> failuresCounts(User authenticatedUser, @PathVariable("institutionId") Long institutionId) {
+    public ResponseEntity<Map<String, Long>> failuresCounts(UserPrincipal authenticatedUser, @PathVariable("institutionId") Long institutionId) {
         verifyAuthority(authenticatedUser, institutionId, Authority.INSTITUTION_ADMINISTRATOR);
         long count = this.scimFailureRepository.countByApplication_institution_id(institutionId);
         return ResponseEntity.ok(Collections.singletonMap("count", count));
     }
 
     @GetMapping("/id/{id}/{institutionId}")
-    public ResponseEntity<SCIMFailure> failureById(User authenticatedUser,
+    @Transactional(readOnly = true)
+    public ResponseEntity<SCIMFailure> failureById(UserPrincipal authenticatedUser,
                                                    @PathVariable("id") Long id,
                                                    @PathVariable("institutionId") Long institutionId) {
         SCIMFailure scimFailure = getScimFailure(authenticatedUser, id, institutionId);
-        return ResponseEntity.ok(scimFailure);
+        //The message is stored compact, the managed failure is left untouched
+        return ResponseEntity.ok(new SCIMFailure(scimFailure, scimJson.pretty(scimFailure.getMessage())));
     }
 
     @PutMapping("/id/{id}/{institutionId}")
-    public ResponseEntity<Map<String, Integer>> resend(User authenticatedUser,
+    public ResponseEntity<Map<String, Integer>> resend(UserPrincipal authenticatedUser,
                                                        @PathVariable("id") Long id,
                                                        @PathVariable("institutionId") Long institutionId) throws JsonProcessingException {
         verifySuperUser(authenticatedUser);
@@ -95,7 +102,7 @@ public class SCIMFailureController {
     }
 
     @DeleteMapping("/id/{id}/{institutionId}")
-    public ResponseEntity<Map<String, Integer>> delete(User authenticatedUser,
+    public ResponseEntity<Map<String, Integer>> delete(UserPrincipal authenticatedUser,
                                                        @PathVariable("id") Long id,
                                                        @PathVariable("institutionId") Long institutionId) {
         SCIMFailure scimFailure = getScimFailure(authenticatedUser, id, institutionId);
@@ -103,7 +110,7 @@ public class SCIMFailureController {
         return createdResponse();
     }
 
-    private SCIMFailure getScimFailure(User authenticatedUser, @PathVariable("id") Long id, @PathVariable("institutionId") Long institutionId) {
+    private SCIMFailure getScimFailure(UserPrincipal authenticatedUser, @PathVariable("id") Long id, @PathVariable("institutionId") Long institutionId) {
         verifyAuthority(authenticatedUser, institutionId, Authority.INSTITUTION_ADMINISTRATOR);
         SCIMFailure scimFailure = this.scimFailureRepository.findById(id).orElseThrow(NotFoundException::new);
         if (!authenticatedUser.isSuperAdmin() && !scimFailure.getApplication().getInstitution().getId().equals(institutionId)) {
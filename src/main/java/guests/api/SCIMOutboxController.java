@@ -0,0 +1,61 @@
+package guests.api;
+
+import guests.domain.SCIMOutboxEvent;
+import guests.domain.UserPrincipal;
+import guests.exception.NotFoundException;
+import guests.repository.SCIMOutboxEventRepository;
+import guests.scim.SCIMOutboxDispatcher;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+
+import static guests.api.Shared.createdResponse;
+import static guests.api.UserPermissions.verifySuperUser;
+
+/*
+ * Parked outbox events block the later events of their application until they are resent or deleted here
+ */
+@RestController
+@RequestMapping(value = "/api/v1/scim/outbox", produces = MediaType.APPLICATION_JSON_VALUE)
+@ConditionalOnProperty(name = "scim.outbox.enabled", havingValue = "true")
+public class SCIMOutboxController {
+
+    private final SCIMOutboxEventRepository scimOutboxEventRepository;
+    private final SCIMOutboxDispatcher scimOutboxDispatcher;
+
+    @Autowired
+    public SCIMOutboxController(SCIMOutboxEventRepository scimOutboxEventRepository,
+                                SCIMOutboxDispatcher scimOutboxDispatcher) {
+        this.scimOutboxEventRepository = scimOutboxEventRepository;
+        this.scimOutboxDispatcher = scimOutboxDispatcher;
+    }
+
+    @GetMapping("/parked")
+    public ResponseEntity<List<SCIMOutboxEvent>> parked(UserPrincipal authenticatedUser) {
+        verifySuperUser(authenticatedUser);
+        return ResponseEntity.ok(scimOutboxEventRepository.findByParkedTrueOrderByIdAsc());
+    }
+
+    @PutMapping("/{id}")
+    public ResponseEntity<Map<String, Integer>> resend(UserPrincipal authenticatedUser, @PathVariable("id") Long id) {
+        verifySuperUser(authenticatedUser);
+        SCIMOutboxEvent event = scimOutboxEventRepository.findById(id).orElseThrow(NotFoundException::new);
+        scimOutboxDispatcher.resend(event);
+        return createdResponse();
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Map<String, Integer>> delete(UserPrincipal authenticatedUser, @PathVariable("id") Long id) {
+        verifySuperUser(authenticatedUser);
+        SCIMOutboxEvent event = scimOutboxEventRepository.findById(id).orElseThrow(NotFoundException::new);
+        scimOutboxEventRepository.delete(event);
+        //The later events of the application are no longer blocked
+        scimOutboxDispatcher.signal();
+        return createdResponse();
+    }
+}
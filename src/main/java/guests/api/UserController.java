@@ -1,11 +1,9 @@
 package guests.api;
 
-import guests.domain.Application;
-import guests.domain.InstitutionMembership;
-import guests.domain.User;
-import guests.domain.UserRole;
+import guests.domain.*;
 import guests.exception.NotFoundException;
 import guests.repository.ApplicationRepository;
+import guests.repository.RoleRepository;
 import guests.repository.UserRepository;
 import guests.scim.OperationType;
 import guests.scim.SCIMService;
@@ -33,25 +31,27 @@ public class UserController {
 
     private final UserRepository userRepository;
     private final ApplicationRepository applicationRepository;
+    private final RoleRepository roleRepository;
     private final SCIMService scimService;
 
     @Autowired
     public UserController(UserRepository userRepository,
                           ApplicationRepository applicationRepository,
+                          RoleRepository roleRepository,
                           SCIMService scimService) {
         this.userRepository = userRepository;
         this.applicationRepository = applicationRepository;
+        this.roleRepository = roleRepository;
         this.scimService = scimService;
     }
 
     @GetMapping("me")
     public ResponseEntity<User> me(User authenticatedUser) {
-        User user = userRepository.findById(authenticatedUser.getId()).orElseThrow(NotFoundException::new);
-        return ResponseEntity.ok(user);
+        return ResponseEntity.ok(authenticatedUser);
     }
 
     @GetMapping("{userId}")
-    public ResponseEntity<User> other(User authenticatedUser, @PathVariable("userId") Long userId) {
+    public ResponseEntity<User> other(UserPrincipal authenticatedUser, @PathVariable("userId") Long userId) {
         User other = userRepository.findById(userId).orElseThrow(NotFoundException::new);
 
         viewOtherUserAllowed(authenticatedUser, other);
@@ -62,27 +62,50 @@ public class UserController {
 
     @GetMapping("/institution/{institutionId}")
     @Transactional(readOnly = true)
-    public ResponseEntity<List<User>> getByInstitution(User authenticatedUser, @PathVariable("institutionId") Long institutionId) {
+    public ResponseEntity<List<User>> getByInstitution(UserPrincipal authenticatedUser, @PathVariable("institutionId") Long institutionId) {
         verifyUser(authenticatedUser, institutionId);
         List<User> users = userRepository.findByInstitutionMemberships_Institution_id(institutionId);
         removeOtherInstitutionData(authenticatedUser, institutionId, users);
         return ResponseEntity.ok(users);
     }
 
+    /*
+     * Keyset paginated variant of getByInstitution, which returns only the data of the institution
+     */
+    @GetMapping("/institution/{institutionId}/page")
+    @Transactional(readOnly = true)
+    public ResponseEntity<KeysetPage<UserSummary>> pageByInstitution(UserPrincipal authenticatedUser,
+                                                                     @PathVariable("institutionId") Long institutionId,
+                                                                     UserFilter userFilter) {
+        verifyUser(authenticatedUser, institutionId);
+        return ResponseEntity.ok(userRepository.findUserSummariesByInstitution(institutionId, userFilter));
+    }
+
     @GetMapping("/emails/{institutionId}")
-    public ResponseEntity<List<Map<String, String>>> emailsByInstitution(User user,
+    public ResponseEntity<List<Map<String, String>>> emailsByInstitution(UserPrincipal user,
                                                                          @PathVariable("institutionId") Long institutionId) {
         verifyUser(user, institutionId);
         return ResponseEntity.ok(userRepository.findEmailAndNameByInstitution_id(institutionId));
     }
 
     @GetMapping("/application/{applicationId}")
-    public ResponseEntity<List<User>> getByApplication(User user, @PathVariable("applicationId") Long applicationId) {
+    public ResponseEntity<List<User>> getByApplication(UserPrincipal user, @PathVariable("applicationId") Long applicationId) {
         Application application = applicationRepository.findById(applicationId).orElseThrow(NotFoundException::new);
         verifyUser(user, application.getInstitution().getId());
         return ResponseEntity.ok(userRepository.findByUserRoles_role_application_id(applicationId));
     }
 
+    @GetMapping("/application/{applicationId}/page")
+    @Transactional(readOnly = true)
+    public ResponseEntity<KeysetPage<UserSummary>> pageByApplication(UserPrincipal user,
+                                                                     @PathVariable("applicationId") Long applicationId,
+                                                                     UserFilter userFilter) {
+        Application application = applicationRepository.findById(applicationId).orElseThrow(NotFoundException::new);
+        Long institutionId = application.getInstitution().getId();
+        verifyUser(user, institutionId);
+        return ResponseEntity.ok(userRepository.findUserSummariesByApplication(institutionId, applicationId, userFilter));
+    }
+
     @DeleteMapping
     public ResponseEntity<Map<String, Integer>> delete(User authenticatedUser) {
         doDeleteUser(authenticatedUser);
@@ -90,7 +113,7 @@ public class UserController {
     }
 
     @DeleteMapping("/{userId}")
-    public ResponseEntity<Map<String, Integer>> deleteOther(User authenticatedUser,
+    public ResponseEntity<Map<String, Integer>> deleteOther(UserPrincipal authenticatedUser,
                                                             @PathVariable("userId") Long userId) {
         User subject = userRepository.findById(userId).orElseThrow(NotFoundException::new);
 
@@ -101,7 +124,7 @@ public class UserController {
     }
 
     @DeleteMapping("/role/{userId}/{userRoleId}")
-    public ResponseEntity<Map<String, Integer>> deleteRoleForOther(User authenticatedUser,
+    public ResponseEntity<Map<String, Integer>> deleteRoleForOther(UserPrincipal authenticatedUser,
                                                                    @PathVariable("userId") Long userId,
                                                                    @PathVariable("userRoleId") Long userRoleId) {
         User subject = userRepository.findById(userId).orElseThrow(NotFoundException::new);
@@ -117,7 +140,7 @@ public class UserController {
     }
 
     @DeleteMapping("/membership/{userId}/{membershipId}")
-    public ResponseEntity<Map<String, Integer>> deleteMembershipForOther(User authenticatedUser,
+    public ResponseEntity<Map<String, Integer>> deleteMembershipForOther(UserPrincipal authenticatedUser,
                                                                          @PathVariable("userId") Long userId,
                                                                          @PathVariable("membershipId") Long membershipId) {
         User subject = userRepository.findById(userId).orElseThrow(NotFoundException::new);
@@ -153,13 +176,18 @@ public class UserController {
         LOG.info(String.format("Deleting user %s", subject.getName()));
     }
 
-    private void removeOtherInstitutionData(User authenticatedUser, Long institutionId, List<User> users) {
+    private void removeOtherInstitutionData(UserPrincipal authenticatedUser, Long institutionId, List<User> users) {
         if (!authenticatedUser.isSuperAdmin()) {
-            users.forEach(user -> user.removeOtherInstitutionData(institutionId));
+            //Sorted primitive role ids, the userRoles are filtered without initializing the applications of the roles
+            long[] roleIdentifiers = roleRepository.findIdsByInstitution(institutionId).stream()
+                    .mapToLong(Long::longValue)
+                    .sorted()
+                    .toArray();
+            users.forEach(user -> user.retainInstitutionData(institutionId, roleIdentifiers));
         }
     }
 
-    private void removeOtherInstitutionData(User authenticatedUser, User user) {
+    private void removeOtherInstitutionData(UserPrincipal authenticatedUser, User user) {
         if (!authenticatedUser.isSuperAdmin()) {
             user.removeOtherInstitutionData(authenticatedUser);
         }
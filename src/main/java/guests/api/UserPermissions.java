@@ -15,52 +15,47 @@ public class UserPermissions {
     private UserPermissions() {
     }
 
-    public static void verifyUser(User authenticatedUser, Long institutionId) {
-        if (!authenticatedUser.isSuperAdmin()) {
-            authenticatedUser.authorityByInstitution(institutionId).orElseThrow(() -> userRestrictedException(authenticatedUser, institutionId));
-        }
+    public static void verifyUser(AuthorizedUser authenticatedUser, Long institutionId) {
+        verifyAuthority(authenticatedUser, institutionId, Authority.GUEST);
     }
 
-    public static void verifySuperUser(User user) {
+    public static void verifySuperUser(AuthorizedUser user) {
         if (!user.isSuperAdmin()) {
             throw new UserRestrictionException("Authority mismatch");
         }
     }
 
-    public static void verifyAuthority(User user, Long institutionId, Authority required) {
-        if (!user.isSuperAdmin()) {
-            Authority authority = user.authorityByInstitution(institutionId).orElseThrow(() -> userRestrictedException(user, institutionId));
-            if (!authority.hasEqualOrHigherRights(required)) {
-                throw userRestrictedException(user, institutionId);
-            }
+    public static void verifyAuthority(AuthorizedUser user, Long institutionId, Authority required) {
+        AuthorityIndex authorityIndex = user.getAuthorityIndex();
+        if (!authorityIndex.isSuperAdmin() &&
+                (institutionId == null || !authorityIndex.hasEqualOrHigherRights(institutionId, required))) {
+            throw userRestrictedException(user, institutionId);
         }
     }
 
-    public static void viewOtherUserAllowed(User authenticatedUser, User subject) {
+    public static void viewOtherUserAllowed(AuthorizedUser authenticatedUser, User subject) {
         if (!authenticatedUser.isSuperAdmin() && !authenticatedUser.getId().equals(subject.getId())) {
-            boolean allowed = authenticatedUser.getInstitutionMemberships().stream()
-                    .anyMatch(membership -> subject.getInstitutionMemberships().stream()
-                            .anyMatch(subjectMembership -> subjectMembership.getInstitution().getId().equals(membership.getInstitution().getId()) &&
-                                    membership.getAuthority().hasHigherRights(subjectMembership.getAuthority())));
+            AuthorityIndex authorityIndex = authenticatedUser.getAuthorityIndex();
+            boolean allowed = subject.getInstitutionMemberships().stream()
+                    .anyMatch(subjectMembership -> hasHigherRights(authorityIndex, subjectMembership.getInstitution().getId(), subjectMembership.getAuthority()));
             if (!allowed) {
                 throw userRestrictedException(authenticatedUser, subject);
             }
         }
     }
 
-    public static void deleteOtherUserAllowed(User authenticatedUser, User subject) {
+    public static void deleteOtherUserAllowed(AuthorizedUser authenticatedUser, User subject) {
         if (!authenticatedUser.isSuperAdmin() && !authenticatedUser.getId().equals(subject.getId())) {
+            AuthorityIndex authorityIndex = authenticatedUser.getAuthorityIndex();
             boolean allowed = subject.getInstitutionMemberships().stream()
-                    .allMatch(subjectMembership -> authenticatedUser.getInstitutionMemberships().stream()
-                            .anyMatch(membership -> membership.getInstitution().getId().equals(subjectMembership.getInstitution().getId()) &&
-                                    membership.getAuthority().hasHigherRights(subjectMembership.getAuthority())));
+                    .allMatch(subjectMembership -> hasHigherRights(authorityIndex, subjectMembership.getInstitution().getId(), subjectMembership.getAuthority()));
             if (!allowed) {
                 throw userRestrictedException(authenticatedUser, subject);
             }
         }
     }
 
-    public static void deleteUserRoleAllowed(User authenticatedUser, UserRole subjectUserRole) {
+    public static void deleteUserRoleAllowed(AuthorizedUser authenticatedUser, UserRole subjectUserRole) {
         User subject = subjectUserRole.getUser();
         Long institutionId = subjectUserRole.getRole().getApplication().getInstitution().getId();
         Authority highestAuthority = subject.getInstitutionMemberships().stream()
@@ -70,34 +65,35 @@ public class UserPermissions {
         doDeleteUserRoleOrMembershipAllowed(authenticatedUser, subject, institutionId, highestAuthority);
     }
 
-    public static void deleteInstitutionMembershipAllowed(User authenticatedUser, InstitutionMembership institutionMembership) {
+    public static void deleteInstitutionMembershipAllowed(AuthorizedUser authenticatedUser, InstitutionMembership institutionMembership) {
         User subject = institutionMembership.getUser();
         Long institutionId = institutionMembership.getInstitution().getId();
         doDeleteUserRoleOrMembershipAllowed(authenticatedUser, subject, institutionId, institutionMembership.getAuthority());
     }
 
-    public static UserRestrictionException userRestrictedException(User authenticatedUser, Long institutionId) {
+    public static UserRestrictionException userRestrictedException(AuthorizedUser authenticatedUser, Long institutionId) {
         return new UserRestrictionException(String.format("User %s is not allowed to act for institution %s",
                 authenticatedUser.getEduPersonPrincipalName(), institutionId));
     }
 
-    public static UserRestrictionException userRestrictedException(User authenticatedUser, User subject) {
+    public static UserRestrictionException userRestrictedException(AuthorizedUser authenticatedUser, User subject) {
         return new UserRestrictionException(String.format("User %s is not allowed to act for user %s",
                 authenticatedUser.getEduPersonPrincipalName(), subject.getEduPersonPrincipalName()));
     }
 
-    private static void doDeleteUserRoleOrMembershipAllowed(User authenticatedUser,
+    private static void doDeleteUserRoleOrMembershipAllowed(AuthorizedUser authenticatedUser,
                                                             User subject,
                                                             Long institutionId,
                                                             Authority authority) {
         if (!authenticatedUser.isSuperAdmin() && !authenticatedUser.getId().equals(subject.getId())) {
-            boolean allowed = authenticatedUser.getInstitutionMemberships().stream()
-                    .anyMatch(membership -> membership.getInstitution().getId().equals(institutionId) &&
-                            membership.getAuthority().hasHigherRights(authority));
-            if (!allowed) {
+            if (!hasHigherRights(authenticatedUser.getAuthorityIndex(), institutionId, authority)) {
                 throw userRestrictedException(authenticatedUser, subject);
             }
         }
     }
 
+    private static boolean hasHigherRights(AuthorityIndex authorityIndex, Long institutionId, Authority authority) {
+        return institutionId != null && authorityIndex.hasHigherRights(institutionId, authority);
+    }
+
 }
@@ -0,0 +1,70 @@
+package guests.cache;
+
+import org.hibernate.boot.spi.SessionFactoryOptions;
+import org.hibernate.cache.cfg.spi.DomainDataRegionBuildingContext;
+import org.hibernate.cache.cfg.spi.DomainDataRegionConfig;
+import org.hibernate.cache.spi.support.DomainDataStorageAccess;
+import org.hibernate.cache.spi.support.RegionFactoryTemplate;
+import org.hibernate.cache.spi.support.StorageAccess;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * Hibernate second-level cache regions in local, size-bounded caches, configured with the hibernate.cache.local.*
+ * properties. The cache is not replicated, the ReferenceDataCache evicts the entries changed by other nodes.
+ */
+public class LocalRegionFactory extends RegionFactoryTemplate {
+
+    public static final String MAX_ENTRIES = "hibernate.cache.local.max_entries";
+    public static final String TTL_SECONDS = "hibernate.cache.local.ttl_seconds";
+
+    //The update timestamps of the query cache must not be evicted before the cached query results
+    private static final Duration TIMESTAMPS_TIME_TO_LIVE = Duration.ofDays(3650);
+
+    private final Map<String, LocalStorageAccess> regions = new ConcurrentHashMap<>();
+
+    private int maximumSize;
+    private Duration timeToLive;
+
+    @Override
+    protected void prepareForUse(SessionFactoryOptions settings, Map configValues) {
+        this.maximumSize = Integer.parseInt(String.valueOf(configValues.getOrDefault(MAX_ENTRIES, "10000")));
+        this.timeToLive = Duration.ofSeconds(Long.parseLong(String.valueOf(configValues.getOrDefault(TTL_SECONDS, "3600"))));
+    }
+
+    @Override
+    protected DomainDataStorageAccess createDomainDataStorageAccess(DomainDataRegionConfig regionConfig,
+                                                                   DomainDataRegionBuildingContext buildingContext) {
+        return register(new LocalStorageAccess(regionConfig.getRegionName(), maximumSize, timeToLive));
+    }
+
+    @Override
+    protected StorageAccess createQueryResultsRegionStorageAccess(String regionName, SessionFactoryImplementor sessionFactory) {
+        return register(new LocalStorageAccess(regionName, maximumSize, timeToLive));
+    }
+
+    @Override
+    protected StorageAccess createTimestampsRegionStorageAccess(String regionName, SessionFactoryImplementor sessionFactory) {
+        return register(new LocalStorageAccess(regionName, Integer.MAX_VALUE, TIMESTAMPS_TIME_TO_LIVE));
+    }
+
+    @Override
+    protected void releaseFromUse() {
+        regions.values().forEach(LocalStorageAccess::release);
+        regions.clear();
+    }
+
+    public Collection<LocalStorageAccess> getRegions() {
+        return Collections.unmodifiableCollection(regions.values());
+    }
+
+    private LocalStorageAccess register(LocalStorageAccess storageAccess) {
+        regions.put(storageAccess.getRegionName(), storageAccess);
+        return storageAccess;
+    }
+}
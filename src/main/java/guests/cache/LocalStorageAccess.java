@@ -0,0 +1,80 @@
+package guests.cache;
+
+import guests.config.ExpiringCache;
+import org.hibernate.cache.spi.support.DomainDataStorageAccess;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Storage of one second-level cache region in a size-bounded local cache. The hits and misses are counted for the
+ * hit ratio metrics.
+ */
+public class LocalStorageAccess implements DomainDataStorageAccess {
+
+    private final String regionName;
+    private final ExpiringCache<Object, Object> cache;
+    private final Duration timeToLive;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public LocalStorageAccess(String regionName, int maximumSize, Duration timeToLive) {
+        this.regionName = regionName;
+        this.cache = new ExpiringCache<>(maximumSize);
+        this.timeToLive = timeToLive;
+    }
+
+    @Override
+    public Object getFromCache(Object key, SharedSessionContractImplementor session) {
+        Optional<Object> value = cache.get(key);
+        if (value.isPresent()) {
+            hits.increment();
+            return value.get();
+        }
+        misses.increment();
+        return null;
+    }
+
+    @Override
+    public void putIntoCache(Object key, Object value, SharedSessionContractImplementor session) {
+        cache.put(key, value, timeToLive);
+    }
+
+    @Override
+    public boolean contains(Object key) {
+        return cache.get(key).isPresent();
+    }
+
+    @Override
+    public void evictData() {
+        cache.invalidateAll();
+    }
+
+    @Override
+    public void evictData(Object key) {
+        cache.invalidate(key);
+    }
+
+    @Override
+    public void release() {
+        cache.invalidateAll();
+    }
+
+    public String getRegionName() {
+        return regionName;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public int size() {
+        return cache.size();
+    }
+}
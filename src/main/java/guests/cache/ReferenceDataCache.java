@@ -0,0 +1,225 @@
+package guests.cache;
+
+import guests.cron.ScheduledJobRunner;
+import guests.domain.Application;
+import guests.domain.Institution;
+import guests.domain.Role;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.hibernate.Cache;
+import org.hibernate.Hibernate;
+import org.hibernate.cache.spi.RegionFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceUnitUtil;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * The institutions, applications and roles are kept in the local second-level cache of each node. Every change is
+ * recorded in the cache_invalidations table in the transaction of the change. The other nodes poll this table and
+ * evict the changed entities - and all cached queries - from their own cache.
+ */
+@Component
+public class ReferenceDataCache {
+
+    private static final Log LOG = LogFactory.getLog(ReferenceDataCache.class);
+
+    static final String APPLICATION_ROLES_REGION = Application.class.getName() + ".roles";
+
+    //Ids of concurrent transactions are not committed in order, recent ids are read again to catch the late commits
+    private static final long ID_LOOKBACK = 1000L;
+
+    private final Cache cache;
+    private final PersistenceUnitUtil persistenceUnitUtil;
+    private final JdbcTemplate jdbcTemplate;
+    private final ScheduledJobRunner scheduledJobRunner;
+    private final Duration retention;
+    private final boolean cronJobResponsible;
+    private final String node = UUID.randomUUID().toString();
+
+    private final Set<Long> processed = ConcurrentHashMap.newKeySet();
+    private volatile long lastSeenId = -1L;
+
+    @Autowired
+    public ReferenceDataCache(EntityManagerFactory entityManagerFactory,
+                              JdbcTemplate jdbcTemplate,
+                              ScheduledJobRunner scheduledJobRunner,
+                              MeterRegistry meterRegistry,
+                              @Value("${cache.invalidation.retention-hours}") long retentionHours,
+                              @Value("${cron.node-cron-job-responsible}") boolean cronJobResponsible) {
+        SessionFactoryImplementor sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        this.cache = sessionFactory.getCache();
+        this.persistenceUnitUtil = entityManagerFactory.getPersistenceUnitUtil();
+        this.jdbcTemplate = jdbcTemplate;
+        this.scheduledJobRunner = scheduledJobRunner;
+        this.retention = Duration.ofHours(retentionHours);
+        this.cronJobResponsible = cronJobResponsible;
+
+        RegionFactory regionFactory = sessionFactory.getCache().getRegionFactory();
+        if (regionFactory instanceof LocalRegionFactory localRegionFactory) {
+            localRegionFactory.getRegions().forEach(region -> registerMetrics(region, meterRegistry));
+        }
+    }
+
+    /*
+     * Called by the ReferenceDataCacheListener after an institution, application or role is inserted, updated or
+     * deleted in the current transaction
+     */
+    public void changed(Object entity) {
+        Class<?> entityClass = Hibernate.getClass(entity);
+        Object identifier = persistenceUnitUtil.getIdentifier(entity);
+        //Hibernate does not update the cached inverse collection of the application
+        if (entity instanceof Role role && role.getApplication() != null) {
+            Long applicationId = role.getApplication().getId();
+            cache.evictCollectionData(APPLICATION_ROLES_REGION, applicationId);
+            if (TransactionSynchronizationManager.isSynchronizationActive()) {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        cache.evictCollectionData(APPLICATION_ROLES_REGION, applicationId);
+                    }
+                });
+            }
+        }
+        recordInvalidation(entityClass.getName(), identifier);
+    }
+
+    /*
+     * Called by the ReferenceDataCacheListener after an institution, application or role is deleted in the current
+     * transaction. The applications and roles of a deleted institution are deleted by the foreign key cascades, which
+     * Hibernate does not see. All cached applications and roles are evicted, here and - by the invalidations without
+     * an id - on the other nodes.
+     */
+    public void removed(Object entity) {
+        changed(entity);
+        if (entity instanceof Institution) {
+            evictCascadedDeletes();
+            if (TransactionSynchronizationManager.isSynchronizationActive()) {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        evictCascadedDeletes();
+                    }
+                });
+            }
+            recordInvalidation(Application.class.getName(), null);
+            recordInvalidation(Role.class.getName(), null);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${cache.invalidation.poll-delay-millis}")
+    public void poll() {
+        if (lastSeenId < 0) {
+            //Everything before the start of this node is not in the cache of this node
+            Long maxId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM cache_invalidations", Long.class);
+            lastSeenId = maxId == null ? 0L : maxId;
+            return;
+        }
+        List<Invalidation> invalidations = jdbcTemplate.query(
+                "SELECT id, entity_name, entity_id FROM cache_invalidations WHERE id > ? AND node <> ? ORDER BY id",
+                (rs, rowNum) -> new Invalidation(rs.getLong("id"), rs.getString("entity_name"), rs.getObject("entity_id", Long.class)),
+                Math.max(0L, lastSeenId - ID_LOOKBACK),
+                node);
+        boolean evicted = false;
+        for (Invalidation invalidation : invalidations) {
+            if (processed.add(invalidation.id())) {
+                evict(invalidation);
+                evicted = true;
+            }
+            lastSeenId = Math.max(lastSeenId, invalidation.id());
+        }
+        if (evicted) {
+            cache.evictQueryRegions();
+        }
+        long threshold = lastSeenId - ID_LOOKBACK;
+        processed.removeIf(id -> id <= threshold);
+    }
+
+    @Scheduled(fixedDelayString = "${cache.invalidation.cleanup-delay-millis}")
+    public void cleanup() {
+        if (!cronJobResponsible) {
+            return;
+        }
+        scheduledJobRunner.run("cache-invalidations-cleanup", Duration.ZERO, () -> {
+            int deleted = jdbcTemplate.update("DELETE FROM cache_invalidations WHERE created_at < ?",
+                    Timestamp.from(Instant.now().minus(retention)));
+            LOG.info(String.format("Deleted %s cache invalidations", deleted));
+        });
+    }
+
+    private void recordInvalidation(String entityName, Object identifier) {
+        jdbcTemplate.update("INSERT INTO cache_invalidations (entity_name, entity_id, node) VALUES (?, ?, ?)",
+                entityName, identifier, node);
+    }
+
+    private void evictCascadedDeletes() {
+        cache.evictEntityData(Application.class);
+        cache.evictEntityData(Role.class);
+        cache.evictCollectionData(APPLICATION_ROLES_REGION);
+        cache.evictQueryRegions();
+    }
+
+    private void evict(Invalidation invalidation) {
+        String entityName = invalidation.entityName();
+        Long entityId = invalidation.entityId();
+        if (entityId == null) {
+            cache.evictEntityData(entityName);
+        } else {
+            cache.evictEntityData(entityName, entityId);
+        }
+        if (Role.class.getName().equals(entityName)) {
+            //The application of a deleted role is unknown
+            cache.evictCollectionData(APPLICATION_ROLES_REGION);
+        } else if (Application.class.getName().equals(entityName) && entityId != null) {
+            cache.evictCollectionData(APPLICATION_ROLES_REGION, entityId);
+        }
+    }
+
+    private void registerMetrics(LocalStorageAccess region, MeterRegistry meterRegistry) {
+        String regionName = region.getRegionName();
+        FunctionCounter.builder("hibernate.cache.local.requests", region, LocalStorageAccess::getHits)
+                .description("Number of second-level cache lookups")
+                .tag("region", regionName)
+                .tag("result", "hit")
+                .register(meterRegistry);
+        FunctionCounter.builder("hibernate.cache.local.requests", region, LocalStorageAccess::getMisses)
+                .description("Number of second-level cache lookups")
+                .tag("region", regionName)
+                .tag("result", "miss")
+                .register(meterRegistry);
+        Gauge.builder("hibernate.cache.local.hit.ratio", region, ReferenceDataCache::hitRatio)
+                .description("Ratio of second-level cache lookups found in the cache")
+                .tag("region", regionName)
+                .register(meterRegistry);
+        Gauge.builder("hibernate.cache.local.size", region, LocalStorageAccess::size)
+                .description("Number of entries in the second-level cache")
+                .tag("region", regionName)
+                .register(meterRegistry);
+    }
+
+    static double hitRatio(LocalStorageAccess region) {
+        long hits = region.getHits();
+        long requests = hits + region.getMisses();
+        return requests == 0L ? 0D : (double) hits / requests;
+    }
+
+    private record Invalidation(long id, String entityName, Long entityId) {
+    }
+}
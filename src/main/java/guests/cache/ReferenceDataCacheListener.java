@@ -0,0 +1,31 @@
+package guests.cache;
+
+import org.springframework.beans.factory.ObjectProvider;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+/*
+ * Records the changes to the cached reference data. The ReferenceDataCache is resolved lazily, as it depends on the
+ * EntityManagerFactory which creates this listener.
+ */
+public class ReferenceDataCacheListener {
+
+    private final ObjectProvider<ReferenceDataCache> referenceDataCache;
+
+    public ReferenceDataCacheListener(ObjectProvider<ReferenceDataCache> referenceDataCache) {
+        this.referenceDataCache = referenceDataCache;
+    }
+
+    @PostPersist
+    @PostUpdate
+    public void afterChange(Object entity) {
+        referenceDataCache.getObject().changed(entity);
+    }
+
+    @PostRemove
+    public void afterRemove(Object entity) {
+        referenceDataCache.getObject().removed(entity);
+    }
+}
@@ -0,0 +1,62 @@
+package guests.config;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.LongSupplier;
+
+/*
+ * Small, size-bounded local cache where each entry has its own time-to-live. When the maximum size is reached the
+ * least recently used entry is evicted.
+ */
+public class ExpiringCache<K, V> {
+
+    private final LinkedHashMap<K, Entry<V>> entries;
+    private final LongSupplier nanoTime;
+
+    public ExpiringCache(int maximumSize) {
+        this(maximumSize, System::nanoTime);
+    }
+
+    public ExpiringCache(int maximumSize, LongSupplier nanoTime) {
+        this.nanoTime = nanoTime;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                return size() > maximumSize;
+            }
+        };
+    }
+
+    public synchronized Optional<V> get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            return Optional.empty();
+        }
+        if (entry.expiresAt() - nanoTime.getAsLong() <= 0) {
+            entries.remove(key);
+            return Optional.empty();
+        }
+        return Optional.of(entry.value());
+    }
+
+    public synchronized void put(K key, V value, Duration timeToLive) {
+        entries.put(key, new Entry<>(value, nanoTime.getAsLong() + timeToLive.toNanos()));
+    }
+
+    public synchronized void invalidate(K key) {
+        entries.remove(key);
+    }
+
+    public synchronized void invalidateAll() {
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private record Entry<V>(V value, long expiresAt) {
+    }
+}
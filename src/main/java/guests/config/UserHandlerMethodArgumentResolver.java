@@ -1,6 +1,9 @@
 package guests.config;
 
 import guests.domain.User;
+import guests.domain.UserPrincipal;
+import guests.exception.NotFoundException;
+import guests.repository.UserRepository;
 import org.springframework.core.MethodParameter;
 import org.springframework.security.oauth2.server.resource.authentication.BearerTokenAuthentication;
 import org.springframework.web.bind.support.WebDataBinderFactory;
@@ -8,17 +11,31 @@ import org.springframework.web.context.request.NativeWebRequest;
 import org.springframework.web.method.support.HandlerMethodArgumentResolver;
 import org.springframework.web.method.support.ModelAndViewContainer;
 
+/*
+ * Resolves the UserPrincipal of the request. The User aggregate is only loaded for handlers with a User parameter.
+ */
 public class UserHandlerMethodArgumentResolver implements HandlerMethodArgumentResolver {
 
+    private final UserRepository userRepository;
+
+    public UserHandlerMethodArgumentResolver(UserRepository userRepository) {
+        this.userRepository = userRepository;
+    }
+
     public boolean supportsParameter(MethodParameter methodParameter) {
-        return methodParameter.getParameterType().equals(User.class);
+        Class<?> parameterType = methodParameter.getParameterType();
+        return parameterType.equals(UserPrincipal.class) || parameterType.equals(User.class);
     }
 
-    public User resolveArgument(MethodParameter methodParameter,
-                                ModelAndViewContainer mavContainer,
-                                NativeWebRequest webRequest,
-                                WebDataBinderFactory binderFactory) {
+    public Object resolveArgument(MethodParameter methodParameter,
+                                  ModelAndViewContainer mavContainer,
+                                  NativeWebRequest webRequest,
+                                  WebDataBinderFactory binderFactory) {
         BearerTokenAuthentication authentication = (BearerTokenAuthentication) webRequest.getUserPrincipal();
-        return (User) authentication.getDetails();
+        UserPrincipal principal = (UserPrincipal) authentication.getDetails();
+        if (methodParameter.getParameterType().equals(UserPrincipal.class)) {
+            return principal;
+        }
+        return userRepository.findById(principal.getId()).orElseThrow(NotFoundException::new);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,152 @@
+package guests.cron;
+
+import guests.domain.JobLock;
+import guests.repository.JobLockRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Runs a scheduled job on at most one node at the same time. Before each run a lease on the job_locks row of the job
+ * is taken. The lease expires after the lease duration, so the lock of a crashed node is taken over by another node.
+ * After the run the lock is kept for at least lockAtLeastFor, which prevents other nodes whose cron triggers fire a
+ * little later from running the same job again. Jobs looping over chunks or batches renew the lease in between, so a
+ * long run does not outlive its lease.
+ */
+@Component
+public class ScheduledJobRunner {
+
+    private static final Log LOG = LogFactory.getLog(ScheduledJobRunner.class);
+
+    //The lock of the job running on the current thread, used to renew its lease
+    private static final ThreadLocal<String> currentLock = new ThreadLocal<>();
+
+    private final JobLockRepository jobLockRepository;
+    private final MeterRegistry meterRegistry;
+    private final Duration lease;
+    private final String owner;
+
+    @Autowired
+    public ScheduledJobRunner(JobLockRepository jobLockRepository,
+                              MeterRegistry meterRegistry,
+                              @Value("${cron.lock-lease-minutes}") long leaseMinutes) {
+        this.jobLockRepository = jobLockRepository;
+        this.meterRegistry = meterRegistry;
+        this.lease = Duration.ofMinutes(leaseMinutes);
+        this.owner = owner();
+    }
+
+    public boolean run(String job, Duration lockAtLeastFor, Runnable task) {
+        return run(job, null, lockAtLeastFor, task);
+    }
+
+    /*
+     * The optional resource is part of the lock name, e.g. to lock per application. It is not used in the metrics.
+     */
+    public boolean run(String job, String resource, Duration lockAtLeastFor, Runnable task) {
+        String lockName = resource == null ? job : String.format("%s:%s", job, resource);
+        Instant lockedAt = Instant.now();
+        if (!acquire(lockName, lockedAt)) {
+            meterRegistry.counter("scheduled.job.skipped", "job", job).increment();
+            return false;
+        }
+        long start = System.nanoTime();
+        String result = "success";
+        String outerLock = currentLock.get();
+        currentLock.set(lockName);
+        try {
+            task.run();
+        } catch (RuntimeException e) {
+            result = "error";
+            LOG.error(String.format("Error running scheduled job %s", lockName), e);
+        } finally {
+            if (outerLock == null) {
+                currentLock.remove();
+            } else {
+                currentLock.set(outerLock);
+            }
+            Timer.builder("scheduled.job.duration")
+                    .description("Duration of a scheduled job run")
+                    .tag("job", job)
+                    .tag("result", result)
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            release(lockName, lockedAt.plus(lockAtLeastFor));
+            Timer.builder("scheduled.job.lock.held")
+                    .description("Time the lock of a scheduled job was held by this node")
+                    .tag("job", job)
+                    .register(meterRegistry)
+                    .record(Duration.between(lockedAt, Instant.now()));
+        }
+        return true;
+    }
+
+    /*
+     * Extends the lease of the job running on the current thread. Returns false when the lease is lost - e.g. it expired
+     * and another node took over the lock - in which case the job must stop. Outside a job there is nothing to renew.
+     */
+    public boolean renew() {
+        String lockName = currentLock.get();
+        if (lockName == null) {
+            return true;
+        }
+        Instant now = Instant.now();
+        try {
+            if (jobLockRepository.renew(lockName, owner, now, now.plus(lease)) == 1) {
+                return true;
+            }
+            LOG.warn(String.format("Lost the lease of scheduled job %s, stopping the run", lockName));
+        } catch (RuntimeException e) {
+            LOG.error(String.format("Error renewing the lease of scheduled job %s, stopping the run", lockName), e);
+        }
+        meterRegistry.counter("scheduled.job.lease.lost", "job", lockName.split(":")[0]).increment();
+        return false;
+    }
+
+    private boolean acquire(String lockName, Instant now) {
+        if (jobLockRepository.acquire(lockName, owner, now, now.plus(lease)) == 1) {
+            return true;
+        }
+        if (jobLockRepository.existsById(lockName)) {
+            return false;
+        }
+        try {
+            jobLockRepository.save(new JobLock(lockName));
+        } catch (DataIntegrityViolationException e) {
+            //Another node inserted the lock at the same time
+        }
+        return jobLockRepository.acquire(lockName, owner, now, now.plus(lease)) == 1;
+    }
+
+    private void release(String lockName, Instant lockedUntil) {
+        Instant now = Instant.now();
+        try {
+            jobLockRepository.release(lockName, owner, lockedUntil.isAfter(now) ? lockedUntil : now);
+        } catch (RuntimeException e) {
+            //The lease will expire
+            LOG.error(String.format("Error releasing the lock of scheduled job %s", lockName), e);
+        }
+    }
+
+    private static String owner() {
+        String hostName;
+        try {
+            hostName = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            hostName = "unknown";
+        }
+        return String.format("%s-%s", hostName, UUID.randomUUID());
+    }
+}
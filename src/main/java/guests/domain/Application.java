@@ -3,10 +3,14 @@ package guests.domain;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import guests.exception.InvalidProvisioningException;
+import guests.cache.ReferenceDataCacheListener;
+import guests.voot.VootMembershipsCacheListener;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import org.hibernate.LazyInitializationException;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.springframework.util.StringUtils;
 
 import javax.persistence.*;
@@ -21,11 +25,15 @@ import java.util.Set;
 @NoArgsConstructor
 @Getter
 @Setter
-@EntityListeners(NameHolderListener.class)
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@EntityListeners({NameHolderListener.class, VootMembershipsCacheListener.class, ReferenceDataCacheListener.class})
 public class Application implements Serializable, NameHolder {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "applications_id")
+    @TableGenerator(name = "applications_id", table = "id_generators", pkColumnName = "sequence_name",
+            valueColumnName = "next_val", pkColumnValue = "applications", allocationSize = 50)
     private Long id;
 
     @Column
@@ -55,17 +63,28 @@ public class Application implements Serializable, NameHolder {
     @Column(name = "provisioning_hook_email")
     private String provisioningHookEmail;
 
+    @Column(name = "provisioning_connect_timeout_millis")
+    private Integer provisioningConnectTimeoutMillis;
+
+    @Column(name = "provisioning_read_timeout_millis")
+    private Integer provisioningReadTimeoutMillis;
+
     @ManyToOne(fetch = FetchType.EAGER)
     @JoinColumn(name = "institution_id")
     @JsonProperty(access = JsonProperty.Access.WRITE_ONLY)
     private Institution institution;
 
     @OneToMany(mappedBy = "application", orphanRemoval = true, fetch = FetchType.EAGER)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
     private Set<Role> roles = new HashSet<>();
 
     @Column(name = "update_role_put_method")
     private boolean updateRolePutMethod;
 
+    //Only the creation of a user - together with its memberships - is sent as a SCIM bulk request
+    @Column(name = "provisioning_bulk")
+    private boolean provisioningBulk;
+
     @Embedded
     private Auditable auditable = new Auditable();
 
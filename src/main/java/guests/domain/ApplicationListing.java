@@ -0,0 +1,75 @@
+package guests.domain;
+
+import lombok.Getter;
+
+import java.io.Serializable;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Read-only projection of an application for the application listings with the same JSON as the Application entity.
+ * The roles are added with one query for all the applications of the listing.
+ */
+@Getter
+public class ApplicationListing implements Serializable {
+
+    private final Long id;
+
+    private final String name;
+
+    private final String displayName;
+
+    private final String entityId;
+
+    private final String landingPage;
+
+    private final String provisioningHookUrl;
+
+    private final String provisioningHookUsername;
+
+    private final String provisioningHookPassword;
+
+    private final String provisioningHookEmail;
+
+    private final Integer provisioningConnectTimeoutMillis;
+
+    private final Integer provisioningReadTimeoutMillis;
+
+    private final boolean updateRolePutMethod;
+
+    private final boolean provisioningBulk;
+
+    private final RoleListing.Audit auditable;
+
+    private final InstitutionReference institution;
+
+    private final List<RoleListing> roles = new ArrayList<>();
+
+    public ApplicationListing(Long id, String name, String displayName, String entityId, String landingPage,
+                              String provisioningHookUrl, String provisioningHookUsername,
+                              String provisioningHookPassword, String provisioningHookEmail,
+                              Integer provisioningConnectTimeoutMillis, Integer provisioningReadTimeoutMillis,
+                              boolean updateRolePutMethod, boolean provisioningBulk, Instant createdAt,
+                              String createdBy, Instant updatedAt, String updatedBy, Long institutionId,
+                              String institutionDisplayName) {
+        this.id = id;
+        this.name = name;
+        this.displayName = displayName;
+        this.entityId = entityId;
+        this.landingPage = landingPage;
+        this.provisioningHookUrl = provisioningHookUrl;
+        this.provisioningHookUsername = provisioningHookUsername;
+        this.provisioningHookPassword = provisioningHookPassword;
+        this.provisioningHookEmail = provisioningHookEmail;
+        this.provisioningConnectTimeoutMillis = provisioningConnectTimeoutMillis;
+        this.provisioningReadTimeoutMillis = provisioningReadTimeoutMillis;
+        this.updateRolePutMethod = updateRolePutMethod;
+        this.provisioningBulk = provisioningBulk;
+        this.auditable = new RoleListing.Audit(createdAt, createdBy, updatedAt, updatedBy);
+        this.institution = new InstitutionReference(institutionId, institutionDisplayName);
+    }
+
+    public record InstitutionReference(Long id, String displayName) implements Serializable {
+    }
+}
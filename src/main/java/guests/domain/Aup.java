@@ -20,7 +20,9 @@ import java.util.Map;
 public class Aup implements Serializable {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "aups_id")
+    @TableGenerator(name = "aups_id", table = "id_generators", pkColumnName = "sequence_name",
+            valueColumnName = "next_val", pkColumnValue = "aups", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
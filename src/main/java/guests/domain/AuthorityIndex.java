@@ -0,0 +1,104 @@
+package guests.domain;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+
+/*
+ * Immutable index of the authority per institution id of a user. The institution ids are kept sorted in a primitive
+ * array, the authorities in a parallel array, so a check is a binary search over a handful of longs without boxing or
+ * streaming over the memberships. The super admin flag is computed once.
+ */
+public final class AuthorityIndex implements Serializable {
+
+    private static final Authority[] AUTHORITIES = Authority.values();
+
+    private final long[] institutionIdentifiers;
+    private final byte[] authorities;
+    private final boolean superAdmin;
+
+    private AuthorityIndex(long[] institutionIdentifiers, byte[] authorities) {
+        this.institutionIdentifiers = institutionIdentifiers;
+        this.authorities = authorities;
+        boolean containsSuperAdmin = false;
+        for (byte authority : authorities) {
+            containsSuperAdmin |= authority == Authority.SUPER_ADMIN.ordinal();
+        }
+        this.superAdmin = containsSuperAdmin;
+    }
+
+    public static AuthorityIndex of(Collection<InstitutionMembership> memberships) {
+        long[] institutionIdentifiers = new long[memberships.size()];
+        Authority[] authorities = new Authority[memberships.size()];
+        int i = 0;
+        for (InstitutionMembership membership : memberships) {
+            institutionIdentifiers[i] = membership.getInstitution().getId();
+            authorities[i++] = membership.getAuthority();
+        }
+        return of(institutionIdentifiers, authorities);
+    }
+
+    public static AuthorityIndex of(Map<Long, Authority> authorityPerInstitution) {
+        long[] institutionIdentifiers = new long[authorityPerInstitution.size()];
+        Authority[] authorities = new Authority[authorityPerInstitution.size()];
+        int i = 0;
+        for (Map.Entry<Long, Authority> entry : authorityPerInstitution.entrySet()) {
+            institutionIdentifiers[i] = entry.getKey();
+            authorities[i++] = entry.getValue();
+        }
+        return of(institutionIdentifiers, authorities);
+    }
+
+    private static AuthorityIndex of(long[] institutionIdentifiers, Authority[] authorities) {
+        //Insertion sort of the parallel arrays, users have only a few memberships
+        for (int i = 1; i < institutionIdentifiers.length; i++) {
+            long institutionId = institutionIdentifiers[i];
+            Authority authority = authorities[i];
+            int j = i - 1;
+            while (j >= 0 && institutionIdentifiers[j] > institutionId) {
+                institutionIdentifiers[j + 1] = institutionIdentifiers[j];
+                authorities[j + 1] = authorities[j];
+                j--;
+            }
+            institutionIdentifiers[j + 1] = institutionId;
+            authorities[j + 1] = authority;
+        }
+        byte[] ordinals = new byte[authorities.length];
+        for (int i = 0; i < authorities.length; i++) {
+            ordinals[i] = (byte) authorities[i].ordinal();
+        }
+        return new AuthorityIndex(institutionIdentifiers, ordinals);
+    }
+
+    public boolean isSuperAdmin() {
+        return superAdmin;
+    }
+
+    /*
+     * The authority for the institution or null if the user is not a member of the institution
+     */
+    public Authority authority(long institutionId) {
+        int index = Arrays.binarySearch(institutionIdentifiers, institutionId);
+        return index < 0 ? null : AUTHORITIES[authorities[index]];
+    }
+
+    public Optional<Authority> authorityByInstitution(long institutionId) {
+        return Optional.ofNullable(authority(institutionId));
+    }
+
+    public boolean hasEqualOrHigherRights(long institutionId, Authority required) {
+        Authority authority = authority(institutionId);
+        return authority != null && authority.hasEqualOrHigherRights(required);
+    }
+
+    public boolean hasHigherRights(long institutionId, Authority other) {
+        Authority authority = authority(institutionId);
+        return authority != null && authority.hasHigherRights(other);
+    }
+
+    public int size() {
+        return institutionIdentifiers.length;
+    }
+}
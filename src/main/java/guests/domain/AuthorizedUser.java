@@ -0,0 +1,23 @@
+package guests.domain;
+
+import java.util.Optional;
+
+/*
+ * The information needed to authorize the authenticated user, implemented by the full User aggregate and by the
+ * compact UserPrincipal of the request.
+ */
+public interface AuthorizedUser {
+
+    Long getId();
+
+    String getEduPersonPrincipalName();
+
+    String getName();
+
+    boolean isSuperAdmin();
+
+    Optional<Authority> authorityByInstitution(Long institutionId);
+
+    AuthorityIndex getAuthorityIndex();
+
+}
@@ -0,0 +1,29 @@
+package guests.domain;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import java.io.Serializable;
+import java.time.Instant;
+
+@Entity(name = "expired_invitation_counts")
+@NoArgsConstructor
+@Getter
+@Setter
+public class ExpiredInvitationCount implements Serializable {
+
+    @Id
+    @Column(name = "institution_id")
+    private Long institutionId;
+
+    @Column(name = "purged_count")
+    private long purgedCount;
+
+    @Column(name = "last_purged_at")
+    private Instant lastPurgedAt;
+
+}
@@ -0,0 +1,17 @@
+package guests.domain;
+
+/*
+ * Read-only projection of a user and one of its roles. For a user without any roles there is exactly one
+ * GroupMembership with only the userId.
+ */
+public interface GroupMembership {
+
+    Long getUserId();
+
+    String getRoleName();
+
+    String getApplicationName();
+
+    String getHomeInstitution();
+
+}
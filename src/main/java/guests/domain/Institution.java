@@ -2,9 +2,13 @@ package guests.domain;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import guests.cache.ReferenceDataCacheListener;
+import guests.voot.VootMembershipsCacheListener;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.springframework.util.StringUtils;
 
 import javax.persistence.*;
@@ -17,11 +21,15 @@ import java.util.Set;
 @NoArgsConstructor
 @Getter
 @Setter
-@EntityListeners(NameHolderListener.class)
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@EntityListeners({NameHolderListener.class, VootMembershipsCacheListener.class, ReferenceDataCacheListener.class})
 public class Institution implements Serializable, NameHolder {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "institutions_id")
+    @TableGenerator(name = "institutions_id", table = "id_generators", pkColumnName = "sequence_name",
+            valueColumnName = "next_val", pkColumnValue = "institutions", allocationSize = 50)
     private Long id;
 
     @Column(name = "entity_id")
@@ -1,6 +1,7 @@
 package guests.domain;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import guests.usercount.UserCountListener;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
@@ -13,10 +14,13 @@ import java.io.Serializable;
 @NoArgsConstructor
 @Getter
 @Setter
+@EntityListeners(UserCountListener.class)
 public class InstitutionMembership implements Serializable {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "institution_memberships_id")
+    @TableGenerator(name = "institution_memberships_id", table = "id_generators", pkColumnName = "sequence_name",
+            valueColumnName = "next_val", pkColumnValue = "institution_memberships", allocationSize = 50)
     private Long id;
 
     @Enumerated(EnumType.STRING)
@@ -20,7 +20,9 @@ import java.util.*;
 public class Invitation implements Serializable {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "invitations_id")
+    @TableGenerator(name = "invitations_id", table = "id_generators", pkColumnName = "sequence_name",
+            valueColumnName = "next_val", pkColumnValue = "invitations", allocationSize = 50)
     private Long id;
 
     @Enumerated(EnumType.STRING)
@@ -0,0 +1,34 @@
+package guests.domain;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.data.domain.Sort;
+
+import java.time.Instant;
+
+/*
+ * Request parameters of the paginated invitation listings. The expiry window is inclusive and both bounds are optional.
+ */
+@NoArgsConstructor
+@Getter
+@Setter
+public class InvitationFilter {
+
+    private Status status;
+
+    private Instant expiresAfter;
+
+    private Instant expiresBefore;
+
+    private Long inviterId;
+
+    private InvitationSort sort = InvitationSort.CREATED_AT;
+
+    private Sort.Direction direction = Sort.Direction.DESC;
+
+    private String after;
+
+    private int size = 50;
+
+}
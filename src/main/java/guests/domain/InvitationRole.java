@@ -17,7 +17,9 @@ import java.time.Instant;
 public class InvitationRole implements Serializable {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "invitation_roles_id")
+    @TableGenerator(name = "invitation_roles_id", table = "id_generators", pkColumnName = "sequence_name",
+            valueColumnName = "next_val", pkColumnValue = "invitation_roles", allocationSize = 50)
     private Long id;
 
     @Column(name = "end_date")
@@ -0,0 +1,5 @@
+package guests.domain;
+
+public enum InvitationSort {
+    CREATED_AT, EXPIRY_DATE, EMAIL
+}
@@ -0,0 +1,57 @@
+package guests.domain;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.io.Serializable;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Read-only projection of an invitation for the paginated listings. Only the name and email of the inviter are
+ * included and the roles are flattened.
+ */
+@Getter
+public class InvitationSummary implements Serializable {
+
+    private final Long id;
+
+    private final Authority intendedAuthority;
+
+    private final Status status;
+
+    private final String email;
+
+    private final Instant createdAt;
+
+    private final Instant expiryDate;
+
+    private final Long inviterId;
+
+    private final String inviterName;
+
+    private final String inviterEmail;
+
+    @Setter
+    private List<RoleSummary> roles = new ArrayList<>();
+
+    public InvitationSummary(Long id, Authority intendedAuthority, Status status, String email, Instant createdAt,
+                             Instant expiryDate, Long inviterId, String inviterGivenName, String inviterFamilyName,
+                             String inviterEmail) {
+        this.id = id;
+        this.intendedAuthority = intendedAuthority;
+        this.status = status;
+        this.email = email;
+        this.createdAt = createdAt;
+        this.expiryDate = expiryDate;
+        this.inviterId = inviterId;
+        this.inviterName = String.format("%s %s",
+                inviterGivenName == null ? "" : inviterGivenName,
+                inviterFamilyName == null ? "" : inviterFamilyName).trim();
+        this.inviterEmail = inviterEmail;
+    }
+
+    public record RoleSummary(Long roleId, String roleName, String applicationName, Instant endDate) implements Serializable {
+    }
+}
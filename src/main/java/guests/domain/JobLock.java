@@ -0,0 +1,37 @@
+package guests.domain;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.validation.constraints.NotNull;
+import java.io.Serializable;
+import java.time.Instant;
+
+@Entity(name = "job_locks")
+@NoArgsConstructor
+@Getter
+@Setter
+public class JobLock implements Serializable {
+
+    @Id
+    private String name;
+
+    @Column
+    private String owner;
+
+    @Column(name = "locked_at")
+    private Instant lockedAt;
+
+    @Column(name = "locked_until")
+    @NotNull
+    private Instant lockedUntil;
+
+    public JobLock(String name) {
+        this.name = name;
+        this.lockedUntil = Instant.EPOCH;
+    }
+}
@@ -0,0 +1,21 @@
+package guests.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.io.Serializable;
+import java.util.List;
+
+/*
+ * One page of a keyset paginated listing. The next cursor is passed as the 'after' parameter to get the next page and
+ * is null on the last page.
+ */
+@AllArgsConstructor
+@Getter
+public class KeysetPage<T> implements Serializable {
+
+    private final List<T> results;
+
+    private final String next;
+
+}
@@ -0,0 +1,66 @@
+package guests.domain;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import javax.persistence.*;
+import javax.validation.constraints.NotNull;
+import java.io.Serializable;
+import java.time.Instant;
+
+@Entity(name = "mail_queue")
+@NoArgsConstructor
+@Getter
+@Setter
+public class QueuedMail implements Serializable {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Lob
+    @Column(name = "mime_message")
+    @NotNull
+    private byte[] mimeMessage;
+
+    @Column
+    private String recipients;
+
+    @Column
+    private String subject;
+
+    @Column
+    private int attempts;
+
+    @Column(name = "next_attempt_at")
+    @NotNull
+    private Instant nextAttemptAt;
+
+    @Column
+    private boolean failed;
+
+    @Column(name = "last_error")
+    private String lastError;
+
+    @Column(name = "created_at")
+    private Instant createdAt;
+
+    public QueuedMail(byte[] mimeMessage, String recipients, String subject) {
+        this.mimeMessage = mimeMessage;
+        this.recipients = recipients;
+        this.subject = subject;
+        this.createdAt = Instant.now();
+        this.nextAttemptAt = this.createdAt;
+    }
+
+    @Override
+    public String toString() {
+        return "QueuedMail{" +
+                "id=" + id +
+                ", recipients='" + recipients + '\'' +
+                ", subject='" + subject + '\'' +
+                ", attempts=" + attempts +
+                '}';
+    }
+}
@@ -3,10 +3,14 @@ package guests.domain;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import guests.cache.ReferenceDataCacheListener;
+import guests.voot.VootMembershipsCacheListener;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import org.hibernate.LazyInitializationException;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import javax.persistence.*;
 import javax.validation.constraints.NotNull;
@@ -18,11 +22,15 @@ import java.util.Map;
 @NoArgsConstructor
 @Getter
 @Setter
-@EntityListeners(NameHolderListener.class)
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@EntityListeners({NameHolderListener.class, VootMembershipsCacheListener.class, ReferenceDataCacheListener.class})
 public class Role implements Serializable, NameHolder, ServiceProviderIdentifier {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "roles_id")
+    @TableGenerator(name = "roles_id", table = "id_generators", pkColumnName = "sequence_name",
+            valueColumnName = "next_val", pkColumnValue = "roles", allocationSize = 50)
     private Long id;
 
     @Column
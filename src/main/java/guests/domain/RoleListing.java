@@ -0,0 +1,57 @@
+package guests.domain;
+
+import lombok.Getter;
+
+import java.io.Serializable;
+import java.time.Instant;
+
+/*
+ * Read-only projection of a role for the role listings with the same JSON as the Role entity. The application and
+ * institution references are populated from the query instead of the lazy associations.
+ */
+@Getter
+public class RoleListing implements Serializable {
+
+    private final Long id;
+
+    private final String name;
+
+    private final String displayName;
+
+    private final String serviceProviderId;
+
+    private final Authority authority;
+
+    private final boolean instantAvailable;
+
+    private final Integer defaultExpiryDays;
+
+    private final Audit auditable;
+
+    private final ApplicationReference application;
+
+    public RoleListing(Long id, String name, String displayName, String serviceProviderId, Authority authority,
+                       boolean instantAvailable, Integer defaultExpiryDays, Instant createdAt, String createdBy,
+                       Instant updatedAt, String updatedBy, Long applicationId, String applicationName,
+                       String applicationLandingPage, Long institutionId) {
+        this.id = id;
+        this.name = name;
+        this.displayName = displayName;
+        this.serviceProviderId = serviceProviderId;
+        this.authority = authority;
+        this.instantAvailable = instantAvailable;
+        this.defaultExpiryDays = defaultExpiryDays;
+        this.auditable = new Audit(createdAt, createdBy, updatedAt, updatedBy);
+        this.application = new ApplicationReference(applicationId, applicationName, applicationLandingPage,
+                new InstitutionReference(institutionId));
+    }
+
+    public record Audit(Instant createdAt, String createdBy, Instant updatedAt, String updatedBy) implements Serializable {
+    }
+
+    public record ApplicationReference(Long id, String name, String landingPage, InstitutionReference institution) implements Serializable {
+    }
+
+    public record InstitutionReference(Long id) implements Serializable {
+    }
+}
@@ -19,7 +19,9 @@ import java.time.Instant;
 public class SCIMFailure implements Serializable {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "scim_failures_id")
+    @TableGenerator(name = "scim_failures_id", table = "id_generators", pkColumnName = "sequence_name",
+            valueColumnName = "next_val", pkColumnValue = "scim_failures", allocationSize = 50)
     private Long id;
 
     @Column
@@ -46,6 +48,15 @@ public class SCIMFailure implements Serializable {
     @Column(name = "created_at")
     private Instant createdAt;
 
+    @Column
+    private int attempts;
+
+    @Column(name = "next_attempt_at")
+    private Instant nextAttemptAt;
+
+    @Column
+    private boolean parked;
+
     public SCIMFailure(String message, String api, String httpMethod, String uri, String serviceProviderId, Application application) {
         this.message = message;
         this.api = api;
@@ -55,4 +66,21 @@ public class SCIMFailure implements Serializable {
         this.application = application;
         this.createdAt = Instant.now();
     }
+
+    /*
+     * Unmanaged copy with another message, e.g. the indented message for display
+     */
+    public SCIMFailure(SCIMFailure scimFailure, String message) {
+        this.id = scimFailure.getId();
+        this.message = message;
+        this.api = scimFailure.getApi();
+        this.httpMethod = scimFailure.getHttpMethod();
+        this.uri = scimFailure.getUri();
+        this.serviceProviderId = scimFailure.getServiceProviderId();
+        this.application = scimFailure.getApplication();
+        this.createdAt = scimFailure.getCreatedAt();
+        this.attempts = scimFailure.getAttempts();
+        this.nextAttemptAt = scimFailure.getNextAttemptAt();
+        this.parked = scimFailure.isParked();
+    }
 }
@@ -0,0 +1,71 @@
+package guests.domain;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+import javax.persistence.*;
+import javax.validation.constraints.NotNull;
+import java.io.Serializable;
+import java.time.Instant;
+
+/*
+ * Pending SCIM provisioning event. Create, update and membership events only reference the user and / or role as
+ * they are read again when the event is dispatched. Delete events contain a snapshot of the request, because the
+ * user or role no longer exists when the event is dispatched.
+ */
+@Entity(name = "scim_outbox_events")
+@NoArgsConstructor
+@Getter
+@Setter
+@ToString
+public class SCIMOutboxEvent implements Serializable {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "event_type")
+    @Enumerated(EnumType.STRING)
+    @NotNull
+    private SCIMOutboxEventType eventType;
+
+    @Column(name = "application_id")
+    @NotNull
+    private Long applicationId;
+
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "role_id")
+    private Long roleId;
+
+    @Column(name = "operation_type")
+    private String operationType;
+
+    @Column(name = "service_provider_id")
+    private String serviceProviderId;
+
+    @Column
+    @ToString.Exclude
+    private String message;
+
+    @Column(name = "created_at")
+    private Instant createdAt;
+
+    @Column
+    private int attempts;
+
+    @Column(name = "next_attempt_at")
+    private Instant nextAttemptAt;
+
+    @Column
+    private boolean parked;
+
+    public SCIMOutboxEvent(SCIMOutboxEventType eventType, Long applicationId) {
+        this.eventType = eventType;
+        this.applicationId = applicationId;
+        this.createdAt = Instant.now();
+    }
+}
@@ -0,0 +1,7 @@
+package guests.domain;
+
+public enum SCIMOutboxEventType {
+
+    USER_CREATE, USER_UPDATE, USER_DELETE, ROLE_CREATE, ROLE_MEMBERSHIP, ROLE_DELETE
+
+}
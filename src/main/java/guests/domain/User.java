@@ -3,6 +3,7 @@ package guests.domain;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import guests.exception.NotFoundException;
+import guests.voot.VootMembershipsCacheListener;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
@@ -13,16 +14,20 @@ import javax.validation.constraints.NotNull;
 import java.io.Serializable;
 import java.time.Instant;
 import java.util.*;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 @Entity(name = "users")
 @NoArgsConstructor
 @Getter
 @Setter
-public class User implements Serializable {
+@EntityListeners(VootMembershipsCacheListener.class)
+public class User implements Serializable, AuthorizedUser {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "users_id")
+    @TableGenerator(name = "users_id", table = "id_generators", pkColumnName = "sequence_name",
+            valueColumnName = "next_val", pkColumnValue = "users", allocationSize = 50)
     private Long id;
 
     @Column(name = "eduperson_principal_name")
@@ -145,6 +150,11 @@ public class User implements Serializable {
                 .findFirst();
     }
 
+    @JsonIgnore
+    public AuthorityIndex getAuthorityIndex() {
+        return AuthorityIndex.of(this.institutionMemberships);
+    }
+
     @JsonIgnore
     public boolean isSuperAdmin() {
         return this.institutionMemberships.stream().anyMatch(membership -> membership.getAuthority().equals(Authority.SUPER_ADMIN));
@@ -183,19 +193,25 @@ public class User implements Serializable {
         getUserRoles().removeIf(userRole -> !userRole.getRole().getInstitutionId().equals(institutionId));
     }
 
+    /*
+     * Variant of removeOtherInstitutionData for the listings of an institution, with the sorted ids of the roles of
+     * the institution
+     */
+    @JsonIgnore
+    public void retainInstitutionData(long institutionId, long[] sortedRoleIdentifiers) {
+        getInstitutionMemberships().removeIf(membership -> membership.getInstitution().getId() != institutionId);
+        getUserRoles().removeIf(userRole -> Arrays.binarySearch(sortedRoleIdentifiers, userRole.getRole().getId()) < 0);
+    }
+
     @JsonIgnore
-    public void removeOtherInstitutionData(User authenticatedUser) {
-        Set<Long> institutionIdentifiers = authenticatedUser.getInstitutionMemberships().stream()
-                .filter(membership -> membership.getAuthority().hasEqualOrHigherRights(
-                        this.institutionMemberships.stream()
-                                .filter(m -> m.getInstitution().getId().equals(membership.getInstitution().getId()))
-                                .map(m -> m.getAuthority())
-                                .findFirst().orElse(Authority.GUEST)
-                ))
-                .map(membership -> membership.getInstitution().getId())
-                .collect(Collectors.toSet());
-        getInstitutionMemberships().removeIf(membership -> !institutionIdentifiers.contains(membership.getInstitution().getId()));
-        getUserRoles().removeIf(userRole -> !institutionIdentifiers.contains(userRole.getRole().getInstitutionId()));
+    public void removeOtherInstitutionData(AuthorizedUser authenticatedUser) {
+        AuthorityIndex authorityIndex = authenticatedUser.getAuthorityIndex();
+        Map<Long, Authority> authorities = this.institutionMemberships.stream()
+                .collect(Collectors.toMap(membership -> membership.getInstitution().getId(), InstitutionMembership::getAuthority, (first, second) -> first));
+        Predicate<Long> allowed = institutionId -> authorityIndex.hasEqualOrHigherRights(institutionId,
+                authorities.getOrDefault(institutionId, Authority.GUEST));
+        getInstitutionMemberships().removeIf(membership -> !allowed.test(membership.getInstitution().getId()));
+        getUserRoles().removeIf(userRole -> !allowed.test(userRole.getRole().getInstitutionId()));
     }
 
     private String toScimString() {
@@ -0,0 +1,30 @@
+package guests.domain;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.data.domain.Sort;
+
+/*
+ * Request parameters of the paginated user listings. The name and email are matched as case-insensitive substrings.
+ */
+@NoArgsConstructor
+@Getter
+@Setter
+public class UserFilter {
+
+    private String name;
+
+    private String email;
+
+    private Authority authority;
+
+    private UserSort sort = UserSort.FAMILY_NAME;
+
+    private Sort.Direction direction = Sort.Direction.ASC;
+
+    private String after;
+
+    private int size = 50;
+
+}
@@ -0,0 +1,60 @@
+package guests.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.io.Serializable;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+/*
+ * Immutable principal of an authenticated request with the authority per institution id. The full User aggregate is
+ * only loaded by the handlers which need it.
+ */
+@AllArgsConstructor
+@Getter
+public class UserPrincipal implements AuthorizedUser, Serializable {
+
+    private final Long id;
+
+    private final String eduPersonPrincipalName;
+
+    private final String givenName;
+
+    private final String familyName;
+
+    private final String email;
+
+    private final AuthorityIndex authorityIndex;
+
+    public UserPrincipal(User user) {
+        this(user.getId(),
+                user.getEduPersonPrincipalName(),
+                user.getGivenName(),
+                user.getFamilyName(),
+                user.getEmail(),
+                AuthorityIndex.of(user.getInstitutionMemberships()));
+    }
+
+    @Override
+    public String getName() {
+        return String.format("%s %s", givenName, familyName);
+    }
+
+    @Override
+    public boolean isSuperAdmin() {
+        return authorityIndex.isSuperAdmin();
+    }
+
+    @Override
+    public Optional<Authority> authorityByInstitution(Long institutionId) {
+        return authorityIndex.authorityByInstitution(institutionId);
+    }
+
+    public boolean hasChanged(Map<String, Object> tokenAttributes) {
+        return !Objects.equals(givenName, tokenAttributes.get("given_name")) ||
+                !Objects.equals(familyName, tokenAttributes.get("family_name")) ||
+                !Objects.equals(email, tokenAttributes.get("email"));
+    }
+}
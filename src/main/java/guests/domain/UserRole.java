@@ -1,6 +1,8 @@
 package guests.domain;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
+import guests.usercount.UserCountListener;
+import guests.voot.VootMembershipsCacheListener;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
@@ -13,10 +15,13 @@ import java.time.Instant;
 @NoArgsConstructor
 @Getter
 @Setter
+@EntityListeners({VootMembershipsCacheListener.class, UserCountListener.class})
 public class UserRole implements Serializable, ServiceProviderIdentifier {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "user_roles_id")
+    @TableGenerator(name = "user_roles_id", table = "id_generators", pkColumnName = "sequence_name",
+            valueColumnName = "next_val", pkColumnValue = "user_roles", allocationSize = 50)
     private Long id;
 
     @Column(name = "service_provider_id")
@@ -0,0 +1,5 @@
+package guests.domain;
+
+public enum UserSort {
+    FAMILY_NAME, GIVEN_NAME, EMAIL, EDU_PERSON_PRINCIPAL_NAME, LAST_ACTIVITY
+}
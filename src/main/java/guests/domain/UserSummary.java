@@ -0,0 +1,33 @@
+package guests.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.io.Serializable;
+import java.time.Instant;
+
+/*
+ * Read-only projection of a user for the paginated listings. The authority is the membership of the user in the
+ * institution of the listing, if any.
+ */
+@AllArgsConstructor
+@Getter
+public class UserSummary implements Serializable {
+
+    private final Long id;
+
+    private final String eduPersonPrincipalName;
+
+    private final String givenName;
+
+    private final String familyName;
+
+    private final String email;
+
+    private final Instant createdAt;
+
+    private final Instant lastActivity;
+
+    private final Authority authority;
+
+}
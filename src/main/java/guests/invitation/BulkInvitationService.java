@@ -0,0 +1,163 @@
+package guests.invitation;
+
+import guests.config.HashGenerator;
+import guests.domain.*;
+import guests.exception.NotFoundException;
+import guests.mail.MailBox;
+import guests.repository.InvitationRepository;
+import guests.repository.RoleRepository;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.hibernate.Hibernate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/*
+ * Creates invitations for large numbers of e-mail addresses in the background. The roles are resolved once per job
+ * and the invitations and invitation_roles are inserted with JDBC batches, each batch in its own transaction together
+ * with the queued invitation mails. The jobs are kept in memory on the node that started them.
+ */
+@Service
+public class BulkInvitationService {
+
+    private static final Log LOG = LogFactory.getLog(BulkInvitationService.class);
+
+    private final RoleRepository roleRepository;
+    private final InvitationRepository invitationRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final MailBox mailBox;
+    private final ThreadPoolTaskExecutor executor;
+    private final int batchSize;
+    private final Duration jobRetention;
+
+    private final Map<String, InvitationJob> jobs = new ConcurrentHashMap<>();
+
+    @Autowired
+    public BulkInvitationService(RoleRepository roleRepository,
+                                 InvitationRepository invitationRepository,
+                                 PlatformTransactionManager transactionManager,
+                                 MailBox mailBox,
+                                 @Value("${invitation.bulk.pool-size}") int poolSize,
+                                 @Value("${invitation.bulk.batch-size}") int batchSize,
+                                 @Value("${invitation.bulk.job-retention-minutes}") long jobRetentionMinutes) {
+        this.roleRepository = roleRepository;
+        this.invitationRepository = invitationRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.mailBox = mailBox;
+        this.batchSize = batchSize;
+        this.jobRetention = Duration.ofMinutes(jobRetentionMinutes);
+
+        this.executor = new ThreadPoolTaskExecutor();
+        this.executor.setCorePoolSize(poolSize);
+        this.executor.setMaxPoolSize(poolSize);
+        this.executor.setThreadNamePrefix("bulk-invitation-");
+        this.executor.initialize();
+    }
+
+    public InvitationJob submit(User inviter, Institution institution, Invitation invitationData, Collection<String> emails) {
+        InvitationJob job = new InvitationJob(emails.size(), institution.getId());
+        jobs.put(job.getId(), job);
+        List<String> emailList = new ArrayList<>(emails);
+        executor.execute(() -> run(job, inviter, institution, invitationData, emailList));
+        return job;
+    }
+
+    public Optional<InvitationJob> job(String id) {
+        return Optional.ofNullable(jobs.get(id));
+    }
+
+    @Scheduled(fixedDelayString = "${invitation.bulk.cleanup-delay-millis}")
+    public void removeFinishedJobs() {
+        Instant threshold = Instant.now().minus(jobRetention);
+        jobs.values().removeIf(job -> job.isDone() && job.getFinishedAt().isBefore(threshold));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private void run(InvitationJob job, User inviter, Institution institution, Invitation invitationData, List<String> emails) {
+        try {
+            List<InvitationRole> invitationRoles = resolveRoles(invitationData);
+            for (int i = 0; i < emails.size(); i += batchSize) {
+                List<String> batch = emails.subList(i, Math.min(i + batchSize, emails.size()));
+                try {
+                    transactionTemplate.executeWithoutResult(status ->
+                            insertBatch(inviter, institution, invitationData, invitationRoles, batch));
+                    job.batchProcessed(batch.size(), 0);
+                } catch (RuntimeException e) {
+                    LOG.error(String.format("Error in bulk invitation job %s for %s invites", job.getId(), batch.size()), e);
+                    job.batchProcessed(0, batch.size());
+                }
+            }
+            LOG.info(String.format("Bulk invitation job %s for institution %s by %s: %s invites sent, %s failed",
+                    job.getId(),
+                    institution.getHomeInstitution(),
+                    inviter.getName(),
+                    job.getProcessed(),
+                    job.getFailed()));
+        } catch (RuntimeException e) {
+            LOG.error(String.format("Bulk invitation job %s failed", job.getId()), e);
+            job.batchProcessed(0, job.getTotal() - job.getProcessed() - job.getFailed());
+        } finally {
+            job.finish();
+        }
+    }
+
+    /*
+     * The roles - including the applications for the mail template - are loaded once for the whole job
+     */
+    private List<InvitationRole> resolveRoles(Invitation invitationData) {
+        return transactionTemplate.execute(status -> invitationData.getRoles().stream()
+                .map(invitationRole -> {
+                    Role role = roleRepository.findById(invitationRole.getRole().getId()).orElseThrow(NotFoundException::new);
+                    Hibernate.initialize(role.getApplication());
+                    return new InvitationRole(role, invitationRole.getEndDate());
+                })
+                .collect(Collectors.toList()));
+    }
+
+    private void insertBatch(User inviter,
+                             Institution institution,
+                             Invitation invitationData,
+                             List<InvitationRole> invitationRoles,
+                             List<String> emails) {
+        List<Invitation> invitations = emails.stream()
+                .map(email -> {
+                    Invitation invitation = new Invitation(
+                            invitationData.getIntendedAuthority(),
+                            Status.OPEN,
+                            HashGenerator.generateHash(),
+                            inviter,
+                            institution,
+                            email);
+                    invitation.setMessage(invitationData.getMessage());
+                    invitation.setEnforceEmailEquality(invitationData.isEnforceEmailEquality());
+                    if (invitationData.getExpiryDate() != null) {
+                        invitation.setExpiryDate(invitationData.getExpiryDate());
+                    }
+                    invitationRoles.forEach(invitationRole ->
+                            invitation.addInvitationRole(new InvitationRole(invitationRole.getRole(), invitationRole.getEndDate())));
+                    return invitation;
+                })
+                .collect(Collectors.toList());
+
+        //The pooled ids enable Hibernate to insert the invitations and invitation_roles in JDBC batches
+        invitationRepository.saveAll(invitations);
+
+        invitations.forEach(invitation -> mailBox.sendInviteMail(inviter, invitation));
+    }
+}
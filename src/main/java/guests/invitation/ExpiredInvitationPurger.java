@@ -0,0 +1,99 @@
+package guests.invitation;
+
+import guests.cron.ScheduledJobRunner;
+import guests.repository.ExpiredInvitationCountRepository;
+import guests.repository.InvitationRepository;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.Period;
+import java.util.List;
+
+/*
+ * Deletes the invitations which expired more than retentionDays ago, in chunks with a transaction per chunk. The
+ * invitation_roles are removed by the foreign key cascade. Optionally the number of purged invitations is added to the
+ * expired_invitation_counts of the institution.
+ */
+@Component
+public class ExpiredInvitationPurger {
+
+    private static final Log LOG = LogFactory.getLog(ExpiredInvitationPurger.class);
+
+    private final InvitationRepository invitationRepository;
+    private final ExpiredInvitationCountRepository expiredInvitationCountRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ScheduledJobRunner scheduledJobRunner;
+    private final Period retention;
+    private final int chunkSize;
+    private final boolean archiveCounts;
+    private final Duration lockAtLeastFor;
+    private final boolean cronJobResponsible;
+
+    @Autowired
+    public ExpiredInvitationPurger(InvitationRepository invitationRepository,
+                                   ExpiredInvitationCountRepository expiredInvitationCountRepository,
+                                   PlatformTransactionManager transactionManager,
+                                   ScheduledJobRunner scheduledJobRunner,
+                                   @Value("${invitation.purge.retention-days}") int retentionDays,
+                                   @Value("${invitation.purge.chunk-size}") int chunkSize,
+                                   @Value("${invitation.purge.archive-counts}") boolean archiveCounts,
+                                   @Value("${cron.lock-at-least-for-minutes}") long lockAtLeastForMinutes,
+                                   @Value("${cron.node-cron-job-responsible}") boolean cronJobResponsible) {
+        this.invitationRepository = invitationRepository;
+        this.expiredInvitationCountRepository = expiredInvitationCountRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.scheduledJobRunner = scheduledJobRunner;
+        this.retention = Period.ofDays(retentionDays);
+        this.chunkSize = chunkSize;
+        this.archiveCounts = archiveCounts;
+        this.lockAtLeastFor = Duration.ofMinutes(lockAtLeastForMinutes);
+        this.cronJobResponsible = cronJobResponsible;
+    }
+
+    @Scheduled(cron = "${invitation.purge.cron-expression}")
+    public void purge() {
+        if (!cronJobResponsible) {
+            return;
+        }
+        scheduledJobRunner.run("expired-invitation-purger", lockAtLeastFor, this::purgeExpiredInvitations);
+    }
+
+    /*
+     * A failing chunk ends the run, the remaining invitations are purged in the next run
+     */
+    public int purgeExpiredInvitations() {
+        Instant threshold = Instant.now().minus(retention);
+        int purged = 0;
+        List<Long> identifiers;
+        do {
+            identifiers = invitationRepository.findIdsByExpiryDateBefore(threshold, PageRequest.of(0, chunkSize));
+            if (identifiers.isEmpty()) {
+                break;
+            }
+            List<Long> chunk = identifiers;
+            transactionTemplate.executeWithoutResult(status -> purgeChunk(chunk));
+            purged += chunk.size();
+        } while (identifiers.size() == chunkSize && scheduledJobRunner.renew());
+
+        LOG.info(String.format("Purged %s invitations which expired before %s", purged, threshold));
+        return purged;
+    }
+
+    private void purgeChunk(List<Long> identifiers) {
+        if (archiveCounts) {
+            Instant now = Instant.now();
+            invitationRepository.countByInstitution(identifiers).forEach(row ->
+                    expiredInvitationCountRepository.increment((Long) row[0], (Long) row[1], now));
+        }
+        invitationRepository.deleteByIdIn(identifiers);
+    }
+}
@@ -0,0 +1,73 @@
+package guests.invitation;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Getter;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/*
+ * Progress of a bulk invitation. Listeners - e.g. an SSE stream - are notified after every processed batch and
+ * immediately after subscribing.
+ */
+@Getter
+public class InvitationJob {
+
+    public enum Status {
+        RUNNING, COMPLETED, FAILED
+    }
+
+    private final String id = UUID.randomUUID().toString();
+    private final int total;
+    private final Instant createdAt = Instant.now();
+    private volatile Status status = Status.RUNNING;
+    private volatile int processed;
+    private volatile int failed;
+    private volatile Instant finishedAt;
+
+    @JsonIgnore
+    private final Long institutionId;
+
+    @JsonIgnore
+    private final List<Consumer<InvitationJob>> listeners = new CopyOnWriteArrayList<>();
+
+    public InvitationJob(int total, Long institutionId) {
+        this.total = total;
+        this.institutionId = institutionId;
+    }
+
+    public synchronized void subscribe(Consumer<InvitationJob> listener) {
+        listener.accept(this);
+        if (!isDone()) {
+            listeners.add(listener);
+        }
+    }
+
+    public void unsubscribe(Consumer<InvitationJob> listener) {
+        listeners.remove(listener);
+    }
+
+    public boolean isDone() {
+        return status != Status.RUNNING;
+    }
+
+    synchronized void batchProcessed(int succeeded, int failures) {
+        this.processed += succeeded;
+        this.failed += failures;
+        notifyListeners();
+    }
+
+    synchronized void finish() {
+        this.status = failed == total && total > 0 ? Status.FAILED : Status.COMPLETED;
+        this.finishedAt = Instant.now();
+        notifyListeners();
+        listeners.clear();
+    }
+
+    private void notifyListeners() {
+        listeners.forEach(listener -> listener.accept(this));
+    }
+}
@@ -1,10 +1,9 @@
 package guests.mail;
 
-import com.github.mustachejava.DefaultMustacheFactory;
-import com.github.mustachejava.MustacheFactory;
 import guests.domain.Invitation;
 import guests.domain.SCIMFailure;
 import guests.domain.User;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.SneakyThrows;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -13,13 +12,15 @@ import org.springframework.mail.javamail.MimeMessageHelper;
 
 import javax.mail.MessagingException;
 import javax.mail.internet.MimeMessage;
-import java.io.StringWriter;
 import java.util.HashMap;
 import java.util.Map;
 
 public class MailBox {
 
     private final JavaMailSender mailSender;
+    private final MailQueue mailQueue;
+    private final MailTemplates mailTemplates;
+    private final MeterRegistry meterRegistry;
     private final String baseUrl;
     private final String emailFrom;
     private final String languageCode = "en";
@@ -28,10 +29,18 @@ public class MailBox {
 
     private static final Log LOG = LogFactory.getLog(MailBox.class);
 
-    private final MustacheFactory mustacheFactory = new DefaultMustacheFactory("templates");
-
-    public MailBox(JavaMailSender mailSender, String emailFrom, String baseUrl, String scimFailureEmail, String environment) {
+    public MailBox(JavaMailSender mailSender,
+                   MailQueue mailQueue,
+                   MailTemplates mailTemplates,
+                   MeterRegistry meterRegistry,
+                   String emailFrom,
+                   String baseUrl,
+                   String scimFailureEmail,
+                   String environment) {
         this.mailSender = mailSender;
+        this.mailQueue = mailQueue;
+        this.mailTemplates = mailTemplates;
+        this.meterRegistry = meterRegistry;
         this.emailFrom = emailFrom;
         this.baseUrl = baseUrl;
         this.scimFailureEmail = scimFailureEmail;
@@ -55,7 +64,10 @@ public class MailBox {
     }
 
     public void sendProvisioningMail(String title, String userRequest, String email) {
-        LOG.info(String.format("Send email SCIM request %s %s to %s", title, userRequest, email));
+        LOG.info(String.format("Send email SCIM request %s to %s", title, email));
+        if (LOG.isDebugEnabled()) {
+            LOG.debug(String.format("Email SCIM request body %s", userRequest));
+        }
 
         Map<String, Object> variables = new HashMap<>();
         variables.put("userRequest", userRequest);
@@ -86,6 +98,7 @@ public class MailBox {
         helper.setTo(to);
         helper.setFrom(emailFrom);
         doSendMail(message);
+        meterRegistry.counter("mail.messages", "template", templateName).increment();
     }
 
     protected void setText(String plainText, String htmlText, MimeMessageHelper helper) throws MessagingException {
@@ -93,11 +106,11 @@ public class MailBox {
     }
 
     protected void doSendMail(MimeMessage message) {
-        new Thread(() -> mailSender.send(message)).start();
+        mailQueue.enqueue(message);
     }
 
     private String mailTemplate(String templateName, Map<String, Object> context) {
-        return mustacheFactory.compile(templateName).execute(new StringWriter(), context).toString();
+        return mailTemplates.render(templateName, context);
     }
 
 }
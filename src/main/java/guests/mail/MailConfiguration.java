@@ -1,5 +1,6 @@
 package guests.mail;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.mail.MailProperties;
@@ -26,20 +27,34 @@ public class MailConfiguration {
     @Value("${email.environment}")
     private String environment;
 
+    @Value("${email.templates-directory}")
+    private String templatesDirectory;
+
     @Autowired
     private JavaMailSender mailSender;
 
+    @Autowired
+    private MailQueue mailQueue;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Bean
+    public MailTemplates mailTemplates() {
+        return new MailTemplates(templatesDirectory, meterRegistry);
+    }
+
     @Bean
     @Profile({"!test", "!dev"})
     public MailBox mailSenderProd() {
-        return new MailBox(mailSender, emailFrom, baseUrl, scimFailureEmail, environment);
+        return new MailBox(mailSender, mailQueue, mailTemplates(), meterRegistry, emailFrom, baseUrl, scimFailureEmail, environment);
     }
 
     @Bean
     @Profile({"test", "dev"})
     @Primary
     public MailBox mailSenderDev() {
-        return new MockMailBox(mailSender, emailFrom, baseUrl, scimFailureEmail, environment);
+        return new MockMailBox(mailSender, mailQueue, mailTemplates(), meterRegistry, emailFrom, baseUrl, scimFailureEmail, environment);
     }
 
 
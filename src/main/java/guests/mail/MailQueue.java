@@ -0,0 +1,242 @@
+package guests.mail;
+
+import guests.cron.ScheduledJobRunner;
+import guests.domain.QueuedMail;
+import guests.repository.QueuedMailRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.SneakyThrows;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PreDestroy;
+import javax.mail.Address;
+import javax.mail.MessagingException;
+import javax.mail.internet.MimeMessage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/*
+ * Outgoing mails are stored in the mail_queue table in the transaction of the caller and sent after the commit by a
+ * bounded pool of senders. Each sender delivers its share of a batch over one SMTP connection. Failed mails are retried
+ * with an exponential backoff and marked as failed after maxAttempts. One node at a time sends the queue.
+ */
+@Component
+public class MailQueue {
+
+    private static final Log LOG = LogFactory.getLog(MailQueue.class);
+
+    private final QueuedMailRepository queuedMailRepository;
+    private final JavaMailSender mailSender;
+    private final MeterRegistry meterRegistry;
+    private final ScheduledJobRunner scheduledJobRunner;
+    private final ThreadPoolTaskExecutor senders;
+    private final ThreadPoolTaskExecutor dispatcher;
+    private final int poolSize;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final boolean cronJobResponsible;
+
+    private final AtomicBoolean signalled = new AtomicBoolean();
+    private final AtomicBoolean dispatching = new AtomicBoolean();
+    private final AtomicLong queueDepth = new AtomicLong();
+
+    @Autowired
+    public MailQueue(QueuedMailRepository queuedMailRepository,
+                     JavaMailSender mailSender,
+                     MeterRegistry meterRegistry,
+                     ScheduledJobRunner scheduledJobRunner,
+                     @Value("${email.queue.pool-size}") int poolSize,
+                     @Value("${email.queue.batch-size}") int batchSize,
+                     @Value("${email.queue.max-attempts}") int maxAttempts,
+                     @Value("${email.queue.initial-backoff-seconds}") long initialBackoffSeconds,
+                     @Value("${email.queue.max-backoff-seconds}") long maxBackoffSeconds,
+                     @Value("${cron.node-cron-job-responsible}") boolean cronJobResponsible) {
+        this.queuedMailRepository = queuedMailRepository;
+        this.mailSender = mailSender;
+        this.meterRegistry = meterRegistry;
+        this.scheduledJobRunner = scheduledJobRunner;
+        this.poolSize = poolSize;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoff = Duration.ofSeconds(initialBackoffSeconds);
+        this.maxBackoff = Duration.ofSeconds(maxBackoffSeconds);
+        this.cronJobResponsible = cronJobResponsible;
+
+        this.senders = new ThreadPoolTaskExecutor();
+        this.senders.setCorePoolSize(poolSize);
+        this.senders.setMaxPoolSize(poolSize);
+        this.senders.setThreadNamePrefix("mail-sender-");
+        this.senders.initialize();
+
+        this.dispatcher = new ThreadPoolTaskExecutor();
+        this.dispatcher.setCorePoolSize(1);
+        this.dispatcher.setMaxPoolSize(1);
+        this.dispatcher.setThreadNamePrefix("mail-dispatcher-");
+        this.dispatcher.initialize();
+
+        Gauge.builder("mail.queue.depth", queueDepth, AtomicLong::get)
+                .description("Number of mails waiting to be sent")
+                .register(meterRegistry);
+    }
+
+    @SneakyThrows
+    public void enqueue(MimeMessage message) {
+        message.saveChanges();
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        message.writeTo(outputStream);
+        Address[] allRecipients = message.getAllRecipients();
+        String recipients = allRecipients == null ? null : Arrays.stream(allRecipients)
+                .map(Address::toString)
+                .collect(Collectors.joining(", "));
+        QueuedMail queuedMail = new QueuedMail(
+                outputStream.toByteArray(),
+                StringUtils.abbreviate(recipients, 1024),
+                StringUtils.abbreviate(message.getSubject(), 1024));
+        queuedMailRepository.save(queuedMail);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    signal();
+                }
+            });
+        } else {
+            signal();
+        }
+    }
+
+    /*
+     * Multiple signals are coalesced in one dispatch run
+     */
+    public void signal() {
+        if (cronJobResponsible && signalled.compareAndSet(false, true)) {
+            dispatcher.execute(() -> {
+                signalled.set(false);
+                dispatch();
+            });
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${email.queue.poll-delay-millis}")
+    public void dispatch() {
+        if (!cronJobResponsible || !dispatching.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            //Errors are logged by the ScheduledJobRunner
+            scheduledJobRunner.run("mail-queue", Duration.ZERO, this::sendDue);
+        } finally {
+            queueDepth.set(queuedMailRepository.countByFailed(false));
+            dispatching.set(false);
+        }
+    }
+
+    private void sendDue() {
+        List<QueuedMail> mails;
+        do {
+            mails = queuedMailRepository.findDue(Instant.now(), PageRequest.of(0, batchSize));
+            int chunkSize = Math.max(1, (mails.size() + poolSize - 1) / poolSize);
+            List<CompletableFuture<Void>> futures = new ArrayList<>();
+            for (int i = 0; i < mails.size(); i += chunkSize) {
+                List<QueuedMail> chunk = mails.subList(i, Math.min(i + chunkSize, mails.size()));
+                futures.add(CompletableFuture.runAsync(() -> send(chunk), senders));
+            }
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        } while (mails.size() == batchSize && scheduledJobRunner.renew());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        dispatcher.shutdown();
+        senders.shutdown();
+    }
+
+    /*
+     * JavaMailSender#send with multiple messages uses one connection and reports the failed messages
+     */
+    private void send(List<QueuedMail> mails) {
+        Map<MimeMessage, QueuedMail> messages = new LinkedHashMap<>();
+        mails.forEach(mail -> {
+            try {
+                messages.put(mailSender.createMimeMessage(new ByteArrayInputStream(mail.getMimeMessage())), mail);
+            } catch (MailException e) {
+                failed(mail, e);
+            }
+        });
+        if (messages.isEmpty()) {
+            return;
+        }
+        Map<Object, Exception> failedMessages;
+        try {
+            mailSender.send(messages.keySet().toArray(new MimeMessage[0]));
+            failedMessages = Collections.emptyMap();
+        } catch (MailSendException e) {
+            failedMessages = e.getFailedMessages();
+            if (failedMessages.isEmpty()) {
+                failedMessages = messages.keySet().stream().collect(Collectors.toMap(message -> message, message -> e));
+            }
+        } catch (MailException e) {
+            failedMessages = messages.keySet().stream().collect(Collectors.toMap(message -> message, message -> e));
+        }
+        List<Long> sent = new ArrayList<>();
+        for (Map.Entry<MimeMessage, QueuedMail> entry : messages.entrySet()) {
+            Exception exception = failedMessages.get(entry.getKey());
+            if (exception == null) {
+                sent.add(entry.getValue().getId());
+            } else {
+                failed(entry.getValue(), exception);
+            }
+        }
+        if (!sent.isEmpty()) {
+            queuedMailRepository.deleteAllByIdInBatch(sent);
+            meterRegistry.counter("mail.queue.messages", "result", "sent").increment(sent.size());
+        }
+    }
+
+    private void failed(QueuedMail mail, Exception exception) {
+        int attempts = mail.getAttempts() + 1;
+        boolean failed = attempts >= maxAttempts;
+        Instant nextAttemptAt = Instant.now().plus(backoff(attempts));
+        String error = StringUtils.abbreviate(messageOf(exception), 1024);
+        if (failed) {
+            LOG.error(String.format("Giving up on %s after %s attempts: %s", mail, attempts, error));
+        } else {
+            LOG.warn(String.format("Sending %s failed, retry at %s: %s", mail, nextAttemptAt, error));
+        }
+        queuedMailRepository.updateRetryState(mail.getId(), attempts, nextAttemptAt, failed, error);
+        meterRegistry.counter("mail.queue.messages", "result", failed ? "failed" : "retried").increment();
+    }
+
+    private String messageOf(Exception exception) {
+        Throwable cause = exception instanceof MessagingException messagingException && messagingException.getNextException() != null ?
+                messagingException.getNextException() : exception;
+        return String.format("%s: %s", cause.getClass().getSimpleName(), cause.getMessage());
+    }
+
+    Duration backoff(int attempts) {
+        long exponent = Math.min(attempts - 1, 30);
+        return Duration.ofMillis(Math.min(maxBackoff.toMillis(), initialBackoff.toMillis() * (1L << exponent)));
+    }
+}
@@ -0,0 +1,138 @@
+package guests.mail;
+
+import com.github.mustachejava.DefaultMustacheFactory;
+import com.github.mustachejava.Mustache;
+import com.github.mustachejava.MustacheFactory;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.SneakyThrows;
+import org.apache.commons.io.output.StringBuilderWriter;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.util.StringUtils;
+
+import java.io.File;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * The mail templates are compiled once at startup and rendered into a reusable buffer per thread. When a templates
+ * directory is configured, the templates are read from that directory and recompiled after one of the files changes.
+ */
+public class MailTemplates {
+
+    private static final Log LOG = LogFactory.getLog(MailTemplates.class);
+
+    private static final int MAX_BUFFER_CAPACITY = 256 * 1024;
+
+    private final File directory;
+    private final MeterRegistry meterRegistry;
+    private final long reloadCheckIntervalMillis;
+    private final ThreadLocal<StringBuilderWriter> buffers = ThreadLocal.withInitial(() -> new StringBuilderWriter(8 * 1024));
+
+    private volatile Map<String, Mustache> templates;
+    private volatile long lastModified;
+    private volatile long lastReloadCheck;
+
+    public MailTemplates(String directory, MeterRegistry meterRegistry) {
+        this(directory, meterRegistry, Duration.ofSeconds(2));
+    }
+
+    MailTemplates(String directory, MeterRegistry meterRegistry, Duration reloadCheckInterval) {
+        this.directory = StringUtils.hasText(directory) ? new File(directory) : null;
+        this.meterRegistry = meterRegistry;
+        this.reloadCheckIntervalMillis = reloadCheckInterval.toMillis();
+        this.lastModified = lastModified();
+        this.templates = compile();
+    }
+
+    public String render(String templateName, Map<String, Object> context) {
+        Mustache mustache = template(templateName);
+        StringBuilderWriter writer = buffers.get();
+        StringBuilder builder = writer.getBuilder();
+        builder.setLength(0);
+
+        long start = System.nanoTime();
+        mustache.execute(writer, context);
+        String result = builder.toString();
+        long duration = System.nanoTime() - start;
+
+        Timer.builder("mail.template.render")
+                .description("Time to render a mail template")
+                .tag("template", templateName)
+                .register(meterRegistry)
+                .record(duration, TimeUnit.NANOSECONDS);
+        DistributionSummary.builder("mail.template.size")
+                .description("Size of a rendered mail template")
+                .baseUnit("characters")
+                .tag("template", templateName)
+                .register(meterRegistry)
+                .record(result.length());
+
+        //Do not hold on to the memory of an exceptionally large mail
+        if (builder.capacity() > MAX_BUFFER_CAPACITY) {
+            buffers.remove();
+        }
+        return result;
+    }
+
+    private Mustache template(String templateName) {
+        if (directory != null) {
+            reloadIfModified();
+        }
+        Mustache mustache = templates.get(templateName);
+        if (mustache == null) {
+            throw new IllegalArgumentException(String.format("Unknown mail template %s", templateName));
+        }
+        return mustache;
+    }
+
+    private synchronized void reloadIfModified() {
+        long now = System.currentTimeMillis();
+        if (now - lastReloadCheck < reloadCheckIntervalMillis) {
+            return;
+        }
+        lastReloadCheck = now;
+        long modified = lastModified();
+        if (modified != lastModified) {
+            LOG.info(String.format("Mail templates in %s changed, recompiling", directory.getAbsolutePath()));
+            lastModified = modified;
+            //A new factory, as the DefaultMustacheFactory caches the compiled templates and partials
+            templates = compile();
+        }
+    }
+
+    private Map<String, Mustache> compile() {
+        MustacheFactory mustacheFactory = directory != null ?
+                new DefaultMustacheFactory(directory) : new DefaultMustacheFactory("templates");
+        Map<String, Mustache> result = new HashMap<>();
+        templateNames().forEach(templateName -> result.put(templateName, mustacheFactory.compile(templateName)));
+        LOG.info(String.format("Compiled %s mail templates", result.size()));
+        return Collections.unmodifiableMap(result);
+    }
+
+    @SneakyThrows
+    private List<String> templateNames() {
+        if (directory != null) {
+            File[] files = directory.listFiles(File::isFile);
+            return files == null ? Collections.emptyList() : Arrays.stream(files).map(File::getName).toList();
+        }
+        Resource[] resources = new PathMatchingResourcePatternResolver().getResources("classpath:templates/*.*");
+        return Arrays.stream(resources)
+                .map(Resource::getFilename)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    private long lastModified() {
+        if (directory == null) {
+            return 0L;
+        }
+        File[] files = directory.listFiles(File::isFile);
+        return files == null ? 0L : Arrays.stream(files).mapToLong(File::lastModified).max().orElse(0L);
+    }
+}
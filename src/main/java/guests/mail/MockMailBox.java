@@ -1,5 +1,6 @@
 package guests.mail;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.SneakyThrows;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.mail.javamail.MimeMessageHelper;
@@ -14,8 +15,15 @@ public class MockMailBox extends MailBox {
 
     private final String environment;
 
-    public MockMailBox(JavaMailSender mailSender, String emailFrom, String baseUrl, String scimFailureEmail, String environment) {
-        super(mailSender, emailFrom, baseUrl, scimFailureEmail, environment);
+    public MockMailBox(JavaMailSender mailSender,
+                       MailQueue mailQueue,
+                       MailTemplates mailTemplates,
+                       MeterRegistry meterRegistry,
+                       String emailFrom,
+                       String baseUrl,
+                       String scimFailureEmail,
+                       String environment) {
+        super(mailSender, mailQueue, mailTemplates, meterRegistry, emailFrom, baseUrl, scimFailureEmail, environment);
         this.environment = environment;
     }
 
@@ -1,16 +1,22 @@
 package guests.repository;
 
 import guests.domain.Application;
+import guests.domain.ApplicationListing;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
 import java.util.List;
 import java.util.Optional;
 
+import static org.hibernate.annotations.QueryHints.CACHEABLE;
+
 @Repository
 public interface ApplicationRepository extends JpaRepository<Application, Long> {
 
+    @QueryHints(@QueryHint(name = CACHEABLE, value = "true"))
     Optional<Application> findByEntityIdIgnoreCase(String entityId);
 
     Optional<Application> findByInstitution_idAndEntityIdIgnoreCase(Long institutionId, String entityId);
@@ -19,12 +25,12 @@ public interface ApplicationRepository extends JpaRepository<Application, Long>
 
     List<Application> findByInstitution_id(long institutionId);
 
-    @Query(
-            value = "select count(*) from users u inner join user_roles ur on ur.user_id = u.id " +
-                    "inner join roles r on r.id = ur.role_id inner join applications a on a.id = r.application_id " +
-                    "where a.id = ?1",
-            nativeQuery = true
-    )
-    Long countUsers(Long applicationId);
+    @Query("select new guests.domain.ApplicationListing(a.id, a.name, a.displayName, a.entityId, a.landingPage, " +
+            "a.provisioningHookUrl, a.provisioningHookUsername, a.provisioningHookPassword, a.provisioningHookEmail, " +
+            "a.provisioningConnectTimeoutMillis, a.provisioningReadTimeoutMillis, a.updateRolePutMethod, " +
+            "a.provisioningBulk, a.auditable.createdAt, a.auditable.createdBy, a.auditable.updatedAt, " +
+            "a.auditable.updatedBy, i.id, i.displayName) from applications a join a.institution i " +
+            "where i.id = ?1 order by a.id")
+    List<ApplicationListing> findListingsByInstitution(Long institutionId);
 
 }
@@ -0,0 +1,27 @@
+package guests.repository;
+
+import guests.domain.ExpiredInvitationCount;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.QueryHint;
+import java.time.Instant;
+
+import static org.hibernate.annotations.QueryHints.NATIVE_SPACES;
+
+@Repository
+public interface ExpiredInvitationCountRepository extends JpaRepository<ExpiredInvitationCount, Long> {
+
+    //Only the expired_invitation_counts are affected, the second-level cache is not evicted
+    @Modifying
+    @QueryHints(@QueryHint(name = NATIVE_SPACES, value = "expired_invitation_counts"))
+    @Transactional
+    @Query(value = "INSERT INTO expired_invitation_counts (institution_id, purged_count, last_purged_at) VALUES (?1, ?2, ?3) " +
+            "ON DUPLICATE KEY UPDATE purged_count = purged_count + ?2, last_purged_at = ?3",
+            nativeQuery = true)
+    int increment(Long institutionId, long count, Instant purgedAt);
+}
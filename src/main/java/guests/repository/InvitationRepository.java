@@ -2,21 +2,38 @@ package guests.repository;
 
 import guests.domain.Invitation;
 import guests.domain.Status;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface InvitationRepository extends JpaRepository<Invitation, Long> {
+public interface InvitationRepository extends JpaRepository<Invitation, Long>, InvitationSummaryRepository {
 
-    @EntityGraph(value = "findByHash", type = EntityGraph.EntityGraphType.LOAD,
+    @EntityGraph(value = "findByHashAndStatusAndExpiryDateAfter", type = EntityGraph.EntityGraphType.LOAD,
             attributePaths = {"inviter.institutionMemberships.institution"})
-    Optional<Invitation> findByHashAndStatus(String hash, Status status);
+    Optional<Invitation> findByHashAndStatusAndExpiryDateAfter(String hash, Status status, Instant now);
 
     List<Invitation> findByInstitution_id(Long institutionId);
 
     List<Invitation> findByRoles_role_application_id(Long applicationId);
+
+    @Query("select i.id from invitations i where i.expiryDate < ?1 order by i.expiryDate")
+    List<Long> findIdsByExpiryDateBefore(Instant instant, Pageable pageable);
+
+    @Query("select i.institution.id, count(i) from invitations i where i.id in ?1 group by i.institution.id")
+    List<Object[]> countByInstitution(Collection<Long> identifiers);
+
+    @Modifying
+    @Transactional
+    @Query("delete from invitations i where i.id in ?1")
+    int deleteByIdIn(Collection<Long> identifiers);
 }
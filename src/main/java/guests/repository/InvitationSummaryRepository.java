@@ -0,0 +1,16 @@
+package guests.repository;
+
+import guests.domain.InvitationFilter;
+import guests.domain.InvitationSummary;
+import guests.domain.KeysetPage;
+
+public interface InvitationSummaryRepository {
+
+    KeysetPage<InvitationSummary> findInvitationSummariesByInstitution(Long institutionId, InvitationFilter filter);
+
+    /*
+     * Invitations with at least one role of the application
+     */
+    KeysetPage<InvitationSummary> findInvitationSummariesByApplication(Long applicationId, InvitationFilter filter);
+
+}
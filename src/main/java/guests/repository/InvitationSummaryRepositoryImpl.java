@@ -0,0 +1,117 @@
+package guests.repository;
+
+import guests.domain.InvitationFilter;
+import guests.domain.InvitationSort;
+import guests.domain.InvitationSummary;
+import guests.domain.KeysetPage;
+import org.springframework.data.domain.Sort;
+import org.springframework.util.StringUtils;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.TypedQuery;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+public class InvitationSummaryRepositoryImpl implements InvitationSummaryRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public KeysetPage<InvitationSummary> findInvitationSummariesByInstitution(Long institutionId, InvitationFilter filter) {
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("institutionId", institutionId);
+        return findInvitationSummaries("i.institution.id = :institutionId ", parameters, filter);
+    }
+
+    @Override
+    public KeysetPage<InvitationSummary> findInvitationSummariesByApplication(Long applicationId, InvitationFilter filter) {
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("applicationId", applicationId);
+        return findInvitationSummaries("exists (select ir.id from invitation_roles ir " +
+                "where ir.invitation = i and ir.role.application.id = :applicationId) ", parameters, filter);
+    }
+
+    private KeysetPage<InvitationSummary> findInvitationSummaries(String scope, Map<String, Object> parameters, InvitationFilter filter) {
+        StringBuilder jpql = new StringBuilder("select new guests.domain.InvitationSummary(i.id, i.intendedAuthority, " +
+                "i.status, i.email, i.createdAt, i.expiryDate, u.id, u.givenName, u.familyName, u.email) " +
+                "from invitations i join i.inviter u where ")
+                .append(scope);
+        if (filter.getStatus() != null) {
+            jpql.append("and i.status = :status ");
+            parameters.put("status", filter.getStatus());
+        }
+        if (filter.getExpiresAfter() != null) {
+            jpql.append("and i.expiryDate >= :expiresAfter ");
+            parameters.put("expiresAfter", filter.getExpiresAfter());
+        }
+        if (filter.getExpiresBefore() != null) {
+            jpql.append("and i.expiryDate <= :expiresBefore ");
+            parameters.put("expiresBefore", filter.getExpiresBefore());
+        }
+        if (filter.getInviterId() != null) {
+            jpql.append("and u.id = :inviterId ");
+            parameters.put("inviterId", filter.getInviterId());
+        }
+        String sortColumn = sortColumn(filter.getSort());
+        boolean descending = !Sort.Direction.ASC.equals(filter.getDirection());
+        if (StringUtils.hasText(filter.getAfter())) {
+            Keyset.Cursor cursor = Keyset.decode(filter.getAfter());
+            jpql.append(Keyset.after(sortColumn, "i.id", descending, sortValue(filter.getSort(), cursor.value()), cursor.id(), parameters));
+        }
+        jpql.append(String.format("order by %1$s %2$s, i.id %2$s", sortColumn, descending ? "desc" : "asc"));
+
+        int size = Keyset.pageSize(filter.getSize());
+        TypedQuery<InvitationSummary> query = entityManager.createQuery(jpql.toString(), InvitationSummary.class);
+        parameters.forEach(query::setParameter);
+        List<InvitationSummary> rows = query.setMaxResults(size + 1).getResultList();
+        KeysetPage<InvitationSummary> page = Keyset.page(rows, size, last -> Keyset.encode(sortKey(filter.getSort(), last), last.getId()));
+        addRoles(page.getResults());
+        return page;
+    }
+
+    /*
+     * The roles of all invitations of the page are fetched with one query
+     */
+    private void addRoles(List<InvitationSummary> invitations) {
+        if (invitations.isEmpty()) {
+            return;
+        }
+        Map<Long, InvitationSummary> invitationsById = invitations.stream()
+                .collect(Collectors.toMap(InvitationSummary::getId, Function.identity()));
+        entityManager.createQuery("select ir.invitation.id, r.id, r.name, a.name, ir.endDate from invitation_roles ir " +
+                        "join ir.role r join r.application a where ir.invitation.id in :invitationIds order by r.name", Object[].class)
+                .setParameter("invitationIds", invitationsById.keySet())
+                .getResultList()
+                .forEach(row -> invitationsById.get((Long) row[0]).getRoles().add(
+                        new InvitationSummary.RoleSummary((Long) row[1], (String) row[2], (String) row[3], (Instant) row[4])));
+    }
+
+    private String sortColumn(InvitationSort sort) {
+        return switch (sort) {
+            case CREATED_AT -> "i.createdAt";
+            case EXPIRY_DATE -> "i.expiryDate";
+            case EMAIL -> "i.email";
+        };
+    }
+
+    private Object sortKey(InvitationSort sort, InvitationSummary invitationSummary) {
+        return switch (sort) {
+            case CREATED_AT -> invitationSummary.getCreatedAt();
+            case EXPIRY_DATE -> invitationSummary.getExpiryDate();
+            case EMAIL -> invitationSummary.getEmail();
+        };
+    }
+
+    private Object sortValue(InvitationSort sort, String value) {
+        if (value == null) {
+            return null;
+        }
+        return InvitationSort.EMAIL.equals(sort) ? value : Keyset.instant(value);
+    }
+}
@@ -0,0 +1,29 @@
+package guests.repository;
+
+import guests.domain.JobLock;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+
+@Repository
+public interface JobLockRepository extends JpaRepository<JobLock, String> {
+
+    @Modifying
+    @Transactional
+    @Query("update job_locks l set l.owner = ?2, l.lockedAt = ?3, l.lockedUntil = ?4 where l.name = ?1 and l.lockedUntil <= ?3")
+    int acquire(String name, String owner, Instant now, Instant lockedUntil);
+
+    @Modifying
+    @Transactional
+    @Query("update job_locks l set l.lockedUntil = ?4 where l.name = ?1 and l.owner = ?2 and l.lockedUntil > ?3")
+    int renew(String name, String owner, Instant now, Instant lockedUntil);
+
+    @Modifying
+    @Transactional
+    @Query("update job_locks l set l.lockedUntil = ?3 where l.name = ?1 and l.owner = ?2")
+    int release(String name, String owner, Instant lockedUntil);
+}
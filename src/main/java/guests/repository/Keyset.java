@@ -0,0 +1,100 @@
+package guests.repository;
+
+import guests.domain.KeysetPage;
+import guests.exception.InvalidCursorException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/*
+ * Opaque cursors for keyset pagination. A cursor holds the value of the sort column and the id of the last row of a
+ * page, as the id is the tiebreaker for rows with the same sort value. A null sort value is encoded without a value.
+ */
+final class Keyset {
+
+    private Keyset() {
+    }
+
+    record Cursor(String value, Long id) {
+    }
+
+    private static final int MAX_PAGE_SIZE = 500;
+
+    static int pageSize(int requested) {
+        return Math.max(1, Math.min(requested, MAX_PAGE_SIZE));
+    }
+
+    /*
+     * The rows are queried with one extra row, which tells whether there is a next page
+     */
+    static <T> KeysetPage<T> page(List<T> rows, int size, Function<T, String> cursor) {
+        if (rows.size() <= size) {
+            return new KeysetPage<>(rows, null);
+        }
+        List<T> results = rows.subList(0, size);
+        return new KeysetPage<>(results, cursor.apply(results.get(size - 1)));
+    }
+
+    static String encode(Object value, Long id) {
+        String raw = value == null ? String.valueOf(id) : String.format("%s:%s", id, value);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static Cursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(':');
+            if (separator < 0) {
+                return new Cursor(null, Long.valueOf(raw));
+            }
+            return new Cursor(raw.substring(separator + 1), Long.valueOf(raw.substring(0, separator)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new InvalidCursorException(String.format("Invalid cursor %s", cursor));
+        }
+    }
+
+    /*
+     * Condition for the rows after the cursor in the order of the sort column and the id. The sort column is compared
+     * as is - not wrapped in an expression - so MySQL can use an index on the column for the condition and the order.
+     * MySQL sorts null values first in ascending and last in descending order.
+     */
+    static String after(String column, String idColumn, boolean descending, Object value, Long id, Map<String, Object> parameters) {
+        parameters.put("afterId", id);
+        String comparison = descending ? "<" : ">";
+        if (value == null) {
+            return descending ?
+                    String.format("and (%1$s is null and %2$s < :afterId) ", column, idColumn) :
+                    String.format("and (%1$s is not null or (%1$s is null and %2$s > :afterId)) ", column, idColumn);
+        }
+        parameters.put("afterValue", value);
+        String condition = String.format("%1$s %3$s :afterValue or (%1$s = :afterValue and %2$s %3$s :afterId)",
+                column, idColumn, comparison);
+        return descending ?
+                String.format("and (%1$s or %2$s is null) ", condition, column) :
+                String.format("and (%s) ", condition);
+    }
+
+    static Instant instant(String value) {
+        try {
+            return Instant.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new InvalidCursorException(String.format("Invalid cursor value %s", value));
+        }
+    }
+
+    /*
+     * Case-insensitive substring pattern for 'like ... escape '!''
+     */
+    static String containsPattern(String value) {
+        String escaped = value.toLowerCase()
+                .replace("!", "!!")
+                .replace("%", "!%")
+                .replace("_", "!_");
+        return String.format("%%%s%%", escaped);
+    }
+}
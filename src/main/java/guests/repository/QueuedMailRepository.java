@@ -0,0 +1,26 @@
+package guests.repository;
+
+import guests.domain.QueuedMail;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface QueuedMailRepository extends JpaRepository<QueuedMail, Long> {
+
+    @Query("select m from mail_queue m where m.failed = false and m.nextAttemptAt <= ?1 order by m.id")
+    List<QueuedMail> findDue(Instant now, Pageable pageable);
+
+    long countByFailed(boolean failed);
+
+    @Modifying
+    @Transactional
+    @Query("update mail_queue m set m.attempts = ?2, m.nextAttemptAt = ?3, m.failed = ?4, m.lastError = ?5 where m.id = ?1")
+    int updateRetryState(Long id, int attempts, Instant nextAttemptAt, boolean failed, String lastError);
+}
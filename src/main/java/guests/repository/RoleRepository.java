@@ -1,12 +1,18 @@
 package guests.repository;
 
 import guests.domain.Role;
+import guests.domain.RoleListing;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
 import java.util.List;
 import java.util.Optional;
 
+import static org.hibernate.annotations.QueryHints.CACHEABLE;
+
 @Repository
 public interface RoleRepository extends JpaRepository<Role, Long> {
 
@@ -14,13 +20,29 @@ public interface RoleRepository extends JpaRepository<Role, Long> {
 
     List<Role> findByApplication_id(Long applicationId);
 
+    String ROLE_LISTING = "select new guests.domain.RoleListing(r.id, r.name, r.displayName, r.serviceProviderId, " +
+            "r.authority, r.instantAvailable, r.defaultExpiryDays, r.auditable.createdAt, r.auditable.createdBy, " +
+            "r.auditable.updatedAt, r.auditable.updatedBy, a.id, a.name, a.landingPage, a.institution.id) " +
+            "from roles r join r.application a ";
+
+    @Query(ROLE_LISTING + "where a.institution.id = ?1 order by r.id")
+    List<RoleListing> findListingsByInstitution(Long institutionId);
+
+    @Query(ROLE_LISTING + "where a.id = ?1 order by r.id")
+    List<RoleListing> findListingsByApplication(Long applicationId);
+
+    @Query("select r.id from roles r where r.application.institution.id = ?1")
+    List<Long> findIdsByInstitution(Long institutionId);
+
     Optional<Role> findByApplication_idAndNameIgnoreCase(Long applicationId, String name);
 
     Optional<Role> findByName(String name);
 
+    @QueryHints(@QueryHint(name = CACHEABLE, value = "true"))
     Optional<Role> findByApplication_institution_homeInstitutionIgnoreCaseAndApplication_nameIgnoreCaseAndNameIgnoreCase(
             String institutionHomeLowerCase, String applicationNameLowerCase, String roleNameLowerCase);
 
+    @QueryHints(@QueryHint(name = CACHEABLE, value = "true"))
     Optional<Role> findByServiceProviderId(String serviceProviderId);
 
 }
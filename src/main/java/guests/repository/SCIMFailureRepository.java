@@ -1,9 +1,14 @@
 package guests.repository;
 
 import guests.domain.SCIMFailure;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
 import java.util.List;
 
 @Repository
@@ -12,4 +17,12 @@ public interface SCIMFailureRepository extends JpaRepository<SCIMFailure, Long>
     List<SCIMFailure> findByApplication_institution_id(Long institutionId);
 
     long countByApplication_institution_id(Long institutionId);
+
+    @Query("select f from scim_failures f where f.parked = false and (f.nextAttemptAt is null or f.nextAttemptAt <= ?1) order by f.id")
+    List<SCIMFailure> findRetryable(Instant now, Pageable pageable);
+
+    @Modifying
+    @Transactional
+    @Query("update scim_failures f set f.attempts = ?2, f.nextAttemptAt = ?3, f.parked = ?4 where f.id = ?1")
+    int updateRetryState(Long id, int attempts, Instant nextAttemptAt, boolean parked);
 }
@@ -0,0 +1,34 @@
+package guests.repository;
+
+import guests.domain.SCIMOutboxEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface SCIMOutboxEventRepository extends JpaRepository<SCIMOutboxEvent, Long> {
+
+    @Query("select distinct e.applicationId from scim_outbox_events e where e.parked = false")
+    List<Long> findDistinctApplicationIds();
+
+    List<SCIMOutboxEvent> findByApplicationIdOrderByIdAsc(Long applicationId, Pageable pageable);
+
+    List<SCIMOutboxEvent> findByParkedTrueOrderByIdAsc();
+
+    @Query("select min(e.createdAt) from scim_outbox_events e where e.parked = false")
+    Instant findOldestCreatedAt();
+
+    long countByParked(boolean parked);
+
+    @Modifying
+    @Transactional
+    @Query("update scim_outbox_events e set e.attempts = ?2, e.nextAttemptAt = ?3, e.parked = ?4 where e.id = ?1")
+    int updateRetryState(Long id, int attempts, Instant nextAttemptAt, boolean parked);
+
+}
@@ -1,18 +1,23 @@
 package guests.repository;
 
+import guests.domain.GroupMembership;
 import guests.domain.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
 @Repository
-public interface UserRepository extends JpaRepository<User, Long> {
+public interface UserRepository extends JpaRepository<User, Long>, UserSummaryRepository {
 
     @EntityGraph(value = "findByEduPersonPrincipalNameIgnoreCase",
             type = EntityGraph.EntityGraphType.LOAD,
@@ -25,9 +30,25 @@ public interface UserRepository extends JpaRepository<User, Long> {
 
     List<User> findByUserRoles_role_application_id(Long applicationId);
 
-    List<User> findByLastActivityBefore(Instant instant);
+    @Query("select u.id from users u where u.lastActivity < ?1 and u.id > ?2 order by u.id")
+    List<Long> findIdsByLastActivityBefore(Instant instant, Long afterId, Pageable pageable);
+
+    @Modifying
+    @Transactional
+    @Query("delete from users u where u.id in ?1")
+    int deleteByIdIn(Collection<Long> identifiers);
 
     @Query(value = "select u.email, u.given_name, u.family_name from users u inner join institution_memberships m on m.user_id = u.id where m.institution_id = ?1 and m.authority = 'GUEST'",
             nativeQuery = true)
     List<Map<String, String>> findEmailAndNameByInstitution_id(Long institutionId);
+
+    @Query("select u.id as userId, r.name as roleName, a.name as applicationName, i.homeInstitution as homeInstitution " +
+            "from users u left join u.userRoles ur left join ur.role r left join r.application a left join a.institution i " +
+            "where u.sub = ?1")
+    List<GroupMembership> findGroupMembershipsBySub(String sub);
+
+    @Modifying
+    @Transactional
+    @Query("update users u set u.lastActivity = ?1 where u.id in ?2")
+    int updateLastActivity(Instant lastActivity, Collection<Long> userIdentifiers);
 }
@@ -1,21 +1,34 @@
 package guests.repository;
 
 import guests.domain.UserRole;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface UserRoleRepository extends JpaRepository<UserRole, Long> {
 
-    List<UserRole> findByEndDateBefore(Instant instant);
+    @Query("select ur.id from user_roles ur where ur.endDate < ?1 and ur.id > ?2 order by ur.id")
+    List<Long> findIdsByEndDateBefore(Instant instant, Long afterId, Pageable pageable);
+
+    @Modifying
+    @Transactional
+    @Query("delete from user_roles ur where ur.id in ?1")
+    int deleteByIdIn(Collection<Long> identifiers);
 
     @EntityGraph(value = "findByRoleId", type = EntityGraph.EntityGraphType.LOAD,
             attributePaths = {"role.application"})
     List<UserRole> findByRoleId(Long roleId);
 
+    Optional<UserRole> findByUserIdAndRoleId(Long userId, Long roleId);
 
 }
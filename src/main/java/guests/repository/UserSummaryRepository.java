@@ -0,0 +1,27 @@
+package guests.repository;
+
+import guests.domain.KeysetPage;
+import guests.domain.UserFilter;
+import guests.domain.UserPrincipal;
+import guests.domain.UserSummary;
+
+import java.util.Optional;
+
+public interface UserSummaryRepository {
+
+    /*
+     * Users with a membership in the institution
+     */
+    KeysetPage<UserSummary> findUserSummariesByInstitution(Long institutionId, UserFilter filter);
+
+    /*
+     * Users with a role of the application, the authority is the membership in the institution of the application
+     */
+    KeysetPage<UserSummary> findUserSummariesByApplication(Long institutionId, Long applicationId, UserFilter filter);
+
+    /*
+     * The compact principal of the user with the authority per institution, without loading the User aggregate
+     */
+    Optional<UserPrincipal> findPrincipalByEduPersonPrincipalName(String eduPersonPrincipalName);
+
+}
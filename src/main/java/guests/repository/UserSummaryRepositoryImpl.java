@@ -0,0 +1,126 @@
+package guests.repository;
+
+import guests.domain.Authority;
+import guests.domain.AuthorityIndex;
+import guests.domain.KeysetPage;
+import guests.domain.UserFilter;
+import guests.domain.UserPrincipal;
+import guests.domain.UserSort;
+import guests.domain.UserSummary;
+import org.springframework.data.domain.Sort;
+import org.springframework.util.StringUtils;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.TypedQuery;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+public class UserSummaryRepositoryImpl implements UserSummaryRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public KeysetPage<UserSummary> findUserSummariesByInstitution(Long institutionId, UserFilter filter) {
+        return findUserSummaries(institutionId, null, filter);
+    }
+
+    @Override
+    public KeysetPage<UserSummary> findUserSummariesByApplication(Long institutionId, Long applicationId, UserFilter filter) {
+        return findUserSummaries(institutionId, applicationId, filter);
+    }
+
+    @Override
+    public Optional<UserPrincipal> findPrincipalByEduPersonPrincipalName(String eduPersonPrincipalName) {
+        //One row per membership of the user
+        List<Object[]> rows = entityManager.createQuery("select u.id, u.eduPersonPrincipalName, u.givenName, u.familyName, " +
+                        "u.email, m.institution.id, m.authority from users u left join u.institutionMemberships m " +
+                        "where lower(u.eduPersonPrincipalName) = lower(:eduPersonPrincipalName) order by u.id", Object[].class)
+                .setParameter("eduPersonPrincipalName", eduPersonPrincipalName)
+                .getResultList();
+        if (rows.isEmpty()) {
+            return Optional.empty();
+        }
+        Object[] first = rows.get(0);
+        Map<Long, Authority> authorities = new HashMap<>();
+        rows.stream()
+                .filter(row -> row[0].equals(first[0]) && row[5] != null)
+                .forEach(row -> authorities.put((Long) row[5], (Authority) row[6]));
+        return Optional.of(new UserPrincipal(
+                (Long) first[0],
+                (String) first[1],
+                (String) first[2],
+                (String) first[3],
+                (String) first[4],
+                AuthorityIndex.of(authorities)));
+    }
+
+    private KeysetPage<UserSummary> findUserSummaries(Long institutionId, Long applicationId, UserFilter filter) {
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("institutionId", institutionId);
+        StringBuilder jpql = new StringBuilder("select new guests.domain.UserSummary(u.id, u.eduPersonPrincipalName, " +
+                "u.givenName, u.familyName, u.email, u.createdAt, u.lastActivity, m.authority) from users u ");
+        if (applicationId == null) {
+            jpql.append("join u.institutionMemberships m on m.institution.id = :institutionId where 1 = 1 ");
+        } else {
+            jpql.append("left join u.institutionMemberships m on m.institution.id = :institutionId " +
+                    "where exists (select ur.id from user_roles ur where ur.user = u and ur.role.application.id = :applicationId) ");
+            parameters.put("applicationId", applicationId);
+        }
+        if (StringUtils.hasText(filter.getName())) {
+            jpql.append("and lower(concat(coalesce(u.givenName, ''), ' ', coalesce(u.familyName, ''))) like :name escape '!' ");
+            parameters.put("name", Keyset.containsPattern(filter.getName().trim()));
+        }
+        if (StringUtils.hasText(filter.getEmail())) {
+            jpql.append("and lower(u.email) like :email escape '!' ");
+            parameters.put("email", Keyset.containsPattern(filter.getEmail().trim()));
+        }
+        if (filter.getAuthority() != null) {
+            jpql.append("and m.authority = :authority ");
+            parameters.put("authority", filter.getAuthority());
+        }
+        String sortColumn = sortColumn(filter.getSort());
+        boolean descending = Sort.Direction.DESC.equals(filter.getDirection());
+        if (StringUtils.hasText(filter.getAfter())) {
+            Keyset.Cursor cursor = Keyset.decode(filter.getAfter());
+            jpql.append(Keyset.after(sortColumn, "u.id", descending, sortValue(filter.getSort(), cursor.value()), cursor.id(), parameters));
+        }
+        jpql.append(String.format("order by %1$s %2$s, u.id %2$s", sortColumn, descending ? "desc" : "asc"));
+
+        int size = Keyset.pageSize(filter.getSize());
+        TypedQuery<UserSummary> query = entityManager.createQuery(jpql.toString(), UserSummary.class);
+        parameters.forEach(query::setParameter);
+        List<UserSummary> rows = query.setMaxResults(size + 1).getResultList();
+        return Keyset.page(rows, size, last -> Keyset.encode(sortKey(filter.getSort(), last), last.getId()));
+    }
+
+    private String sortColumn(UserSort sort) {
+        return switch (sort) {
+            case FAMILY_NAME -> "u.familyName";
+            case GIVEN_NAME -> "u.givenName";
+            case EMAIL -> "u.email";
+            case EDU_PERSON_PRINCIPAL_NAME -> "u.eduPersonPrincipalName";
+            case LAST_ACTIVITY -> "u.lastActivity";
+        };
+    }
+
+    private Object sortKey(UserSort sort, UserSummary userSummary) {
+        return switch (sort) {
+            case FAMILY_NAME -> userSummary.getFamilyName();
+            case GIVEN_NAME -> userSummary.getGivenName();
+            case EMAIL -> userSummary.getEmail();
+            case EDU_PERSON_PRINCIPAL_NAME -> userSummary.getEduPersonPrincipalName();
+            case LAST_ACTIVITY -> userSummary.getLastActivity();
+        };
+    }
+
+    private Object sortValue(UserSort sort, String value) {
+        if (value == null) {
+            return null;
+        }
+        return UserSort.LAST_ACTIVITY.equals(sort) ? Keyset.instant(value) : value;
+    }
+}
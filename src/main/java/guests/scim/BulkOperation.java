@@ -0,0 +1,31 @@
+package guests.scim;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import guests.domain.ServiceProviderIdentifier;
+import lombok.Getter;
+
+import java.io.Serializable;
+
+@Getter
+public class BulkOperation implements Serializable {
+
+    private final String method;
+    private final String bulkId;
+    private final String path;
+    private final Object data;
+
+    @JsonIgnore
+    private final String api;
+
+    @JsonIgnore
+    private final ServiceProviderIdentifier serviceProviderIdentifier;
+
+    public BulkOperation(String method, String bulkId, String path, Object data, String api, ServiceProviderIdentifier serviceProviderIdentifier) {
+        this.method = method;
+        this.bulkId = bulkId;
+        this.path = path;
+        this.data = data;
+        this.api = api;
+        this.serviceProviderIdentifier = serviceProviderIdentifier;
+    }
+}
@@ -0,0 +1,23 @@
+package guests.scim;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Getter;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.List;
+
+@Getter
+public class BulkRequest implements Serializable {
+
+    private final List<String> schemas = Collections.singletonList("urn:ietf:params:scim:api:messages:2.0:BulkRequest");
+    private final int failOnErrors;
+
+    @JsonProperty("Operations")
+    private final List<BulkOperation> operations;
+
+    public BulkRequest(int failOnErrors, List<BulkOperation> operations) {
+        this.failOnErrors = failOnErrors;
+        this.operations = operations;
+    }
+}
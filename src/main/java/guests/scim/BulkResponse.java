@@ -0,0 +1,53 @@
+package guests.scim;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class BulkResponse implements Serializable {
+
+    @JsonProperty("Operations")
+    private List<OperationResponse> operations = new ArrayList<>();
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class OperationResponse implements Serializable {
+
+        private String method;
+        private String bulkId;
+        private String location;
+        private String status;
+        private Map<String, Object> response;
+
+        public boolean isSuccess() {
+            return status != null && status.trim().startsWith("2");
+        }
+
+        /*
+         * The id of a created resource is the last segment of the location, some service providers also return the
+         * resource itself in the response
+         */
+        public String resourceId() {
+            if (response != null && response.get("id") instanceof String id) {
+                return id;
+            }
+            if (location != null && location.contains("/")) {
+                return location.substring(location.lastIndexOf('/') + 1);
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package guests.scim;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+/*
+ * Opens after failureThreshold consecutive failures. When open, all calls are rejected until openDuration has passed.
+ * Then one trial call is permitted (half-open): success closes the breaker, failure opens it again.
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openDurationNanos;
+    private final LongSupplier nanoTime;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean trialInProgress;
+
+    public CircuitBreaker(int failureThreshold, Duration openDuration) {
+        this(failureThreshold, openDuration, System::nanoTime);
+    }
+
+    CircuitBreaker(int failureThreshold, Duration openDuration, LongSupplier nanoTime) {
+        this.failureThreshold = failureThreshold;
+        this.openDurationNanos = openDuration.toNanos();
+        this.nanoTime = nanoTime;
+    }
+
+    public synchronized boolean tryAcquirePermission() {
+        switch (state) {
+            case CLOSED -> {
+                return true;
+            }
+            case OPEN -> {
+                if (nanoTime.getAsLong() - openedAt < openDurationNanos) {
+                    return false;
+                }
+                state = State.HALF_OPEN;
+                trialInProgress = true;
+                return true;
+            }
+            case HALF_OPEN -> {
+                if (trialInProgress) {
+                    return false;
+                }
+                trialInProgress = true;
+                return true;
+            }
+            default -> throw new IllegalStateException(String.format("Unknown state %s", state));
+        }
+    }
+
+    public synchronized void onSuccess() {
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        trialInProgress = false;
+    }
+
+    public synchronized void onFailure() {
+        consecutiveFailures++;
+        trialInProgress = false;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            state = State.OPEN;
+            openedAt = nanoTime.getAsLong();
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public synchronized int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+}
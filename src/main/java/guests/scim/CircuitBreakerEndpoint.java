@@ -0,0 +1,24 @@
+package guests.scim;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+
+@Component
+@Endpoint(id = "circuitbreakers")
+public class CircuitBreakerEndpoint {
+
+    private final CircuitBreakerRegistry circuitBreakerRegistry;
+
+    public CircuitBreakerEndpoint(CircuitBreakerRegistry circuitBreakerRegistry) {
+        this.circuitBreakerRegistry = circuitBreakerRegistry;
+    }
+
+    @ReadOperation
+    public List<Map<String, Object>> circuitBreakers() {
+        return circuitBreakerRegistry.states();
+    }
+}
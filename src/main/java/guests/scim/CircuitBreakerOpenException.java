@@ -0,0 +1,14 @@
+package guests.scim;
+
+import org.springframework.web.client.RestClientException;
+
+/*
+ * Extends RestClientException, so a rejected request is handled like any other failed exchange and ends up as a
+ * SCIMFailure
+ */
+public class CircuitBreakerOpenException extends RestClientException {
+
+    public CircuitBreakerOpenException(String msg) {
+        super(msg);
+    }
+}
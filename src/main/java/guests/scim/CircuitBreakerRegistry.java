@@ -0,0 +1,61 @@
+package guests.scim;
+
+import guests.domain.Application;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Collectors;
+
+/*
+ * One circuit breaker and bulkhead per application, so a slow or failing provisioning hook of one application does not
+ * affect the provisioning of the other applications.
+ */
+@Component
+public class CircuitBreakerRegistry {
+
+    private final Map<Long, ApplicationGuard> guards = new ConcurrentHashMap<>();
+    private final int failureThreshold;
+    private final Duration openDuration;
+    private final int maxConcurrentRequests;
+
+    public CircuitBreakerRegistry(@Value("${scim.circuit-breaker.failure-threshold}") int failureThreshold,
+                                  @Value("${scim.circuit-breaker.open-duration-seconds}") long openDurationSeconds,
+                                  @Value("${scim.bulkhead.max-concurrent-requests}") int maxConcurrentRequests) {
+        this.failureThreshold = failureThreshold;
+        this.openDuration = Duration.ofSeconds(openDurationSeconds);
+        this.maxConcurrentRequests = maxConcurrentRequests;
+    }
+
+    public ApplicationGuard guard(Application application) {
+        return guards.computeIfAbsent(application.getId(), id -> new ApplicationGuard(
+                id,
+                application.getName(),
+                new CircuitBreaker(failureThreshold, openDuration),
+                new Semaphore(maxConcurrentRequests)));
+    }
+
+    public List<Map<String, Object>> states() {
+        return guards.values().stream()
+                .sorted(Comparator.comparing(ApplicationGuard::applicationId))
+                .map(guard -> {
+                    Map<String, Object> state = new LinkedHashMap<>();
+                    state.put("applicationId", guard.applicationId());
+                    state.put("application", guard.applicationName());
+                    state.put("state", guard.circuitBreaker().getState());
+                    state.put("consecutiveFailures", guard.circuitBreaker().getConsecutiveFailures());
+                    state.put("availableConcurrentRequests", guard.bulkhead().availablePermits());
+                    return state;
+                })
+                .collect(Collectors.toList());
+    }
+
+    public record ApplicationGuard(Long applicationId, String applicationName, CircuitBreaker circuitBreaker, Semaphore bulkhead) {
+    }
+}
@@ -0,0 +1,59 @@
+package guests.scim;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import okhttp3.Call;
+import okhttp3.Connection;
+import okhttp3.EventListener;
+
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Records the time until a call has acquired a connection. A call which had to open a new connection is a pool 'miss',
+ * a call which reused a pooled connection is a pool 'hit'.
+ */
+public class ConnectionAcquisitionMetrics implements EventListener.Factory {
+
+    private final Timer hits;
+    private final Timer misses;
+
+    public ConnectionAcquisitionMetrics(MeterRegistry meterRegistry) {
+        this.hits = timer(meterRegistry, "hit");
+        this.misses = timer(meterRegistry, "miss");
+    }
+
+    @Override
+    public EventListener create(Call call) {
+        return new EventListener() {
+
+            private long start = System.nanoTime();
+            private boolean newConnection;
+
+            @Override
+            public void connectStart(Call call, InetSocketAddress inetSocketAddress, Proxy proxy) {
+                newConnection = true;
+            }
+
+            @Override
+            public void connectionAcquired(Call call, Connection connection) {
+                (newConnection ? misses : hits).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+
+            @Override
+            public void connectionReleased(Call call, Connection connection) {
+                //Follow-up requests, e.g. redirects, acquire a connection again
+                start = System.nanoTime();
+                newConnection = false;
+            }
+        };
+    }
+
+    private Timer timer(MeterRegistry meterRegistry, String pool) {
+        return Timer.builder("scim.http.connection.acquire")
+                .description("Time until a SCIM request acquired a connection")
+                .tag("pool", pool)
+                .register(meterRegistry);
+    }
+}
@@ -18,8 +18,12 @@ public class GroupPatchRequest implements Serializable {
     private final List<Operation> operations;
 
     public GroupPatchRequest(String externalId, String id, Operation operation) {
+        this(externalId, id, Collections.singletonList(operation));
+    }
+
+    public GroupPatchRequest(String externalId, String id, List<Operation> operations) {
         this.externalId = externalId;
         this.id = id;
-        this.operations = Collections.singletonList(operation);
+        this.operations = operations;
     }
 }
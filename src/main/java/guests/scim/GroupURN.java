@@ -10,11 +10,15 @@ public class GroupURN {
 
     public static String urnFromRole(String groupUrnPrefix, Role role) {
         Application application = role.getApplication();
+        return urnFromRole(groupUrnPrefix, application.getInstitution().getHomeInstitution(), application.getName(), role.getName());
+    }
+
+    public static String urnFromRole(String groupUrnPrefix, String homeInstitution, String applicationName, String roleName) {
         return String.format("%s:%s:%s:%s",
                 groupUrnPrefix,
-                application.getInstitution().getHomeInstitution().toLowerCase(),
-                application.getName().toLowerCase(),
-                role.getName()).toLowerCase();
+                homeInstitution,
+                applicationName,
+                roleName).toLowerCase();
     }
 
     public static ExternalID parseUrnRole(String urnRole) {
@@ -14,7 +14,11 @@ public class Operation {
     private final List<Member> value;
 
     public Operation(OperationType op, UserRole userRole) {
+        this(op, userRole.getServiceProviderId());
+    }
+
+    public Operation(OperationType op, String memberValue) {
         this.op = op;
-        this.value = Collections.singletonList(new Member(userRole.getServiceProviderId()));
+        this.value = Collections.singletonList(new Member(memberValue));
     }
 }
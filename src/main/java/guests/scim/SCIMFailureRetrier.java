@@ -0,0 +1,166 @@
+package guests.scim;
+
+import guests.cron.ScheduledJobRunner;
+import guests.domain.Role;
+import guests.domain.SCIMFailure;
+import guests.domain.User;
+import guests.repository.RoleRepository;
+import guests.repository.SCIMFailureRepository;
+import guests.repository.UserRepository;
+import lombok.SneakyThrows;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.Serializable;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+
+/*
+ * Replays SCIMFailures with an exponential backoff. When a replay for an application fails, all other failures of
+ * that application in the same batch are deferred as well, so an application which is down is not hammered. After
+ * maxAttempts the failure is parked and can only be resent manually.
+ */
+@Component
+public class SCIMFailureRetrier {
+
+    private static final Log LOG = LogFactory.getLog(SCIMFailureRetrier.class);
+
+    private final SCIMFailureRepository scimFailureRepository;
+    private final UserRepository userRepository;
+    private final RoleRepository roleRepository;
+    private final SCIMService scimService;
+    private final TransactionTemplate transactionTemplate;
+    private final ScheduledJobRunner scheduledJobRunner;
+    private final boolean enabled;
+    private final boolean cronJobResponsible;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+
+    @Autowired
+    public SCIMFailureRetrier(SCIMFailureRepository scimFailureRepository,
+                              UserRepository userRepository,
+                              RoleRepository roleRepository,
+                              SCIMService scimService,
+                              PlatformTransactionManager transactionManager,
+                              ScheduledJobRunner scheduledJobRunner,
+                              @Value("${scim.retry.enabled}") boolean enabled,
+                              @Value("${cron.node-cron-job-responsible}") boolean cronJobResponsible,
+                              @Value("${scim.retry.batch-size}") int batchSize,
+                              @Value("${scim.retry.max-attempts}") int maxAttempts,
+                              @Value("${scim.retry.initial-backoff-seconds}") long initialBackoffSeconds,
+                              @Value("${scim.retry.max-backoff-seconds}") long maxBackoffSeconds) {
+        this.scimFailureRepository = scimFailureRepository;
+        this.userRepository = userRepository;
+        this.roleRepository = roleRepository;
+        this.scimService = scimService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.scheduledJobRunner = scheduledJobRunner;
+        this.enabled = enabled;
+        this.cronJobResponsible = cronJobResponsible;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoff = Duration.ofSeconds(initialBackoffSeconds);
+        this.maxBackoff = Duration.ofSeconds(maxBackoffSeconds);
+    }
+
+    @Scheduled(fixedDelayString = "${scim.retry.delay-millis}")
+    public void retry() {
+        if (!enabled || !cronJobResponsible) {
+            return;
+        }
+        scheduledJobRunner.run("scim-failure-retrier", Duration.ZERO, this::retryFailures);
+    }
+
+    public int retryFailures() {
+        Instant now = Instant.now();
+        List<SCIMFailure> failures = scimFailureRepository.findRetryable(now, PageRequest.of(0, batchSize));
+        Map<Long, Instant> deferredApplications = new HashMap<>();
+        int succeeded = 0;
+        for (SCIMFailure failure : failures) {
+            Long applicationId = failure.getApplication().getId();
+            Instant deferredUntil = deferredApplications.get(applicationId);
+            if (deferredUntil != null) {
+                defer(failure, deferredUntil);
+            } else if (resend(failure)) {
+                succeeded++;
+            } else {
+                deferredApplications.put(applicationId, failed(failure, now));
+            }
+        }
+        if (!failures.isEmpty()) {
+            LOG.info(String.format("Retried %s SCIM failures, %s succeeded", failures.size(), succeeded));
+        }
+        return succeeded;
+    }
+
+    private boolean resend(SCIMFailure scimFailure) {
+        try {
+            ThreadLocalSCIMFailureStrategy.startIgnoringFailures();
+            transactionTemplate.executeWithoutResult(status -> {
+                Optional<Serializable> serializableOptional = doResend(scimFailure);
+                serializableOptional.ifPresent(serializable -> {
+                    if (serializable instanceof User user) {
+                        userRepository.save(user);
+                    } else if (serializable instanceof Role role) {
+                        roleRepository.save(role);
+                    }
+                });
+                scimFailureRepository.deleteById(scimFailure.getId());
+            });
+            return true;
+        } catch (RuntimeException e) {
+            LOG.debug(String.format("Retry of SCIM failure %s failed", scimFailure.getId()), e);
+            return false;
+        } finally {
+            ThreadLocalSCIMFailureStrategy.stopIgnoringFailures();
+        }
+    }
+
+    @SneakyThrows
+    private Optional<Serializable> doResend(SCIMFailure scimFailure) {
+        return scimService.resendScimFailure(scimFailure);
+    }
+
+    private Instant failed(SCIMFailure scimFailure, Instant now) {
+        int attempts = scimFailure.getAttempts() + 1;
+        Instant nextAttemptAt = now.plus(backoff(attempts));
+        boolean parked = attempts >= maxAttempts;
+        if (parked) {
+            LOG.warn(String.format("Parked SCIM failure %s for application %s after %s attempts",
+                    scimFailure.getId(),
+                    scimFailure.getApplication().getName(),
+                    attempts));
+        }
+        //Update instead of save, as the failure might be resent and deleted manually in the meantime
+        scimFailureRepository.updateRetryState(scimFailure.getId(), attempts, nextAttemptAt, parked);
+        return nextAttemptAt;
+    }
+
+    private void defer(SCIMFailure scimFailure, Instant nextAttemptAt) {
+        scimFailureRepository.updateRetryState(scimFailure.getId(), scimFailure.getAttempts(), nextAttemptAt, scimFailure.isParked());
+    }
+
+    /*
+     * Exponential backoff with 'equal jitter': half of the delay is fixed, the other half is random
+     */
+    Duration backoff(int attempts) {
+        long exponent = Math.min(attempts - 1, 30);
+        long backoffMillis = Math.min(maxBackoff.toMillis(), initialBackoff.toMillis() * (1L << exponent));
+        long half = backoffMillis / 2;
+        return Duration.ofMillis(half + ThreadLocalRandom.current().nextLong(half + 1));
+    }
+}
@@ -0,0 +1,44 @@
+package guests.scim;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.okhttp3.OkHttpConnectionPoolMetrics;
+import okhttp3.ConnectionPool;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+public class SCIMHttpClientConfiguration {
+
+    @Value("${scim.http.max-idle-connections}")
+    private int maxIdleConnections;
+
+    @Value("${scim.http.keep-alive-seconds}")
+    private long keepAliveSeconds;
+
+    /*
+     * One client - and therefore one connection pool - for all the SCIM requests. The per application timeouts are
+     * configured on clients derived with newBuilder, which share this connection pool. The number of concurrent requests
+     * per application is limited by the bulkhead in the CircuitBreakerRegistry, as the limits of the OkHttp Dispatcher
+     * only apply to asynchronous calls.
+     */
+    @Bean
+    public OkHttpClient scimOkHttpClient(MeterRegistry meterRegistry) {
+        ConnectionPool connectionPool = new ConnectionPool(maxIdleConnections, keepAliveSeconds, TimeUnit.SECONDS);
+        new OkHttpConnectionPoolMetrics(connectionPool, "scim.http.connection.pool", Tags.empty(), maxIdleConnections)
+                .bindTo(meterRegistry);
+        return new OkHttpClient.Builder()
+                .connectionPool(connectionPool)
+                //HTTP/2 is negotiated with ALPN when the application supports it
+                .protocols(List.of(Protocol.HTTP_2, Protocol.HTTP_1_1))
+                .retryOnConnectionFailure(true)
+                .eventListenerFactory(new ConnectionAcquisitionMetrics(meterRegistry))
+                .build();
+    }
+}
@@ -0,0 +1,53 @@
+package guests.scim;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import lombok.SneakyThrows;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * SCIM payloads are sent, stored and logged compact. The thread-safe ObjectWriters are created once per request type.
+ * Indentation is only added when a human reads the payload: the provisioning e-mail and the SCIMFailure details.
+ */
+@Component
+public class SCIMJson {
+
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter prettyWriter;
+    private final Map<Class<?>, ObjectWriter> writers = new ConcurrentHashMap<>();
+
+    @Autowired
+    public SCIMJson(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        this.prettyWriter = objectMapper.writerWithDefaultPrettyPrinter();
+        List.of(UserRequest.class, GroupRequest.class, GroupPatchRequest.class, BulkRequest.class).forEach(this::writer);
+    }
+
+    @SneakyThrows
+    public String compact(Object value) {
+        return writer(value.getClass()).writeValueAsString(value);
+    }
+
+    public String pretty(String json) {
+        if (!StringUtils.hasText(json)) {
+            return json;
+        }
+        try {
+            return prettyWriter.writeValueAsString(objectMapper.readTree(json));
+        } catch (JsonProcessingException e) {
+            //Not every message is JSON, e.g. the body of a failed DELETE
+            return json;
+        }
+    }
+
+    private ObjectWriter writer(Class<?> clazz) {
+        return writers.computeIfAbsent(clazz, objectMapper::writerFor);
+    }
+}
@@ -0,0 +1,418 @@
+package guests.scim;
+
+import guests.cron.ScheduledJobRunner;
+import guests.domain.*;
+import guests.repository.*;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.hibernate.Hibernate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import static guests.scim.SCIMServiceDefault.GROUP_API;
+import static guests.scim.SCIMServiceDefault.USER_API;
+
+/*
+ * Sends the pending outbox events to the applications. The events of one application are dispatched in order by a
+ * single worker, different applications are dispatched in parallel. No transaction is open during the exchange with
+ * the application, the serviceProviderId it returns is stored in a follow-up transaction. Failures of the application
+ * end up as a SCIMFailure like before, other errors leave the events in the outbox to be dispatched again with an
+ * exponential backoff. A deferred or parked event blocks the later events of its application to preserve the order.
+ * Across nodes the events of one application are dispatched by the node holding the lease lock of the application.
+ */
+@Component
+@ConditionalOnProperty(name = "scim.outbox.enabled", havingValue = "true")
+public class SCIMOutboxDispatcher {
+
+    private static final Log LOG = LogFactory.getLog(SCIMOutboxDispatcher.class);
+
+    private final SCIMOutboxEventRepository scimOutboxEventRepository;
+    private final SCIMServiceDefault scimServiceDefault;
+    private final ApplicationRepository applicationRepository;
+    private final UserRepository userRepository;
+    private final RoleRepository roleRepository;
+    private final UserRoleRepository userRoleRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final ScheduledJobRunner scheduledJobRunner;
+    private final ThreadPoolTaskExecutor executor;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final boolean cronJobResponsible;
+
+    private final Set<Long> applicationsInFlight = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean signalled = new AtomicBoolean();
+    private final AtomicLong queueDepth = new AtomicLong();
+    private final AtomicLong lagSeconds = new AtomicLong();
+    private final AtomicLong parkedCount = new AtomicLong();
+
+    @Autowired
+    public SCIMOutboxDispatcher(SCIMOutboxEventRepository scimOutboxEventRepository,
+                                SCIMServiceDefault scimServiceDefault,
+                                ApplicationRepository applicationRepository,
+                                UserRepository userRepository,
+                                RoleRepository roleRepository,
+                                UserRoleRepository userRoleRepository,
+                                PlatformTransactionManager transactionManager,
+                                MeterRegistry meterRegistry,
+                                ScheduledJobRunner scheduledJobRunner,
+                                @Value("${scim.outbox.pool-size}") int poolSize,
+                                @Value("${scim.outbox.batch-size}") int batchSize,
+                                @Value("${scim.outbox.max-attempts}") int maxAttempts,
+                                @Value("${scim.outbox.initial-backoff-seconds}") long initialBackoffSeconds,
+                                @Value("${scim.outbox.max-backoff-seconds}") long maxBackoffSeconds,
+                                @Value("${cron.node-cron-job-responsible}") boolean cronJobResponsible) {
+        this.scimOutboxEventRepository = scimOutboxEventRepository;
+        this.scimServiceDefault = scimServiceDefault;
+        this.applicationRepository = applicationRepository;
+        this.userRepository = userRepository;
+        this.roleRepository = roleRepository;
+        this.userRoleRepository = userRoleRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.meterRegistry = meterRegistry;
+        this.scheduledJobRunner = scheduledJobRunner;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoff = Duration.ofSeconds(initialBackoffSeconds);
+        this.maxBackoff = Duration.ofSeconds(maxBackoffSeconds);
+        this.cronJobResponsible = cronJobResponsible;
+
+        this.executor = new ThreadPoolTaskExecutor();
+        this.executor.setCorePoolSize(poolSize);
+        this.executor.setMaxPoolSize(poolSize);
+        this.executor.setThreadNamePrefix("scim-outbox-");
+        this.executor.initialize();
+
+        Gauge.builder("scim.outbox.queue.depth", queueDepth, AtomicLong::get)
+                .description("Number of pending SCIM outbox events")
+                .register(meterRegistry);
+        Gauge.builder("scim.outbox.lag", lagSeconds, AtomicLong::get)
+                .description("Age in seconds of the oldest pending SCIM outbox event")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        Gauge.builder("scim.outbox.parked", parkedCount, AtomicLong::get)
+                .description("Number of parked SCIM outbox events, which block the later events of their application")
+                .register(meterRegistry);
+    }
+
+    /*
+     * Called after a transaction with outbox events is committed. Multiple signals are coalesced in one dispatch run.
+     */
+    public void signal() {
+        if (cronJobResponsible && signalled.compareAndSet(false, true)) {
+            executor.execute(() -> {
+                signalled.set(false);
+                dispatch();
+            });
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${scim.outbox.poll-delay-millis}")
+    public void dispatch() {
+        if (!cronJobResponsible) {
+            return;
+        }
+        List<Long> applicationIdentifiers = scimOutboxEventRepository.findDistinctApplicationIds();
+        applicationIdentifiers.forEach(applicationId -> {
+            if (applicationsInFlight.add(applicationId)) {
+                executor.execute(() -> drain(applicationId));
+            }
+        });
+        queueDepth.set(scimOutboxEventRepository.countByParked(false));
+        parkedCount.set(scimOutboxEventRepository.countByParked(true));
+        Instant oldest = scimOutboxEventRepository.findOldestCreatedAt();
+        lagSeconds.set(oldest == null ? 0L : Math.max(0L, Duration.between(oldest, Instant.now()).getSeconds()));
+    }
+
+    /*
+     * Dispatches a parked event again, as if it was never dispatched. The later events of the application are
+     * dispatched after it.
+     */
+    public void resend(SCIMOutboxEvent event) {
+        LOG.info(String.format("Resending parked SCIM outbox event %s for application %s", event.getId(), event.getApplicationId()));
+        scimOutboxEventRepository.updateRetryState(event.getId(), 0, null, false);
+        signal();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private void drain(Long applicationId) {
+        try {
+            //The lock per application preserves the order of the events when multiple nodes dispatch
+            scheduledJobRunner.run("scim-outbox", String.valueOf(applicationId), Duration.ZERO, () -> drainEvents(applicationId));
+        } finally {
+            applicationsInFlight.remove(applicationId);
+        }
+    }
+
+    private void drainEvents(Long applicationId) {
+        List<SCIMOutboxEvent> events;
+        do {
+            events = scimOutboxEventRepository.findByApplicationIdOrderByIdAsc(applicationId, PageRequest.of(0, batchSize));
+            int i = 0;
+            while (i < events.size()) {
+                if (!isDue(events.get(i))) {
+                    //Only the first events of the application can be deferred or parked, the later events must wait
+                    return;
+                }
+                int end = coalesce(events, i);
+                if (!process(events.subList(i, end))) {
+                    return;
+                }
+                i = end;
+            }
+        } while (!events.isEmpty() && scheduledJobRunner.renew());
+    }
+
+    private boolean isDue(SCIMOutboxEvent event) {
+        return !event.isParked() && (event.getNextAttemptAt() == null || !event.getNextAttemptAt().isAfter(Instant.now()));
+    }
+
+    /*
+     * Consecutive membership events for the same role and operation are sent as one request. Only consecutive events
+     * are coalesced to preserve the order of the events.
+     */
+    private int coalesce(List<SCIMOutboxEvent> events, int start) {
+        SCIMOutboxEvent first = events.get(start);
+        int end = start + 1;
+        if (SCIMOutboxEventType.ROLE_MEMBERSHIP.equals(first.getEventType())) {
+            while (end < events.size() && isSameRoleMembership(first, events.get(end))) {
+                end++;
+            }
+        }
+        return end;
+    }
+
+    private boolean isSameRoleMembership(SCIMOutboxEvent first, SCIMOutboxEvent other) {
+        return SCIMOutboxEventType.ROLE_MEMBERSHIP.equals(other.getEventType()) &&
+                first.getRoleId().equals(other.getRoleId()) &&
+                first.getOperationType().equals(other.getOperationType());
+    }
+
+    /*
+     * The users, roles and userRoles of the events are read in a short transaction. The exchange with the application
+     * runs on the detached entities without a transaction, so no pooled connection or row lock is held during the call.
+     * The serviceProviderIds returned by the application are written back in a second short transaction, which also
+     * deletes the events.
+     */
+    private boolean process(List<SCIMOutboxEvent> events) {
+        SCIMOutboxEvent first = events.get(0);
+        List<Long> identifiers = events.stream().map(SCIMOutboxEvent::getId).collect(Collectors.toList());
+        try {
+            Exchange exchange = transactionTemplate.execute(status -> prepare(events));
+            //Failures of the application itself are stored as SCIMFailure by the SCIMServiceDefault
+            exchange.request().run();
+            transactionTemplate.executeWithoutResult(status -> {
+                writeBack(exchange);
+                scimOutboxEventRepository.deleteAllByIdInBatch(identifiers);
+            });
+            meterRegistry.counter("scim.outbox.events", "type", first.getEventType().name(), "result", "success").increment(events.size());
+            return true;
+        } catch (RuntimeException e) {
+            LOG.error(String.format("Error dispatching SCIM outbox events %s", identifiers), e);
+            meterRegistry.counter("scim.outbox.events", "type", first.getEventType().name(), "result", "error").increment(events.size());
+            failed(events);
+            return false;
+        }
+    }
+
+    /*
+     * The events stay in the outbox and are dispatched again after the backoff, until then the dispatching of the later
+     * events of the application is stopped to preserve the order. After maxAttempts the events are parked: they remain
+     * in the outbox - still blocking the later events - until they are resent or deleted manually.
+     */
+    private void failed(List<SCIMOutboxEvent> events) {
+        Instant now = Instant.now();
+        events.forEach(event -> {
+            int attempts = event.getAttempts() + 1;
+            Instant nextAttemptAt = now.plus(backoff(attempts));
+            boolean parked = attempts >= maxAttempts;
+            if (parked) {
+                LOG.warn(String.format("Parked SCIM outbox event %s for application %s after %s attempts",
+                        event.getId(),
+                        event.getApplicationId(),
+                        attempts));
+                meterRegistry.counter("scim.outbox.events", "type", event.getEventType().name(), "result", "parked").increment();
+            }
+            try {
+                scimOutboxEventRepository.updateRetryState(event.getId(), attempts, nextAttemptAt, parked);
+            } catch (RuntimeException e) {
+                //The event is dispatched again without counting this attempt
+                LOG.error(String.format("Error updating the retry state of SCIM outbox event %s", event.getId()), e);
+            }
+        });
+    }
+
+    /*
+     * Exponential backoff with 'equal jitter': half of the delay is fixed, the other half is random
+     */
+    Duration backoff(int attempts) {
+        long exponent = Math.min(attempts - 1, 30);
+        long backoffMillis = Math.min(maxBackoff.toMillis(), initialBackoff.toMillis() * (1L << exponent));
+        long half = backoffMillis / 2;
+        return Duration.ofMillis(half + ThreadLocalRandom.current().nextLong(half + 1));
+    }
+
+    private Exchange prepare(List<SCIMOutboxEvent> events) {
+        SCIMOutboxEvent event = events.get(0);
+        return switch (event.getEventType()) {
+            case USER_CREATE -> userRoles(event)
+                    .map(userRoles -> new Exchange(() -> scimServiceDefault.newUserRequest(userRoles.user(), userRoles.application(), userRoles.userRoles()),
+                            Collections.emptyList(), userRoles.userRoles()))
+                    .orElse(Exchange.NONE);
+            case USER_UPDATE -> userRoles(event)
+                    .map(userRoles -> new Exchange(() -> scimServiceDefault.updateUserRequest(userRoles.user(), userRoles.application(), userRoles.userRoles()),
+                            Collections.emptyList(), userRoles.userRoles()))
+                    .orElse(Exchange.NONE);
+            case USER_DELETE -> deleteRequest(event, USER_API);
+            case ROLE_CREATE -> roleRepository.findById(event.getRoleId())
+                    .map(role -> new Exchange(() -> scimServiceDefault.newRoleRequest(role), List.of(role), Collections.emptyList()))
+                    .orElse(Exchange.NONE);
+            case ROLE_MEMBERSHIP -> roleRepository.findById(event.getRoleId())
+                    .map(role -> roleMemberships(events, role))
+                    .orElse(Exchange.NONE);
+            case ROLE_DELETE -> deleteRequest(event, GROUP_API);
+        };
+    }
+
+    private Optional<UserRolesPerApplication> userRoles(SCIMOutboxEvent event) {
+        return userRepository.findById(event.getUserId()).flatMap(user -> {
+            //The applications of the roles are needed to group the userRoles
+            user.getUserRoles().forEach(userRole -> Hibernate.initialize(userRole.getRole().getApplication()));
+            return user.userRolesPerApplicationProvisioningEnabled()
+                    .entrySet()
+                    .stream()
+                    .filter(entry -> entry.getKey().getId().equals(event.getApplicationId()))
+                    .findFirst()
+                    .map(entry -> new UserRolesPerApplication(user, entry.getKey(), entry.getValue()));
+        });
+    }
+
+    private Exchange roleMemberships(List<SCIMOutboxEvent> events, Role role) {
+        OperationType operationType = OperationType.valueOf(events.get(0).getOperationType());
+        List<UserRole> userRoles;
+        if (OperationType.Add.equals(operationType)) {
+            //The user or userRole might be deleted before this event is dispatched
+            userRoles = events.stream()
+                    .map(event -> userRoleRepository.findByUserIdAndRoleId(event.getUserId(), role.getId()))
+                    .flatMap(Optional::stream)
+                    .collect(Collectors.toList());
+        } else {
+            //The userRoles are already deleted, we only need the serviceProviderId for the members to remove
+            userRoles = events.stream()
+                    .map(event -> {
+                        UserRole userRole = new UserRole(role, null);
+                        userRole.setServiceProviderId(event.getServiceProviderId());
+                        return userRole;
+                    })
+                    .collect(Collectors.toList());
+        }
+        if (userRoles.isEmpty()) {
+            return Exchange.NONE;
+        }
+        return new Exchange(() -> scimServiceDefault.updateRoleRequests(userRoles, operationType), List.of(role), userRoles);
+    }
+
+    private Exchange deleteRequest(SCIMOutboxEvent event, String api) {
+        return applicationRepository.findById(event.getApplicationId())
+                .map(application -> new Exchange(() -> scimServiceDefault.deleteRequest(
+                        application,
+                        event.getMessage(),
+                        api,
+                        new ServiceProviderIdentifierRef(event.getServiceProviderId())),
+                        Collections.emptyList(), Collections.emptyList()))
+                .orElse(Exchange.NONE);
+    }
+
+    /*
+     * The managed entities are updated instead of saving the detached ones, as the other attributes might have changed
+     * and the entities might be deleted during the exchange
+     */
+    private void writeBack(Exchange exchange) {
+        exchange.changedRoles().forEach(role -> roleRepository.findById(role.getId())
+                .ifPresent(managed -> managed.setServiceProviderId(role.getServiceProviderId())));
+        exchange.changedUserRoles().forEach(userRole -> userRoleRepository.findById(userRole.getId())
+                .ifPresent(managed -> managed.setServiceProviderId(userRole.getServiceProviderId())));
+    }
+
+    private record UserRolesPerApplication(User user, Application application, List<UserRole> userRoles) {
+    }
+
+    /*
+     * The request for the application with the serviceProviderIds of the involved roles and userRoles before the
+     * request, to detect the serviceProviderIds set by the request. Must be created in the transaction which reads
+     * the entities.
+     */
+    private static class Exchange {
+
+        private static final Exchange NONE = new Exchange(() -> {
+        }, Collections.emptyList(), Collections.emptyList());
+
+        private final Runnable request;
+        private final Map<Role, String> roles = new IdentityHashMap<>();
+        private final Map<UserRole, String> userRoles = new IdentityHashMap<>();
+
+        private Exchange(Runnable request, Collection<Role> roles, Collection<UserRole> userRoles) {
+            this.request = request;
+            roles.forEach(this::track);
+            userRoles.forEach(userRole -> {
+                //New userRoles only carry the serviceProviderId of a removed member
+                if (userRole.getId() != null) {
+                    this.userRoles.put(userRole, userRole.getServiceProviderId());
+                }
+                track(userRole.getRole());
+            });
+        }
+
+        private void track(Role role) {
+            //The exchange runs on the detached role
+            Hibernate.initialize(role.getApplication());
+            roles.put(role, role.getServiceProviderId());
+        }
+
+        private Runnable request() {
+            return request;
+        }
+
+        private List<Role> changedRoles() {
+            return changed(roles);
+        }
+
+        private List<UserRole> changedUserRoles() {
+            return changed(userRoles);
+        }
+
+        private static <T extends ServiceProviderIdentifier> List<T> changed(Map<T, String> serviceProviderIdentifiers) {
+            return serviceProviderIdentifiers.entrySet().stream()
+                    .filter(entry -> StringUtils.hasText(entry.getKey().getServiceProviderId()) &&
+                            !entry.getKey().getServiceProviderId().equals(entry.getValue()))
+                    .map(Map.Entry::getKey)
+                    .collect(Collectors.toList());
+        }
+    }
+}
@@ -5,6 +5,7 @@ import guests.domain.*;
 import lombok.SneakyThrows;
 
 import java.io.Serializable;
+import java.util.Collection;
 import java.util.Optional;
 
 public interface SCIMService {
@@ -13,6 +14,8 @@ public interface SCIMService {
 
     void updateUserRequest(User user);
 
+    void newUserRolesRequest(User user, Collection<UserRole> newUserRoles);
+
     void deleteUserRequest(User user);
 
     void deleteUserByInstitutionRequest(User user, Institution institution);
@@ -21,6 +24,8 @@ public interface SCIMService {
 
     void updateRoleRequest(UserRole userRole, OperationType operationType);
 
+    void updateRoleRequests(Collection<UserRole> userRoles, OperationType operationType);
+
     void deleteRolesRequest(Role role);
 
     Optional<Serializable> resendScimFailure(SCIMFailure scimFailure) throws JsonProcessingException;
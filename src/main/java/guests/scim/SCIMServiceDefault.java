@@ -10,6 +10,8 @@ import guests.repository.RoleRepository;
 import guests.repository.SCIMFailureRepository;
 import guests.repository.UserRepository;
 import guests.repository.UserRoleRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.SneakyThrows;
 import okhttp3.OkHttpClient;
 import org.apache.commons.logging.Log;
@@ -24,12 +26,15 @@ import org.springframework.http.RequestEntity;
 import org.springframework.http.client.OkHttp3ClientHttpRequestFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
 import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 
 import java.io.Serializable;
 import java.net.URI;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
@@ -39,6 +44,7 @@ public class SCIMServiceDefault implements SCIMService {
 
     public final static String USER_API = "users";
     public final static String GROUP_API = "groups";
+    public final static String BULK_API = "bulk";
 
     private static final Log LOG = LogFactory.getLog(SCIMServiceDefault.class);
 
@@ -48,14 +54,23 @@ public class SCIMServiceDefault implements SCIMService {
     private final ParameterizedTypeReference<String> stringParameterizedTypeReference = new ParameterizedTypeReference<>() {
     };
 
-    private final RestTemplate restTemplate = new RestTemplate();
+    private final ParameterizedTypeReference<BulkResponse> bulkResponseParameterizedTypeReference = new ParameterizedTypeReference<>() {
+    };
+
+    private final Map<String, RestTemplate> restTemplates = new ConcurrentHashMap<>();
+    private final OkHttpClient okHttpClient;
+    private final int connectTimeoutMillis;
+    private final int readTimeoutMillis;
+    private final CircuitBreakerRegistry circuitBreakerRegistry;
 
     private final SCIMFailureRepository scimFailureRepository;
     private final UserRepository userRepository;
     private final UserRoleRepository userRoleRepository;
     private final RoleRepository roleRepository;
     private final ObjectMapper objectMapper;
+    private final SCIMJson scimJson;
     private final MailBox mailBox;
+    private final MeterRegistry meterRegistry;
     private final String groupUrnPrefix;
 
     @Autowired
@@ -64,67 +79,107 @@ public class SCIMServiceDefault implements SCIMService {
                               UserRoleRepository userRoleRepository,
                               RoleRepository roleRepository,
                               ObjectMapper objectMapper,
+                              SCIMJson scimJson,
                               MailBox mailBox,
-                              @Value("${voot.group_urn_domain}") String groupUrnDomain) {
+                              CircuitBreakerRegistry circuitBreakerRegistry,
+                              OkHttpClient okHttpClient,
+                              MeterRegistry meterRegistry,
+                              @Value("${voot.group_urn_domain}") String groupUrnDomain,
+                              @Value("${scim.connect-timeout-millis}") int connectTimeoutMillis,
+                              @Value("${scim.read-timeout-millis}") int readTimeoutMillis) {
         this.scimFailureRepository = scimFailureRepository;
         this.userRepository = userRepository;
         this.userRoleRepository = userRoleRepository;
         this.roleRepository = roleRepository;
         this.objectMapper = objectMapper;
+        this.scimJson = scimJson;
         this.mailBox = mailBox;
+        this.meterRegistry = meterRegistry;
         this.groupUrnPrefix = String.format("urn:collab:group:%s", groupUrnDomain);
-        // Otherwise, we can't use method PATCH
-        OkHttpClient.Builder builder = new OkHttpClient.Builder();
-        builder.connectTimeout(1, TimeUnit.MINUTES);
-        builder.retryOnConnectionFailure(true);
-        restTemplate.setRequestFactory(new OkHttp3ClientHttpRequestFactory(builder.build()));
+        this.circuitBreakerRegistry = circuitBreakerRegistry;
+        this.connectTimeoutMillis = connectTimeoutMillis;
+        this.readTimeoutMillis = readTimeoutMillis;
+        this.okHttpClient = okHttpClient;
     }
 
     @Override
     @SneakyThrows
     public void newUserRequest(User user) {
         Map<Application, List<UserRole>> applicationListMap = user.userRolesPerApplicationProvisioningEnabled();
-        applicationListMap.forEach((application, userRoles) -> {
-            /*
-             * Contract of userRolesPerApplication is that there is at least one UserRole
-             *
-             * All userRoles in the same application have the same serviceProviderID
-             */
-            Optional<UserRole> userRoleProvisioned = getUserRoleProvisioned(userRoles);
-            if (userRoleProvisioned.isPresent()) {
-                UserRole userRole = userRoleProvisioned.get();
-                userRoles.forEach(ur -> ur.setServiceProviderId(userRole.getServiceProviderId()));
-            } else {
-                UserRole userRole = userRoles.get(0);
-                if (hasEmailHook(application)) {
-                    String serviceProviderID = UUID.randomUUID().toString();
-                    userRoles.forEach(ur -> ur.setServiceProviderId(serviceProviderID));
-                    String mailUserRequest = prettyJson(new UserRequest(user, userRole));
-                    this.newRequest(application, mailUserRequest, USER_API, userRole);
-                } else {
-                    String userRequest = prettyJson(new UserRequest(user));
-                    this.newRequest(application, userRequest, USER_API, userRole);
-                    userRoles.forEach(ur -> ur.setServiceProviderId(userRole.getServiceProviderId()));
-                }
-            }
-        });
+        applicationListMap.forEach((application, userRoles) -> this.newUserRequest(user, application, userRoles));
     }
 
     @Override
     @SneakyThrows
     public void updateUserRequest(User user) {
-        user.userRolesPerApplicationProvisioningEnabled().forEach((application, userRoles) -> {
-            Optional<UserRole> userRoleProvisioned = getUserRoleProvisioned(userRoles);
-            if (userRoleProvisioned.isPresent()) {
-                UserRole userRole = userRoleProvisioned.get();
-                String userRequest = prettyJson(new UserRequest(user, userRole));
-                this.updateRequest(application, userRequest, USER_API, userRole, HttpMethod.PUT);
+        user.userRolesPerApplicationProvisioningEnabled().forEach((application, userRoles) -> this.updateUserRequest(user, application, userRoles));
+    }
+
+    void newUserRequest(User user, Application application, List<UserRole> userRoles) {
+        /*
+         * Contract of userRolesPerApplication is that there is at least one UserRole
+         *
+         * All userRoles in the same application have the same serviceProviderID
+         */
+        Optional<UserRole> userRoleProvisioned = getUserRoleProvisioned(userRoles);
+        if (userRoleProvisioned.isPresent()) {
+            UserRole userRole = userRoleProvisioned.get();
+            userRoles.forEach(ur -> ur.setServiceProviderId(userRole.getServiceProviderId()));
+        } else {
+            UserRole userRole = userRoles.get(0);
+            if (hasEmailHook(application)) {
+                String serviceProviderID = UUID.randomUUID().toString();
+                userRoles.forEach(ur -> ur.setServiceProviderId(serviceProviderID));
+                String mailUserRequest = userRequest(user, userRole);
+                this.newRequest(application, mailUserRequest, USER_API, userRole);
+            } else if (application.isProvisioningBulk()) {
+                this.bulkNewUserRequest(user, application, userRoles);
             } else {
-                this.newUserRequest(user);
+                String userRequest = scimJson.compact(new UserRequest(user));
+                this.newRequest(application, userRequest, USER_API, userRole);
+                userRoles.forEach(ur -> ur.setServiceProviderId(userRole.getServiceProviderId()));
+            }
+        }
+    }
+
+    void updateUserRequest(User user, Application application, List<UserRole> userRoles) {
+        Optional<UserRole> userRoleProvisioned = getUserRoleProvisioned(userRoles);
+        if (userRoleProvisioned.isPresent()) {
+            UserRole userRole = userRoleProvisioned.get();
+            this.updateRequest(application, userRequest(user, userRole), USER_API, userRole, HttpMethod.PUT);
+        } else {
+            this.newUserRequest(user, application, userRoles);
+        }
+    }
+
+    @Override
+    public void newUserRolesRequest(User user, Collection<UserRole> newUserRoles) {
+        Set<Long> newRoleIdentifiers = newUserRoles.stream()
+                .map(userRole -> userRole.getRole().getId())
+                .collect(Collectors.toSet());
+        user.userRolesPerApplicationProvisioningEnabled().forEach((application, userRoles) -> {
+            boolean membershipsIncluded = membershipsIncludedInNewUserRequest(application, userRoles);
+            if (userRoles.stream().anyMatch(userRole -> !StringUtils.hasText(userRole.getServiceProviderId()))) {
+                this.newUserRequest(user, application, userRoles);
+            }
+            List<UserRole> newUserRolesOfApplication = userRoles.stream()
+                    .filter(userRole -> newRoleIdentifiers.contains(userRole.getRole().getId()))
+                    .collect(Collectors.toList());
+            if (!membershipsIncluded && !newUserRolesOfApplication.isEmpty()) {
+                this.updateRoleRequests(newUserRolesOfApplication, OperationType.Add);
             }
         });
     }
 
+    /*
+     * In bulk mode the request that creates the user also contains the memberships of all the userRoles
+     */
+    static boolean membershipsIncludedInNewUserRequest(Application application, List<UserRole> userRoles) {
+        return application.isProvisioningBulk() &&
+                !StringUtils.hasText(application.getProvisioningHookEmail()) &&
+                getUserRoleProvisioned(userRoles).isEmpty();
+    }
+
     @Override
     @SneakyThrows
     public void deleteUserRequest(User user) {
@@ -135,8 +190,7 @@ public class SCIMServiceDefault implements SCIMService {
             Optional<UserRole> userRoleProvisioned = getUserRoleProvisioned(userRoles);
             if (userRoleProvisioned.isPresent()) {
                 UserRole userRole = userRoleProvisioned.get();
-                String userRequest = prettyJson(new UserRequest(user, userRole));
-                this.deleteRequest(application, userRequest, USER_API, userRole);
+                this.deleteRequest(application, userRequest(user, userRole), USER_API, userRole);
             }
         });
     }
@@ -158,8 +212,7 @@ public class SCIMServiceDefault implements SCIMService {
             Optional<UserRole> userRoleProvisioned = getUserRoleProvisioned(userRoles);
             if (userRoleProvisioned.isPresent()) {
                 UserRole userRole = userRoleProvisioned.get();
-                String userRequest = prettyJson(new UserRequest(user, userRole));
-                this.deleteRequest(application, userRequest, USER_API, userRole);
+                this.deleteRequest(application, userRequest(user, userRole), USER_API, userRole);
             }
         });
 
@@ -175,15 +228,31 @@ public class SCIMServiceDefault implements SCIMService {
         doUpdateRoleRequest(userRole, operationType, Collections.emptyList());
     }
 
+    @Override
+    public void updateRoleRequests(Collection<UserRole> userRoles, OperationType operationType) {
+        Collection<UserRole> userRolesToBeDeleted = OperationType.Remove.equals(operationType) ? userRoles : Collections.emptyList();
+        userRoles.stream()
+                .collect(Collectors.groupingBy(userRole -> userRole.getRole().getId(), LinkedHashMap::new, Collectors.toList()))
+                .values()
+                .forEach(userRolesOfRole -> doUpdateRoleRequests(userRolesOfRole, operationType, userRolesToBeDeleted));
+    }
+
     @Override
     public void deleteRolesRequest(Role role) {
         if (role.getApplication().provisioningEnabled() && StringUtils.hasText(role.getServiceProviderId())) {
-            String externalId = GroupURN.urnFromRole(groupUrnPrefix, role);
-            String groupRequest = prettyJson(new GroupRequest(externalId, role, role.getName(), Collections.emptyList()));
-            this.deleteRequest(role.getApplication(), groupRequest, GROUP_API, role);
+            this.deleteRequest(role.getApplication(), deleteGroupRequest(role), GROUP_API, role);
         }
     }
 
+    String userRequest(User user, UserRole userRole) {
+        return scimJson.compact(new UserRequest(user, userRole));
+    }
+
+    String deleteGroupRequest(Role role) {
+        String externalId = GroupURN.urnFromRole(groupUrnPrefix, role);
+        return scimJson.compact(new GroupRequest(externalId, role, role.getName(), Collections.emptyList()));
+    }
+
     @Override
     public Optional<Serializable> resendScimFailure(SCIMFailure scimFailure) throws JsonProcessingException {
         Map<String, Object> request = StringUtils.hasText(scimFailure.getMessage()) ? objectMapper.readValue(scimFailure.getMessage(), new TypeReference<>() {
@@ -266,7 +335,15 @@ public class SCIMServiceDefault implements SCIMService {
     }
 
     private void doUpdateRoleRequest(UserRole userRole, OperationType operationType, Collection<UserRole> userRolesToBeDeleted) {
-        Role role = userRole.getRole();
+        doUpdateRoleRequests(Collections.singletonList(userRole), operationType, userRolesToBeDeleted);
+    }
+
+    /*
+     * All userRoles must belong to the same role, which results in one PATCH with an operation per userRole or in one PUT
+     * with the final members
+     */
+    private void doUpdateRoleRequests(List<UserRole> userRolesOfRole, OperationType operationType, Collection<UserRole> userRolesToBeDeleted) {
+        Role role = userRolesOfRole.get(0).getRole();
         Application application = role.getApplication();
         if (application.provisioningEnabled()) {
             if (StringUtils.hasText(role.getServiceProviderId())) {
@@ -275,7 +352,7 @@ public class SCIMServiceDefault implements SCIMService {
                     String groupRequest = initiateGroupRequest(role, userRoles);
                     this.updateRequest(application, groupRequest, GROUP_API, role, HttpMethod.PUT);
                 } else {
-                    String groupRequest = patchGroupRequest(role, userRole, operationType);
+                    String groupRequest = patchGroupRequest(role, userRolesOfRole, operationType);
                     this.updateRequest(application, groupRequest, GROUP_API, role, HttpMethod.PATCH);
                 }
             } else {
@@ -285,25 +362,151 @@ public class SCIMServiceDefault implements SCIMService {
     }
 
     private String initiateGroupRequest(Role role, List<UserRole> userRoles) {
+        String externalId = GroupURN.urnFromRole(groupUrnPrefix, role);
+        return scimJson.compact(new GroupRequest(externalId, role, role.getName(), members(userRoles)));
+    }
+
+    private List<Member> members(List<UserRole> userRoles) {
         Collection<Member> members = userRoles.stream()
                 .map(userRole -> new Member(userRole.getServiceProviderId()))
                 .filter(member -> StringUtils.hasText(member.getValue()))
                 .collect(Collectors.toMap(
                         Member::getValue,
                         member -> member,
-                        (a1, a2) -> a1))
+                        (a1, a2) -> a1,
+                        LinkedHashMap::new))
                 .values();
+        return new ArrayList<>(members);
+    }
+
+    /*
+     * Creates the user and the memberships of all userRoles in one bulk request. The group operations refer to the new
+     * user with its bulkId. Every failed operation is stored as a separate SCIMFailure - with the bulkId reference
+     * resolved - so it can be resent on its own.
+     *
+     * Updates and deletes of users and the membership updates are not bulked, also not for bulk applications: a user
+     * update is a single request per application, and the deletes and membership updates are dispatched by the outbox
+     * per event - coalesced per role - to preserve their order.
+     */
+    private void bulkNewUserRequest(User user, Application application, List<UserRole> userRoles) {
+        String userBulkId = String.format("user-%s", user.getId());
+        String bulkIdReference = String.format("bulkId:%s", userBulkId);
+        List<BulkOperation> operations = new ArrayList<>();
+        BulkOperation userOperation = new BulkOperation(HttpMethod.POST.name(), userBulkId, "/" + USER_API,
+                new UserRequest(user), USER_API, userRoles.get(0));
+        operations.add(userOperation);
+        userRoles.stream()
+                .map(UserRole::getRole)
+                .collect(Collectors.toMap(Role::getId, role -> role, (r1, r2) -> r1, LinkedHashMap::new))
+                .values()
+                .forEach(role -> operations.add(bulkGroupOperation(application, role, bulkIdReference)));
+        //Let the service provider process all operations, failures are handled per operation
+        BulkRequest bulkRequest = new BulkRequest(operations.size(), operations);
+
+        URI uri = URI.create(String.format("%s/%s", application.getProvisioningHookUrl(), BULK_API));
+        RequestEntity<String> requestEntity = new RequestEntity<>(scimJson.compact(bulkRequest), httpHeaders(application), HttpMethod.POST, uri);
+        BulkResponse bulkResponse;
+        try {
+            LOG.info(String.format("Send SCIM bulk request with %s operations to %s for application %s",
+                    operations.size(),
+                    uri,
+                    application.getName()));
+            bulkResponse = guardedExchange(requestEntity, bulkResponseParameterizedTypeReference, application);
+        } catch (RestClientException e) {
+            LOG.error("Exception in SCIM bulk exchange", e);
+            if (ThreadLocalSCIMFailureStrategy.ignoreFailures()) {
+                throw e;
+            }
+            //Resending the user creation results in a new bulk request including the memberships
+            saveSCIMFailure(bulkOperationFailure(userOperation, application));
+            return;
+        }
+        Map<String, BulkResponse.OperationResponse> responses = bulkResponse == null ? Collections.emptyMap() :
+                bulkResponse.getOperations().stream()
+                        .filter(response -> StringUtils.hasText(response.getBulkId()))
+                        .collect(Collectors.toMap(BulkResponse.OperationResponse::getBulkId, response -> response, (r1, r2) -> r1));
+
+        BulkResponse.OperationResponse userResponse = responses.get(userBulkId);
+        if (userResponse == null || !userResponse.isSuccess() || !StringUtils.hasText(userResponse.resourceId())) {
+            logBulkOperationFailure(userOperation, userResponse, application);
+            if (ThreadLocalSCIMFailureStrategy.ignoreFailures()) {
+                throw new RestClientException(String.format("SCIM bulk user creation failed for application %s", application.getName()));
+            }
+            //The group operations depend on the user, they are part of the bulk request when the user creation is resent
+            saveSCIMFailure(bulkOperationFailure(userOperation, application));
+            return;
+        }
+        String serviceProviderId = userResponse.resourceId();
+        userRoles.forEach(userRole -> userRole.setServiceProviderId(serviceProviderId));
+
+        operations.stream()
+                .filter(operation -> operation != userOperation)
+                .forEach(operation -> {
+                    BulkResponse.OperationResponse response = responses.get(operation.getBulkId());
+                    if (response != null && response.isSuccess()) {
+                        String resourceId = response.resourceId();
+                        if (HttpMethod.POST.name().equals(operation.getMethod()) && StringUtils.hasText(resourceId)) {
+                            operation.getServiceProviderIdentifier().setServiceProviderId(resourceId);
+                        }
+                    } else {
+                        logBulkOperationFailure(operation, response, application);
+                        SCIMFailure scimFailure = bulkOperationFailure(operation, application);
+                        scimFailure.setMessage(scimFailure.getMessage().replace(bulkIdReference, serviceProviderId));
+                        saveSCIMFailure(scimFailure);
+                    }
+                });
+    }
+
+    private BulkOperation bulkGroupOperation(Application application, Role role, String bulkIdReference) {
+        String bulkId = String.format("role-%s", role.getId());
         String externalId = GroupURN.urnFromRole(groupUrnPrefix, role);
-        return prettyJson(new GroupRequest(externalId, role, role.getName(), new ArrayList<>(members)));
+        if (!StringUtils.hasText(role.getServiceProviderId())) {
+            List<Member> members = members(getUserRoles(role, Collections.emptyList()));
+            members.add(new Member(bulkIdReference));
+            GroupRequest groupRequest = new GroupRequest(externalId, role.getName(), members);
+            return new BulkOperation(HttpMethod.POST.name(), bulkId, "/" + GROUP_API, groupRequest, GROUP_API, role);
+        }
+        String path = String.format("/%s/%s", GROUP_API, role.getServiceProviderId());
+        if (application.isUpdateRolePutMethod()) {
+            List<Member> members = members(getUserRoles(role, Collections.emptyList()));
+            members.add(new Member(bulkIdReference));
+            GroupRequest groupRequest = new GroupRequest(externalId, role, role.getName(), members);
+            return new BulkOperation(HttpMethod.PUT.name(), bulkId, path, groupRequest, GROUP_API, role);
+        }
+        GroupPatchRequest groupPatchRequest = new GroupPatchRequest(externalId, role.getServiceProviderId(),
+                new Operation(OperationType.Add, bulkIdReference));
+        return new BulkOperation(HttpMethod.PATCH.name(), bulkId, path, groupPatchRequest, GROUP_API, role);
     }
 
-    private String patchGroupRequest(Role role, UserRole userRole, OperationType operationType) {
+    private SCIMFailure bulkOperationFailure(BulkOperation operation, Application application) {
+        return new SCIMFailure(
+                scimJson.compact(operation.getData()),
+                operation.getApi(),
+                operation.getMethod(),
+                application.getProvisioningHookUrl() + operation.getPath(),
+                operation.getServiceProviderIdentifier().getServiceProviderId(),
+                application);
+    }
+
+    private void logBulkOperationFailure(BulkOperation operation, BulkResponse.OperationResponse response, Application application) {
+        LOG.error(String.format("SCIM bulk operation %s %s for application %s failed with status %s and response %s",
+                operation.getMethod(),
+                operation.getPath(),
+                application.getName(),
+                response != null ? response.getStatus() : "missing",
+                response != null ? response.getResponse() : null));
+    }
+
+    private String patchGroupRequest(Role role, List<UserRole> userRoles, OperationType operationType) {
         String externalId = GroupURN.urnFromRole(groupUrnPrefix, role);
-        GroupPatchRequest request = new GroupPatchRequest(externalId, role.getServiceProviderId(), new Operation(operationType, userRole));
-        return prettyJson(request);
+        List<Operation> operations = userRoles.stream()
+                .map(userRole -> new Operation(operationType, userRole))
+                .collect(Collectors.toList());
+        GroupPatchRequest request = new GroupPatchRequest(externalId, role.getServiceProviderId(), operations);
+        return scimJson.compact(request);
     }
 
-    private Optional<UserRole> getUserRoleProvisioned(List<UserRole> userRoles) {
+    static Optional<UserRole> getUserRoleProvisioned(List<UserRole> userRoles) {
         return userRoles.stream()
                 .filter(userRole -> StringUtils.hasText(userRole.getServiceProviderId()))
                 .findFirst();
@@ -319,7 +522,7 @@ public class SCIMServiceDefault implements SCIMService {
     @SneakyThrows
     private void newRequest(Application application, String request, String apiType, ServiceProviderIdentifier serviceProviderIdentifier) {
         if (hasEmailHook(application)) {
-            mailBox.sendProvisioningMail(String.format("SCIM %s: CREATE", apiType), request, application.getProvisioningHookEmail());
+            mailBox.sendProvisioningMail(String.format("SCIM %s: CREATE", apiType), scimJson.pretty(request), application.getProvisioningHookEmail());
         } else {
             URI uri = this.provisioningUri(application, apiType, Optional.empty());
             RequestEntity<String> requestEntity = new RequestEntity<>(request, httpHeaders(application), HttpMethod.POST, uri);
@@ -338,7 +541,7 @@ public class SCIMServiceDefault implements SCIMService {
                                ServiceProviderIdentifier serviceProviderIdentifier,
                                HttpMethod httpMethod) {
         if (hasEmailHook(application)) {
-            mailBox.sendProvisioningMail(String.format("SCIM %s: UPDATE", apiType), request, application.getProvisioningHookEmail());
+            mailBox.sendProvisioningMail(String.format("SCIM %s: UPDATE", apiType), scimJson.pretty(request), application.getProvisioningHookEmail());
         } else {
             URI uri = this.provisioningUri(application, apiType, Optional.of(serviceProviderIdentifier));
             RequestEntity<String> requestEntity = new RequestEntity<>(request, httpHeaders(application), httpMethod, uri);
@@ -347,9 +550,9 @@ public class SCIMServiceDefault implements SCIMService {
     }
 
     @SneakyThrows
-    private void deleteRequest(Application application, String request, String apiType, ServiceProviderIdentifier serviceProviderIdentifier) {
+    void deleteRequest(Application application, String request, String apiType, ServiceProviderIdentifier serviceProviderIdentifier) {
         if (hasEmailHook(application)) {
-            mailBox.sendProvisioningMail(String.format("SCIM %s: DELETE", apiType), request, application.getProvisioningHookEmail());
+            mailBox.sendProvisioningMail(String.format("SCIM %s: DELETE", apiType), scimJson.pretty(request), application.getProvisioningHookEmail());
         } else {
             URI uri = this.provisioningUri(application, apiType, Optional.of(serviceProviderIdentifier));
             HttpHeaders headers = new HttpHeaders();
@@ -365,13 +568,15 @@ public class SCIMServiceDefault implements SCIMService {
                                           ParameterizedTypeReference<T> typeReference,
                                           Application application) {
         try {
-            LOG.info(String.format("Send %s SCIM request with %s httpMethod %s and body %s to %s",
+            LOG.info(String.format("Send %s SCIM request with %s httpMethod %s to %s",
                     api,
                     requestEntity.getUrl(),
                     requestEntity.getMethod(),
-                    requestEntity.getBody(),
                     application.getName()));
-            return Optional.ofNullable(restTemplate.exchange(requestEntity, typeReference).getBody());
+            if (LOG.isDebugEnabled()) {
+                LOG.debug(String.format("SCIM request body %s", requestEntity.getBody()));
+            }
+            return Optional.ofNullable(guardedExchange(requestEntity, typeReference, application));
         } catch (RestClientException e) {
             LOG.error("Exception in SCIM exchange", e);
             if (ThreadLocalSCIMFailureStrategy.ignoreFailures()) {
@@ -385,14 +590,85 @@ public class SCIMServiceDefault implements SCIMService {
                         requestEntity.getUrl().toString(),
                         serviceProviderIdentifier.getServiceProviderId(),
                         application);
-                scimFailureRepository.save(scimFailure);
-                mailBox.sendScimFailureMail(scimFailure);
+                saveSCIMFailure(scimFailure);
                 return Optional.empty();
             }
 
         }
     }
 
+    private void saveSCIMFailure(SCIMFailure scimFailure) {
+        scimFailureRepository.save(scimFailure);
+        mailBox.sendScimFailureMail(scimFailure);
+    }
+
+    private <T, S> T guardedExchange(RequestEntity<S> requestEntity,
+                                     ParameterizedTypeReference<T> typeReference,
+                                     Application application) {
+        CircuitBreakerRegistry.ApplicationGuard guard = circuitBreakerRegistry.guard(application);
+        if (!guard.bulkhead().tryAcquire()) {
+            rejected(application);
+            throw new CircuitBreakerOpenException(String.format("Too many concurrent SCIM requests for application %s", application.getName()));
+        }
+        try {
+            CircuitBreaker circuitBreaker = guard.circuitBreaker();
+            if (!circuitBreaker.tryAcquirePermission()) {
+                rejected(application);
+                throw new CircuitBreakerOpenException(String.format("Circuit breaker open for application %s", application.getName()));
+            }
+            long start = System.nanoTime();
+            String outcome = "error";
+            try {
+                T body = restTemplate(application).exchange(requestEntity, typeReference).getBody();
+                circuitBreaker.onSuccess();
+                outcome = "success";
+                return body;
+            } catch (HttpClientErrorException e) {
+                //The application is reachable, the request itself is wrong
+                circuitBreaker.onSuccess();
+                outcome = "client_error";
+                throw e;
+            } catch (RuntimeException e) {
+                circuitBreaker.onFailure();
+                outcome = e instanceof HttpServerErrorException ? "server_error" : "error";
+                throw e;
+            } finally {
+                exchangeTimer(requestEntity, application, outcome).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        } finally {
+            guard.bulkhead().release();
+        }
+    }
+
+    private Timer exchangeTimer(RequestEntity<?> requestEntity, Application application, String outcome) {
+        return Timer.builder("scim.requests")
+                .description("SCIM requests to the applications")
+                .tag("application", application.getName())
+                .tag("method", String.valueOf(requestEntity.getMethod()))
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private void rejected(Application application) {
+        meterRegistry.counter("scim.requests.rejected", "application", application.getName()).increment();
+    }
+
+    private RestTemplate restTemplate(Application application) {
+        int connectTimeout = application.getProvisioningConnectTimeoutMillis() != null ?
+                application.getProvisioningConnectTimeoutMillis() : connectTimeoutMillis;
+        int readTimeout = application.getProvisioningReadTimeoutMillis() != null ?
+                application.getProvisioningReadTimeoutMillis() : readTimeoutMillis;
+        //All RestTemplates share the connection pool of the OkHttpClient
+        return restTemplates.computeIfAbsent(String.format("%s:%s", connectTimeout, readTimeout), key -> {
+            OkHttpClient client = okHttpClient.newBuilder()
+                    .connectTimeout(connectTimeout, TimeUnit.MILLISECONDS)
+                    .readTimeout(readTimeout, TimeUnit.MILLISECONDS)
+                    .build();
+            // Otherwise, we can't use method PATCH
+            return new RestTemplate(new OkHttp3ClientHttpRequestFactory(client));
+        });
+    }
+
     private boolean hasEmailHook(Application application) {
         return StringUtils.hasText(application.getProvisioningHookEmail());
     }
@@ -405,11 +681,6 @@ public class SCIMServiceDefault implements SCIMService {
                 postFix));
     }
 
-    @SneakyThrows
-    private String prettyJson(Object obj) {
-        return objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(obj);
-    }
-
     private HttpHeaders httpHeaders(Application application) {
         HttpHeaders headers = new HttpHeaders();
         headers.setBasicAuth(application.getProvisioningHookUsername(), application.getProvisioningHookPassword());
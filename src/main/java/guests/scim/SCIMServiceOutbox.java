@@ -0,0 +1,175 @@
+package guests.scim;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import guests.domain.*;
+import guests.repository.SCIMOutboxEventRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.StringUtils;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static guests.scim.SCIMServiceDefault.getUserRoleProvisioned;
+import static guests.scim.SCIMServiceDefault.membershipsIncludedInNewUserRequest;
+
+/*
+ * Writes the provisioning events to the scim_outbox_events table in the transaction of the caller. The events are
+ * sent to the applications by the SCIMOutboxDispatcher after the transaction is committed.
+ */
+@Service
+@Primary
+@ConditionalOnProperty(name = "scim.outbox.enabled", havingValue = "true")
+public class SCIMServiceOutbox implements SCIMService {
+
+    private final SCIMOutboxEventRepository scimOutboxEventRepository;
+    private final SCIMServiceDefault scimServiceDefault;
+    private final SCIMOutboxDispatcher scimOutboxDispatcher;
+
+    @Autowired
+    public SCIMServiceOutbox(SCIMOutboxEventRepository scimOutboxEventRepository,
+                             SCIMServiceDefault scimServiceDefault,
+                             SCIMOutboxDispatcher scimOutboxDispatcher) {
+        this.scimOutboxEventRepository = scimOutboxEventRepository;
+        this.scimServiceDefault = scimServiceDefault;
+        this.scimOutboxDispatcher = scimOutboxDispatcher;
+    }
+
+    @Override
+    public void newUserRequest(User user) {
+        userEvents(user, SCIMOutboxEventType.USER_CREATE);
+    }
+
+    @Override
+    public void updateUserRequest(User user) {
+        userEvents(user, SCIMOutboxEventType.USER_UPDATE);
+    }
+
+    @Override
+    public void newUserRolesRequest(User user, Collection<UserRole> newUserRoles) {
+        Set<Long> newRoleIdentifiers = newUserRoles.stream()
+                .map(userRole -> userRole.getRole().getId())
+                .collect(Collectors.toSet());
+        user.userRolesPerApplicationProvisioningEnabled().forEach((application, userRoles) -> {
+            if (userRoles.stream().anyMatch(userRole -> !StringUtils.hasText(userRole.getServiceProviderId()))) {
+                SCIMOutboxEvent event = new SCIMOutboxEvent(SCIMOutboxEventType.USER_CREATE, application.getId());
+                event.setUserId(user.getId());
+                enqueue(event);
+            }
+            if (!membershipsIncludedInNewUserRequest(application, userRoles)) {
+                userRoles.stream()
+                        .filter(userRole -> newRoleIdentifiers.contains(userRole.getRole().getId()))
+                        .forEach(userRole -> this.updateRoleRequest(userRole, OperationType.Add));
+            }
+        });
+    }
+
+    @Override
+    public void deleteUserRequest(User user) {
+        deleteUserEvents(user, user.getUserRoles(), user.userRolesPerApplicationProvisioningEnabled());
+    }
+
+    @Override
+    public void deleteUserByInstitutionRequest(User user, Institution institution) {
+        List<UserRole> userRolesToDelete = user.getUserRoles()
+                .stream()
+                .filter(role -> role.getRole().getInstitutionId().equals(institution.getId()))
+                .collect(Collectors.toList());
+        Map<Application, List<UserRole>> userRolesPerApplication = user.userRolesPerApplicationProvisioningEnabled();
+        userRolesPerApplication.entrySet().removeIf(entry -> !entry.getKey().getInstitution().getId().equals(institution.getId()));
+        deleteUserEvents(user, userRolesToDelete, userRolesPerApplication);
+    }
+
+    @Override
+    public void newRoleRequest(Role role) {
+        Application application = role.getApplication();
+        if (application.provisioningEnabled()) {
+            SCIMOutboxEvent event = new SCIMOutboxEvent(SCIMOutboxEventType.ROLE_CREATE, application.getId());
+            event.setRoleId(role.getId());
+            enqueue(event);
+        }
+    }
+
+    @Override
+    public void updateRoleRequest(UserRole userRole, OperationType operationType) {
+        Role role = userRole.getRole();
+        Application application = role.getApplication();
+        if (application.provisioningEnabled()) {
+            SCIMOutboxEvent event = new SCIMOutboxEvent(SCIMOutboxEventType.ROLE_MEMBERSHIP, application.getId());
+            event.setRoleId(role.getId());
+            event.setUserId(userRole.getUser() != null ? userRole.getUser().getId() : null);
+            event.setOperationType(operationType.name());
+            event.setServiceProviderId(userRole.getServiceProviderId());
+            enqueue(event);
+        }
+    }
+
+    @Override
+    public void updateRoleRequests(Collection<UserRole> userRoles, OperationType operationType) {
+        //Consecutive membership events of the same role are coalesced by the SCIMOutboxDispatcher
+        userRoles.forEach(userRole -> this.updateRoleRequest(userRole, operationType));
+    }
+
+    @Override
+    public void deleteRolesRequest(Role role) {
+        Application application = role.getApplication();
+        if (application.provisioningEnabled() && StringUtils.hasText(role.getServiceProviderId())) {
+            SCIMOutboxEvent event = new SCIMOutboxEvent(SCIMOutboxEventType.ROLE_DELETE, application.getId());
+            event.setServiceProviderId(role.getServiceProviderId());
+            event.setMessage(scimServiceDefault.deleteGroupRequest(role));
+            enqueue(event);
+        }
+    }
+
+    @Override
+    public Optional<Serializable> resendScimFailure(SCIMFailure scimFailure) throws JsonProcessingException {
+        //Resending is done by an administrator who wants to see the result
+        return scimServiceDefault.resendScimFailure(scimFailure);
+    }
+
+    private void userEvents(User user, SCIMOutboxEventType eventType) {
+        user.userRolesPerApplicationProvisioningEnabled().keySet().forEach(application -> {
+            SCIMOutboxEvent event = new SCIMOutboxEvent(eventType, application.getId());
+            event.setUserId(user.getId());
+            enqueue(event);
+        });
+    }
+
+    private void deleteUserEvents(User user,
+                                  Collection<UserRole> userRolesToDelete,
+                                  Map<Application, List<UserRole>> userRolesPerApplication) {
+        //First the role updates, the events of one application are dispatched in order
+        userRolesToDelete.forEach(userRole -> this.updateRoleRequest(userRole, OperationType.Remove));
+        userRolesPerApplication.forEach((application, userRoles) ->
+                getUserRoleProvisioned(userRoles).ifPresent(userRole -> {
+                    SCIMOutboxEvent event = new SCIMOutboxEvent(SCIMOutboxEventType.USER_DELETE, application.getId());
+                    event.setUserId(user.getId());
+                    event.setServiceProviderId(userRole.getServiceProviderId());
+                    event.setMessage(scimServiceDefault.userRequest(user, userRole));
+                    enqueue(event);
+                }));
+    }
+
+    private void enqueue(SCIMOutboxEvent event) {
+        scimOutboxEventRepository.save(event);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    scimOutboxDispatcher.signal();
+                }
+            });
+        } else {
+            scimOutboxDispatcher.signal();
+        }
+    }
+}
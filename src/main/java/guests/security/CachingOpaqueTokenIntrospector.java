@@ -0,0 +1,103 @@
+package guests.security;
+
+import guests.config.ExpiringCache;
+import lombok.SneakyThrows;
+import org.springframework.security.oauth2.core.OAuth2AuthenticatedPrincipal;
+import org.springframework.security.oauth2.server.resource.introspection.BadOpaqueTokenException;
+import org.springframework.security.oauth2.server.resource.introspection.OpaqueTokenIntrospector;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Optional;
+import java.util.function.LongSupplier;
+
+/*
+ * Every call to /api/v1/** needs the introspection result of the bearer token. Active tokens are cached - keyed by a
+ * hash of the token - until they expire with an upper bound of maxTimeToLive. Inactive tokens are cached for a short
+ * period to prevent hammering the introspection endpoint. Other introspection failures (e.g. network errors) are never
+ * cached.
+ */
+public class CachingOpaqueTokenIntrospector implements OpaqueTokenIntrospector {
+
+    private final OpaqueTokenIntrospector delegate;
+    private final Duration maxTimeToLive;
+    private final Duration negativeTimeToLive;
+    private final Clock clock;
+    private final ExpiringCache<String, Introspection> cache;
+
+    public CachingOpaqueTokenIntrospector(OpaqueTokenIntrospector delegate,
+                                          int maximumSize,
+                                          Duration maxTimeToLive,
+                                          Duration negativeTimeToLive) {
+        this(delegate, maximumSize, maxTimeToLive, negativeTimeToLive, Clock.systemUTC(), System::nanoTime);
+    }
+
+    CachingOpaqueTokenIntrospector(OpaqueTokenIntrospector delegate,
+                                   int maximumSize,
+                                   Duration maxTimeToLive,
+                                   Duration negativeTimeToLive,
+                                   Clock clock,
+                                   LongSupplier nanoTime) {
+        this.delegate = delegate;
+        this.maxTimeToLive = maxTimeToLive;
+        this.negativeTimeToLive = negativeTimeToLive;
+        this.clock = clock;
+        this.cache = new ExpiringCache<>(maximumSize, nanoTime);
+    }
+
+    @Override
+    public OAuth2AuthenticatedPrincipal introspect(String token) {
+        String key = tokenHash(token);
+        Optional<Introspection> cached = cache.get(key);
+        if (cached.isPresent()) {
+            return cached.get().principal();
+        }
+        try {
+            OAuth2AuthenticatedPrincipal principal = delegate.introspect(token);
+            Duration timeToLive = timeToLive(principal);
+            if (isPositive(timeToLive)) {
+                cache.put(key, new Introspection(principal, null), timeToLive);
+            }
+            return principal;
+        } catch (BadOpaqueTokenException e) {
+            if (isPositive(negativeTimeToLive)) {
+                cache.put(key, new Introspection(null, e), negativeTimeToLive);
+            }
+            throw e;
+        }
+    }
+
+    private Duration timeToLive(OAuth2AuthenticatedPrincipal principal) {
+        Object expiresAt = principal.getAttribute("exp");
+        if (expiresAt instanceof Instant instant) {
+            Duration untilExpiry = Duration.between(clock.instant(), instant);
+            return untilExpiry.compareTo(maxTimeToLive) < 0 ? untilExpiry : maxTimeToLive;
+        }
+        return maxTimeToLive;
+    }
+
+    private boolean isPositive(Duration duration) {
+        return !duration.isNegative() && !duration.isZero();
+    }
+
+    @SneakyThrows
+    private String tokenHash(String token) {
+        MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
+        byte[] digest = messageDigest.digest(token.getBytes(StandardCharsets.UTF_8));
+        return Base64.getEncoder().encodeToString(digest);
+    }
+
+    private record Introspection(OAuth2AuthenticatedPrincipal authenticatedPrincipal, BadOpaqueTokenException exception) {
+
+        OAuth2AuthenticatedPrincipal principal() {
+            if (exception != null) {
+                throw exception;
+            }
+            return authenticatedPrincipal;
+        }
+    }
+}
@@ -1,25 +1,39 @@
 package guests.security;
 
 
+import guests.cron.ScheduledJobRunner;
 import guests.domain.User;
 import guests.domain.UserRole;
 import guests.repository.UserRepository;
 import guests.repository.UserRoleRepository;
 import guests.scim.OperationType;
 import guests.scim.SCIMService;
+import guests.usercount.UserCounts;
+import guests.voot.VootMembershipsCache;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.time.Period;
 import java.util.List;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
+/*
+ * Deletes the inactive users and the expired userRoles. The candidates are paged by id in chunks and every chunk is
+ * provisioned and deleted in its own transaction, so a run never holds more than one chunk in memory. The selection is
+ * based on the current state only, so after a crash the next run continues with the remaining candidates. A run is
+ * guarded by a lease lock, so only one node cleans at the same time.
+ */
 @Component
 public class ResourceCleaner {
 
@@ -28,63 +42,137 @@ public class ResourceCleaner {
     private final UserRepository userRepository;
     private final boolean cronJobResponsible;
     private final int lastActivityDurationDays;
+    private final int chunkSize;
     private final SCIMService scimService;
     private final UserRoleRepository userRoleRepository;
+    private final VootMembershipsCache vootMembershipsCache;
+    private final UserCounts userCounts;
+    private final MeterRegistry meterRegistry;
+    private final TransactionTemplate transactionTemplate;
+    private final ScheduledJobRunner scheduledJobRunner;
+    private final Duration lockAtLeastFor;
 
     @Autowired
     public ResourceCleaner(UserRepository userRepository,
                            UserRoleRepository userRoleRepository,
                            SCIMService scimService,
+                           VootMembershipsCache vootMembershipsCache,
+                           UserCounts userCounts,
+                           MeterRegistry meterRegistry,
+                           PlatformTransactionManager transactionManager,
+                           ScheduledJobRunner scheduledJobRunner,
                            @Value("${cron.last-activity-duration-days}") int lastActivityDurationDays,
+                           @Value("${cron.cleaner-chunk-size}") int chunkSize,
+                           @Value("${cron.lock-at-least-for-minutes}") long lockAtLeastForMinutes,
                            @Value("${cron.node-cron-job-responsible}") boolean cronJobResponsible) {
         this.userRepository = userRepository;
         this.userRoleRepository = userRoleRepository;
         this.lastActivityDurationDays = lastActivityDurationDays;
+        this.chunkSize = chunkSize;
         this.cronJobResponsible = cronJobResponsible;
         this.scimService = scimService;
+        this.vootMembershipsCache = vootMembershipsCache;
+        this.userCounts = userCounts;
+        this.meterRegistry = meterRegistry;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.scheduledJobRunner = scheduledJobRunner;
+        this.lockAtLeastFor = Duration.ofMinutes(lockAtLeastForMinutes);
     }
 
     @Scheduled(cron = "${cron.user-cleaner-expression}")
-    @Transactional
     public void clean() {
         if (!cronJobResponsible) {
             return;
         }
-        cleanUsers();
-        cleanUserRoles();
+        //Other nodes must not start a second run when their cron trigger fires slightly later
+        scheduledJobRunner.run("resource-cleaner", lockAtLeastFor, () -> {
+            cleanUsers();
+            cleanUserRoles();
+        });
     }
 
     private void cleanUsers() {
         Instant past = Instant.now().minus(Period.ofDays(lastActivityDurationDays));
-        List<User> users = userRepository.findByLastActivityBefore(past);
+        int deleted = inChunks(
+                lastId -> userRepository.findIdsByLastActivityBefore(past, lastId, PageRequest.of(0, chunkSize)),
+                this::deleteUsers);
+
+        meterRegistry.counter("resource.cleaner.deleted", "type", "users").increment(deleted);
+        LOG.info(String.format("Deleted %s users with no activity in the last %s days", deleted, lastActivityDurationDays));
+    }
+
+    private void cleanUserRoles() {
+        Instant now = Instant.now();
+        int deleted = inChunks(
+                lastId -> userRoleRepository.findIdsByEndDateBefore(now, lastId, PageRequest.of(0, chunkSize)),
+                this::deleteUserRoles);
+
+        meterRegistry.counter("resource.cleaner.deleted", "type", "user_roles").increment(deleted);
+        LOG.info(String.format("Deleted %s userRoles with an endDate in the past", deleted));
+    }
 
-        LOG.info(String.format("Deleted %s users with no activity in the last %s days: %s ",
+    /*
+     * Returns the subs of the deleted users
+     */
+    private List<String> deleteUsers(List<Long> identifiers) {
+        List<User> users = userRepository.findAllById(identifiers);
+
+        LOG.info(String.format("Deleting %s users with no activity in the last %s days: %s ",
                 users.size(),
                 lastActivityDurationDays,
                 users.stream().map(User::getEduPersonPrincipalName).collect(Collectors.toList())));
 
         users.forEach(scimService::deleteUserRequest);
-        userRepository.deleteAll(users);
+        //The userRoles, memberships and aups are removed by the foreign key cascades
+        userRepository.deleteByIdIn(identifiers);
+        userCounts.usersDeleted(users);
+        return users.stream().map(User::getSub).collect(Collectors.toList());
     }
 
-    private void cleanUserRoles() {
-        List<UserRole> userRoles = userRoleRepository.findByEndDateBefore(Instant.now());
+    /*
+     * Returns the subs of the users of the deleted userRoles
+     */
+    private List<String> deleteUserRoles(List<Long> identifiers) {
+        List<UserRole> userRoles = userRoleRepository.findAllById(identifiers);
 
-        LOG.info(String.format("Deleted %s userRoles with an endDate in the past: %s",
+        LOG.info(String.format("Deleting %s userRoles with an endDate in the past: %s",
                 userRoles.size(),
                 userRoles.stream()
                         .map(userRole -> String.format("%s - %s", userRole.getUser().getEduPersonPrincipalName(), userRole.getRole().getName()))
                         .collect(Collectors.toList())));
 
-        userRoles.forEach(userRole -> scimService.updateRoleRequest(userRole, OperationType.Remove));
-
-        userRoles.forEach(userRole -> {
-            User user = userRole.getUser();
-            user.removeUserRole(userRole);
-            userRepository.save(user);
-        });
-
+        scimService.updateRoleRequests(userRoles, OperationType.Remove);
+        userRoleRepository.deleteByIdIn(identifiers);
+        userCounts.userRolesDeleted(userRoles);
+        return userRoles.stream().map(userRole -> userRole.getUser().getSub()).distinct().collect(Collectors.toList());
+    }
 
+    /*
+     * A failed chunk is skipped and retried in the next run
+     */
+    private int inChunks(Function<Long, List<Long>> nextIdentifiers, Function<List<Long>, List<String>> deleteChunk) {
+        int deleted = 0;
+        Long lastId = 0L;
+        List<Long> identifiers;
+        do {
+            Long afterId = lastId;
+            identifiers = transactionTemplate.execute(status -> nextIdentifiers.apply(afterId));
+            if (identifiers.isEmpty()) {
+                break;
+            }
+            List<Long> chunk = identifiers;
+            try {
+                //Bulk deletes bypass the entity listeners, so the cached VOOT memberships are invalidated here
+                List<String> subs = transactionTemplate.execute(status -> deleteChunk.apply(chunk));
+                subs.forEach(vootMembershipsCache::invalidate);
+                deleted += chunk.size();
+            } catch (RuntimeException e) {
+                LOG.error(String.format("Error deleting chunk %s - %s, continuing with the next chunk",
+                        chunk.get(0), chunk.get(chunk.size() - 1)), e);
+            }
+            lastId = chunk.get(chunk.size() - 1);
+        } while (identifiers.size() == chunkSize && scheduledJobRunner.renew());
+        return deleted;
     }
 
 }
@@ -5,6 +5,7 @@ import guests.config.UserHandlerMethodArgumentResolver;
 import guests.repository.InstitutionRepository;
 import guests.repository.UserRepository;
 import guests.scim.SCIMService;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
@@ -16,11 +17,13 @@ import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
 import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.oauth2.server.resource.introspection.OpaqueTokenIntrospector;
 import org.springframework.security.oauth2.server.resource.introspection.SpringOpaqueTokenIntrospector;
 import org.springframework.security.web.access.intercept.FilterSecurityInterceptor;
 import org.springframework.web.method.support.HandlerMethodArgumentResolver;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
+import java.time.Duration;
 import java.util.List;
 
 @EnableWebSecurity
@@ -41,20 +44,35 @@ public class SecurityConfig {
         @Value("${oidc.rs_secret}")
         private String secret;
 
+        @Value("${oidc.introspection_cache.max_size}")
+        private int introspectionCacheMaxSize;
+
+        @Value("${oidc.introspection_cache.ttl_seconds}")
+        private long introspectionCacheTtlSeconds;
+
+        @Value("${oidc.introspection_cache.negative_ttl_seconds}")
+        private long introspectionCacheNegativeTtlSeconds;
+
         private final InstitutionRepository institutionRepository;
 
         private final UserRepository userRepository;
         private final SuperAdmin superAdmin;
         private final SCIMService scimService;
+        private final UserActivityTracker userActivityTracker;
+        private final MeterRegistry meterRegistry;
 
         public JWTSecurityConfig(InstitutionRepository institutionRepository,
                                  UserRepository userRepository,
                                  SuperAdmin superAdmin,
-                                 SCIMService scimService) {
+                                 SCIMService scimService,
+                                 UserActivityTracker userActivityTracker,
+                                 MeterRegistry meterRegistry) {
             this.institutionRepository = institutionRepository;
             this.userRepository = userRepository;
             this.superAdmin = superAdmin;
             this.scimService = scimService;
+            this.userActivityTracker = userActivityTracker;
+            this.meterRegistry = meterRegistry;
         }
 
         @Override
@@ -74,22 +92,36 @@ public class SecurityConfig {
                             .antMatchers("/api/v1/public/**", "/api/v1/validations/**")
                             .permitAll())
                     .addFilterAfter(
-                            new UserAuthenticationFilter(institutionRepository, userRepository, superAdmin, scimService),
+                            new UserAuthenticationFilter(institutionRepository, userRepository, superAdmin, scimService, userActivityTracker, meterRegistry),
                             FilterSecurityInterceptor.class)
                     .authorizeRequests(authz -> authz
                             .antMatchers("/api/v1/**").hasAuthority("SCOPE_openid")
                             .anyRequest().authenticated())
                     .oauth2ResourceServer(oauth2 -> oauth2.opaqueToken(token -> token
-                            .introspector(new SpringOpaqueTokenIntrospector(introspectionUri, clientId, secret))));
+                            .introspector(opaqueTokenIntrospector())));
+        }
+
+        private OpaqueTokenIntrospector opaqueTokenIntrospector() {
+            return new CachingOpaqueTokenIntrospector(
+                    new SpringOpaqueTokenIntrospector(introspectionUri, clientId, secret),
+                    introspectionCacheMaxSize,
+                    Duration.ofSeconds(introspectionCacheTtlSeconds),
+                    Duration.ofSeconds(introspectionCacheNegativeTtlSeconds));
         }
     }
 
     @Configuration
     public class MvcConfig implements WebMvcConfigurer {
 
+        private final UserRepository userRepository;
+
+        public MvcConfig(UserRepository userRepository) {
+            this.userRepository = userRepository;
+        }
+
         @Override
         public void addArgumentResolvers(List<HandlerMethodArgumentResolver> argumentResolvers) {
-            argumentResolvers.add(new UserHandlerMethodArgumentResolver());
+            argumentResolvers.add(new UserHandlerMethodArgumentResolver(userRepository));
         }
     }
 
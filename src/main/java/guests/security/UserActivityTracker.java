@@ -0,0 +1,77 @@
+package guests.security;
+
+import guests.domain.User;
+import guests.repository.UserRepository;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * Saving the User on every request only to bump the lastActivity caused a lot of write contention. Activity is now
+ * collected in memory and flushed periodically in batched updates. The granularity is coarse, but the ResourceCleaner
+ * only cares about days of inactivity.
+ */
+@Component
+public class UserActivityTracker {
+
+    private static final Log LOG = LogFactory.getLog(UserActivityTracker.class);
+
+    private static final int BATCH_SIZE = 500;
+
+    private final UserRepository userRepository;
+    private final Set<Long> touchedUserIdentifiers = ConcurrentHashMap.newKeySet();
+
+    @Autowired
+    public UserActivityTracker(UserRepository userRepository) {
+        this.userRepository = userRepository;
+    }
+
+    public void touch(User user) {
+        touch(user.getId());
+    }
+
+    public void touch(Long userId) {
+        if (userId != null) {
+            touchedUserIdentifiers.add(userId);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${cron.user-activity-flush-delay-millis}")
+    public void flush() {
+        if (touchedUserIdentifiers.isEmpty()) {
+            return;
+        }
+        List<Long> userIdentifiers = new ArrayList<>();
+        Iterator<Long> iterator = touchedUserIdentifiers.iterator();
+        while (iterator.hasNext()) {
+            userIdentifiers.add(iterator.next());
+            iterator.remove();
+        }
+        Instant lastActivity = Instant.now();
+        for (int i = 0; i < userIdentifiers.size(); i += BATCH_SIZE) {
+            List<Long> batch = userIdentifiers.subList(i, Math.min(i + BATCH_SIZE, userIdentifiers.size()));
+            try {
+                userRepository.updateLastActivity(lastActivity, batch);
+            } catch (RuntimeException e) {
+                LOG.error(String.format("Error updating last activity for %s users", batch.size()), e);
+                touchedUserIdentifiers.addAll(batch);
+            }
+        }
+        LOG.debug(String.format("Updated last activity for %s users", userIdentifiers.size()));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+}
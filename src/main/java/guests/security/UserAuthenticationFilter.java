@@ -4,9 +4,12 @@ import guests.config.SuperAdmin;
 import guests.domain.Authority;
 import guests.domain.Institution;
 import guests.domain.User;
+import guests.domain.UserPrincipal;
+import guests.exception.NotFoundException;
 import guests.repository.InstitutionRepository;
 import guests.repository.UserRepository;
 import guests.scim.SCIMService;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.springframework.http.HttpStatus;
@@ -22,7 +25,6 @@ import javax.servlet.ServletResponse;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
-import java.time.Instant;
 import java.util.Optional;
 
 public class UserAuthenticationFilter extends GenericFilterBean {
@@ -33,15 +35,21 @@ public class UserAuthenticationFilter extends GenericFilterBean {
     private final UserRepository userRepository;
     private final SuperAdmin superAdmin;
     private final SCIMService scimService;
+    private final UserActivityTracker userActivityTracker;
+    private final MeterRegistry meterRegistry;
 
     public UserAuthenticationFilter(InstitutionRepository institutionRepository,
                                     UserRepository userRepository,
                                     SuperAdmin superAdmin,
-                                    SCIMService scimService) {
+                                    SCIMService scimService,
+                                    UserActivityTracker userActivityTracker,
+                                    MeterRegistry meterRegistry) {
         this.institutionRepository = institutionRepository;
         this.userRepository = userRepository;
         this.superAdmin = superAdmin;
         this.scimService = scimService;
+        this.userActivityTracker = userActivityTracker;
+        this.meterRegistry = meterRegistry;
     }
 
     @Override
@@ -56,15 +64,24 @@ public class UserAuthenticationFilter extends GenericFilterBean {
         BearerTokenAuthentication tokenAuthentication = (BearerTokenAuthentication) authentication;
         String httpMethod = request.getMethod().toLowerCase();
         String edupersonPrincipalName = (String) tokenAuthentication.getTokenAttributes().get("eduperson_principal_name");
-        Optional<User> optionalUser = userRepository.findByEduPersonPrincipalNameIgnoreCase(edupersonPrincipalName);
-        if (optionalUser.isPresent()) {
-            User user = optionalUser.get();
-            tokenAuthentication.setDetails(user);
-            if (user.hasChanged(tokenAuthentication.getTokenAttributes())) {
+        Optional<UserPrincipal> optionalPrincipal = userRepository.findPrincipalByEduPersonPrincipalName(edupersonPrincipalName);
+        if (optionalPrincipal.isPresent()) {
+            UserPrincipal principal = optionalPrincipal.get();
+            if (principal.hasChanged(tokenAuthentication.getTokenAttributes())) {
+                //Only now the User aggregate is needed
+                User user = userRepository.findById(principal.getId()).orElseThrow(NotFoundException::new);
+                user.hasChanged(tokenAuthentication.getTokenAttributes());
+                //Save before and after, the SCIM update may be dispatched asynchronously and may assign serviceProviderIds
+                userRepository.save(user);
                 scimService.updateUserRequest(user);
+                userRepository.save(user);
+                principal = new UserPrincipal(user);
+                outcome("updated_user");
+            } else {
+                outcome("known_user");
             }
-            user.setLastActivity(Instant.now());
-            userRepository.save(user);
+            tokenAuthentication.setDetails(principal);
+            userActivityTracker.touch(principal.getId());
             filterChain.doFilter(servletRequest, servletResponse);
         } else {
             Optional<String> optionalEppn = superAdmin.getUsers().stream().filter(eppn -> eppn.equalsIgnoreCase(edupersonPrincipalName)).findAny();
@@ -72,16 +89,23 @@ public class UserAuthenticationFilter extends GenericFilterBean {
                 Institution institution = this.getOrProvisionInstitution();
                 User user = new User(institution, Authority.SUPER_ADMIN, tokenAuthentication.getTokenAttributes());
                 userRepository.save(user);
-                tokenAuthentication.setDetails(user);
+                tokenAuthentication.setDetails(new UserPrincipal(user));
+                outcome("super_admin_provisioned");
                 filterChain.doFilter(servletRequest, servletResponse);
             } else if (requestURI.startsWith("/api/v1/invitations") && (httpMethod.equals("post") || httpMethod.equals("get"))) {
+                outcome("unknown_user_invitation");
                 filterChain.doFilter(servletRequest, servletResponse);
             } else {
+                outcome("forbidden");
                 responseForbidden(servletResponse, authentication, requestURI);
             }
         }
     }
 
+    private void outcome(String outcome) {
+        meterRegistry.counter("user.authentication", "outcome", outcome).increment();
+    }
+
     private void responseForbidden(ServletResponse servletResponse, Authentication authentication, String requestURI) {
         LOG.warn(String.format("Returning 403 for authentication %s and requestURI %s", authentication, requestURI));
         HttpServletResponse response = (HttpServletResponse) servletResponse;
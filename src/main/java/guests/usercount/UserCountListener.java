@@ -0,0 +1,29 @@
+package guests.usercount;
+
+import org.springframework.beans.factory.ObjectProvider;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+
+/*
+ * Updates the user counts after a userRole or membership is inserted or deleted. The UserCounts are resolved lazily, as
+ * they depend on the EntityManagerFactory which creates this listener.
+ */
+public class UserCountListener {
+
+    private final ObjectProvider<UserCounts> userCounts;
+
+    public UserCountListener(ObjectProvider<UserCounts> userCounts) {
+        this.userCounts = userCounts;
+    }
+
+    @PostPersist
+    public void afterInsert(Object entity) {
+        userCounts.getObject().changed(entity, 1);
+    }
+
+    @PostRemove
+    public void afterDelete(Object entity) {
+        userCounts.getObject().changed(entity, -1);
+    }
+}
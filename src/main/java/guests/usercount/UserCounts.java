@@ -0,0 +1,262 @@
+package guests.usercount;
+
+import guests.cron.ScheduledJobRunner;
+import guests.domain.InstitutionMembership;
+import guests.domain.User;
+import guests.domain.UserRole;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.time.Duration;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/*
+ * The number of distinct users per application - users with at least one role of the application - and per
+ * institution - users with a membership of the institution - are kept in the user_counts table. The counts are updated
+ * in the transaction that adds or removes the userRoles and memberships. Changes that bypass the entity listeners, like
+ * the foreign key cascades of a deleted role, are corrected by the nightly reconciliation.
+ */
+@Component
+public class UserCounts {
+
+    private static final Log LOG = LogFactory.getLog(UserCounts.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final ScheduledJobRunner scheduledJobRunner;
+    private final Duration lockAtLeastFor;
+    private final boolean cronJobResponsible;
+
+    @Autowired
+    public UserCounts(JdbcTemplate jdbcTemplate,
+                      EntityManager entityManager,
+                      PlatformTransactionManager transactionManager,
+                      ScheduledJobRunner scheduledJobRunner,
+                      @Value("${cron.lock-at-least-for-minutes}") long lockAtLeastForMinutes,
+                      @Value("${cron.node-cron-job-responsible}") boolean cronJobResponsible) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.scheduledJobRunner = scheduledJobRunner;
+        this.lockAtLeastFor = Duration.ofMinutes(lockAtLeastForMinutes);
+        this.cronJobResponsible = cronJobResponsible;
+    }
+
+    public long applicationUserCount(Long applicationId) {
+        return userCount(Scope.APPLICATION, applicationId);
+    }
+
+    public long institutionUserCount(Long institutionId) {
+        return userCount(Scope.INSTITUTION, institutionId);
+    }
+
+    /*
+     * The users with a role in one of the applications of the institution. A user with roles in multiple applications
+     * is counted once per application.
+     */
+    public long institutionRoleHolderCount(Long institutionId) {
+        Long count = jdbcTemplate.queryForObject("SELECT COALESCE(SUM(uc.user_count), 0) FROM user_counts uc " +
+                        "INNER JOIN applications a ON uc.scope_id = a.id WHERE uc.scope = ? AND a.institution_id = ?",
+                Long.class, Scope.APPLICATION.name(), institutionId);
+        return count == null ? 0L : count;
+    }
+
+    /*
+     * Called by the UserCountListener after a userRole or membership is inserted (change = 1) or deleted (change = -1)
+     */
+    public void changed(Object entity, int change) {
+        if (entity instanceof UserRole userRole && userRole.getUser() != null) {
+            changed(Scope.APPLICATION, userRole.getRole().getApplication().getId(), userRole.getUser(), change);
+        } else if (entity instanceof InstitutionMembership membership && membership.getUser() != null) {
+            changed(Scope.INSTITUTION, membership.getInstitution().getId(), membership.getUser(), change);
+        }
+    }
+
+    /*
+     * The users are deleted with a bulk delete and the foreign key cascades, which bypass the entity listeners
+     */
+    public void usersDeleted(Collection<User> users) {
+        users.forEach(user -> {
+            applicationIdentifiers(user.getUserRoles()).forEach(applicationId -> increment(Scope.APPLICATION, applicationId, -1));
+            user.getInstitutionMemberships().stream()
+                    .map(membership -> membership.getInstitution().getId())
+                    .distinct()
+                    .forEach(institutionId -> increment(Scope.INSTITUTION, institutionId, -1));
+        });
+    }
+
+    /*
+     * The userRoles are deleted with a bulk delete, which bypasses the entity listeners
+     */
+    public void userRolesDeleted(Collection<UserRole> userRoles) {
+        Set<Long> deletedIdentifiers = userRoles.stream().map(UserRole::getId).collect(Collectors.toSet());
+        Map<User, List<UserRole>> userRolesPerUser = userRoles.stream()
+                .collect(Collectors.groupingBy(UserRole::getUser));
+        userRolesPerUser.forEach((user, deletedUserRoles) -> {
+            Set<Long> remainingApplicationIdentifiers = applicationIdentifiers(user.getUserRoles().stream()
+                    .filter(userRole -> !deletedIdentifiers.contains(userRole.getId()))
+                    .collect(Collectors.toList()));
+            applicationIdentifiers(deletedUserRoles).stream()
+                    .filter(applicationId -> !remainingApplicationIdentifiers.contains(applicationId))
+                    .forEach(applicationId -> increment(Scope.APPLICATION, applicationId, -1));
+        });
+    }
+
+    @Scheduled(cron = "${cron.user-counts-reconciliation-expression}")
+    public void reconcile() {
+        if (!cronJobResponsible) {
+            return;
+        }
+        scheduledJobRunner.run("user-counts-reconciliation", lockAtLeastFor, this::reconcileAll);
+    }
+
+    /*
+     * Each count is corrected in its own transaction and only when it was not changed concurrently, the next run
+     * corrects the remaining differences
+     */
+    public int reconcileAll() {
+        int corrected = 0;
+        for (Scope scope : Scope.values()) {
+            List<Long> identifiers = jdbcTemplate.queryForList(scope.identifiersQuery, Long.class);
+            for (Long identifier : identifiers) {
+                Boolean changed = transactionTemplate.execute(status -> reconcile(scope, identifier));
+                if (Boolean.TRUE.equals(changed)) {
+                    corrected++;
+                }
+            }
+            jdbcTemplate.update(String.format("DELETE FROM user_counts WHERE scope = ? AND scope_id NOT IN (%s)", scope.identifiersQuery),
+                    scope.name());
+        }
+        LOG.info(String.format("Reconciled the user counts, corrected %s counts", corrected));
+        return corrected;
+    }
+
+    private boolean reconcile(Scope scope, Long identifier) {
+        Long actual = jdbcTemplate.queryForObject(scope.countQuery, Long.class, identifier);
+        Optional<Long> stored = storedUserCount(scope, identifier);
+        if (stored.isEmpty()) {
+            return jdbcTemplate.update("INSERT IGNORE INTO user_counts (scope, scope_id, user_count) VALUES (?, ?, ?)",
+                    scope.name(), identifier, actual) > 0;
+        }
+        if (stored.get().equals(actual)) {
+            return false;
+        }
+        LOG.warn(String.format("Correcting the user count of %s %s from %s to %s", scope, identifier, stored.get(), actual));
+        return jdbcTemplate.update("UPDATE user_counts SET user_count = ? WHERE scope = ? AND scope_id = ? AND user_count = ?",
+                actual, scope.name(), identifier, stored.get()) > 0;
+    }
+
+    /*
+     * The number of userRoles or memberships of the user in the application or institution before the changes of
+     * the current transaction is derived from the current number and the changes. The user count only changes when
+     * the user goes from none to at least one or vice versa. Multiple changes in one transaction - e.g. all userRoles
+     * of a deleted user - are reconciled against what was already applied in this transaction.
+     */
+    private void changed(Scope scope, Long scopeId, User user, int change) {
+        Tally tally = tallies().computeIfAbsent(new TallyKey(scope, scopeId, user.getId()), key -> new Tally());
+        tally.changes += change;
+        long current = entityManager.contains(user) ? scope.countOf(user, scopeId) : 0L;
+        long before = current - tally.changes;
+        int delta = (current > 0 ? 1 : 0) - (before > 0 ? 1 : 0);
+        if (delta != tally.applied) {
+            increment(scope, scopeId, delta - tally.applied);
+            tally.applied = delta;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<TallyKey, Tally> tallies() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return new HashMap<>();
+        }
+        Map<TallyKey, Tally> tallies = (Map<TallyKey, Tally>) TransactionSynchronizationManager.getResource(this);
+        if (tallies == null) {
+            Map<TallyKey, Tally> newTallies = new HashMap<>();
+            TransactionSynchronizationManager.bindResource(this, newTallies);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(UserCounts.this);
+                }
+            });
+            tallies = newTallies;
+        }
+        return tallies;
+    }
+
+    private void increment(Scope scope, Long scopeId, int delta) {
+        if (delta == 0) {
+            return;
+        }
+        jdbcTemplate.update("INSERT INTO user_counts (scope, scope_id, user_count) VALUES (?, ?, GREATEST(?, 0)) " +
+                        "ON DUPLICATE KEY UPDATE user_count = GREATEST(user_count + ?, 0)",
+                scope.name(), scopeId, delta, delta);
+    }
+
+    private long userCount(Scope scope, Long scopeId) {
+        return storedUserCount(scope, scopeId).orElse(0L);
+    }
+
+    private Optional<Long> storedUserCount(Scope scope, Long scopeId) {
+        try {
+            return Optional.ofNullable(jdbcTemplate.queryForObject(
+                    "SELECT user_count FROM user_counts WHERE scope = ? AND scope_id = ?", Long.class, scope.name(), scopeId));
+        } catch (EmptyResultDataAccessException e) {
+            return Optional.empty();
+        }
+    }
+
+    private static Set<Long> applicationIdentifiers(Collection<UserRole> userRoles) {
+        return userRoles.stream()
+                .map(userRole -> userRole.getRole().getApplication().getId())
+                .collect(Collectors.toSet());
+    }
+
+    private enum Scope {
+
+        APPLICATION("SELECT id FROM applications",
+                "SELECT COUNT(DISTINCT ur.user_id) FROM user_roles ur INNER JOIN roles r ON r.id = ur.role_id WHERE r.application_id = ?"),
+        INSTITUTION("SELECT id FROM institutions",
+                "SELECT COUNT(DISTINCT im.user_id) FROM institution_memberships im WHERE im.institution_id = ?");
+
+        private final String identifiersQuery;
+        private final String countQuery;
+
+        Scope(String identifiersQuery, String countQuery) {
+            this.identifiersQuery = identifiersQuery;
+            this.countQuery = countQuery;
+        }
+
+        private long countOf(User user, Long scopeId) {
+            if (this == APPLICATION) {
+                return user.getUserRoles().stream()
+                        .filter(userRole -> userRole.getRole().getApplication().getId().equals(scopeId))
+                        .count();
+            }
+            return user.getInstitutionMemberships().stream()
+                    .filter(membership -> membership.getInstitution().getId().equals(scopeId))
+                    .count();
+        }
+    }
+
+    private record TallyKey(Scope scope, Long scopeId, Long userId) {
+    }
+
+    private static class Tally {
+        private long changes;
+        private int applied;
+    }
+}
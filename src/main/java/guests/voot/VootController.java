@@ -1,55 +1,70 @@
 package guests.voot;
 
-import guests.domain.Role;
-import guests.domain.User;
-import guests.domain.UserRole;
+import guests.domain.GroupMembership;
 import guests.repository.UserRepository;
 import guests.scim.GroupURN;
+import guests.security.UserActivityTracker;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
-import java.time.Instant;
 import java.util.*;
 import java.util.stream.Collectors;
 
+/*
+ * Called for every login at a service provider, so the memberships are read with a projection query and cached per
+ * sub. There is no transaction on purpose, a cache hit does not need a database connection.
+ */
 @RestController
 @RequestMapping(value = "/api/voot", produces = MediaType.APPLICATION_JSON_VALUE)
-@Transactional
 public class VootController {
 
     private final UserRepository userRepository;
+    private final UserActivityTracker userActivityTracker;
+    private final VootMembershipsCache vootMembershipsCache;
     private final String groupUrnPrefix;
 
-    public VootController(UserRepository userRepository, @Value("${voot.group_urn_domain}") String groupUrnDomain) {
+    public VootController(UserRepository userRepository,
+                          UserActivityTracker userActivityTracker,
+                          VootMembershipsCache vootMembershipsCache,
+                          @Value("${voot.group_urn_domain}") String groupUrnDomain) {
         this.userRepository = userRepository;
+        this.userActivityTracker = userActivityTracker;
+        this.vootMembershipsCache = vootMembershipsCache;
         this.groupUrnPrefix = String.format("urn:collab:group:%s", groupUrnDomain);
     }
 
     @GetMapping("/{unspecified_id}")
     public ResponseEntity<List<Map<String, String>>> getGroupMemberships(@PathVariable("unspecified_id") String unspecifiedId) {
-        Optional<User> optionalUser = userRepository.findBySubIgnoreCase(unspecifiedId);
-        if (optionalUser.isPresent()) {
-            User user = optionalUser.get();
-            user.setLastActivity(Instant.now());
-            userRepository.save(user);
-            List<Map<String, String>> roles = user.getUserRoles().stream().map(this::parseUserRole).collect(Collectors.toList());
-            return ResponseEntity.ok(roles);
+        VootMemberships memberships = vootMembershipsCache.get(unspecifiedId, () -> this.loadMemberships(unspecifiedId));
+        userActivityTracker.touch(memberships.userId());
+        return ResponseEntity.ok(memberships.groups());
+    }
+
+    private VootMemberships loadMemberships(String sub) {
+        List<GroupMembership> groupMemberships = userRepository.findGroupMembershipsBySub(sub);
+        if (groupMemberships.isEmpty()) {
+            return new VootMemberships(null, Collections.emptyList());
         }
-        return ResponseEntity.ok(Collections.emptyList());
+        List<Map<String, String>> groups = groupMemberships.stream()
+                .filter(groupMembership -> groupMembership.getRoleName() != null)
+                .map(this::parseGroupMembership)
+                .collect(Collectors.toUnmodifiableList());
+        return new VootMemberships(groupMemberships.get(0).getUserId(), groups);
     }
 
-    private Map<String, String> parseUserRole(UserRole userRole) {
+    private Map<String, String> parseGroupMembership(GroupMembership groupMembership) {
         Map<String, String> res = new HashMap<>();
-        Role role = userRole.getRole();
-        res.put("urn", GroupURN.urnFromRole(groupUrnPrefix, userRole.getRole()));
-        res.put("name", role.getName());
-        return res;
+        res.put("urn", GroupURN.urnFromRole(groupUrnPrefix,
+                groupMembership.getHomeInstitution(),
+                groupMembership.getApplicationName(),
+                groupMembership.getRoleName()));
+        res.put("name", groupMembership.getRoleName());
+        return Collections.unmodifiableMap(res);
     }
 
 }
@@ -0,0 +1,7 @@
+package guests.voot;
+
+import java.util.List;
+import java.util.Map;
+
+public record VootMemberships(Long userId, List<Map<String, String>> groups) {
+}
@@ -0,0 +1,49 @@
+package guests.voot;
+
+import guests.config.ExpiringCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+@Component
+public class VootMembershipsCache {
+
+    private final ExpiringCache<String, VootMemberships> cache;
+    private final Duration timeToLive;
+
+    public VootMembershipsCache(@Value("${voot.cache.max_size}") int maximumSize,
+                                @Value("${voot.cache.ttl_seconds}") long timeToLiveSeconds) {
+        this.cache = new ExpiringCache<>(maximumSize);
+        this.timeToLive = Duration.ofSeconds(timeToLiveSeconds);
+    }
+
+    public VootMemberships get(String sub, Supplier<VootMemberships> loader) {
+        String key = key(sub);
+        Optional<VootMemberships> cached = cache.get(key);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+        VootMemberships memberships = loader.get();
+        if (!timeToLive.isZero() && !timeToLive.isNegative()) {
+            cache.put(key, memberships, timeToLive);
+        }
+        return memberships;
+    }
+
+    public void invalidate(String sub) {
+        if (sub != null) {
+            cache.invalidate(key(sub));
+        }
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    private String key(String sub) {
+        return sub.toLowerCase();
+    }
+}
@@ -0,0 +1,53 @@
+package guests.voot;
+
+import guests.domain.User;
+import guests.domain.UserRole;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+/*
+ * Invalidates the cached VOOT memberships. Changes to a user or its roles only affect that user, changes to roles,
+ * applications and institutions may affect the group URN of many users. The cache is invalidated directly and again
+ * after commit, to prevent a concurrent VOOT call from caching the memberships before the transaction is committed.
+ */
+public class VootMembershipsCacheListener {
+
+    private final VootMembershipsCache vootMembershipsCache;
+
+    public VootMembershipsCacheListener(VootMembershipsCache vootMembershipsCache) {
+        this.vootMembershipsCache = vootMembershipsCache;
+    }
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void afterChange(Object entity) {
+        Runnable invalidation = invalidation(entity);
+        invalidation.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidation.run();
+                }
+            });
+        }
+    }
+
+    private Runnable invalidation(Object entity) {
+        if (entity instanceof UserRole userRole) {
+            User user = userRole.getUser();
+            String sub = user != null ? user.getSub() : null;
+            return () -> vootMembershipsCache.invalidate(sub);
+        }
+        if (entity instanceof User user) {
+            String sub = user.getSub();
+            return () -> vootMembershipsCache.invalidate(sub);
+        }
+        return vootMembershipsCache::invalidateAll;
+    }
+}
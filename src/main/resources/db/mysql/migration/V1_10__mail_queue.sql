@@ -0,0 +1,16 @@
+CREATE TABLE `mail_queue`
+(
+    `id`              bigint       NOT NULL AUTO_INCREMENT,
+    `mime_message`    mediumblob   NOT NULL,
+    `recipients`      varchar(1024) DEFAULT NULL,
+    `subject`         varchar(1024) DEFAULT NULL,
+    `attempts`        int          NOT NULL DEFAULT 0,
+    `next_attempt_at` datetime     NOT NULL,
+    `failed`          tinyint(1)   NOT NULL DEFAULT 0,
+    `last_error`      varchar(1024) DEFAULT NULL,
+    `created_at`      datetime      DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (`id`),
+    INDEX `index_mail_queue_next_attempt` (`failed`, `next_attempt_at`)
+) ENGINE = InnoDB
+  AUTO_INCREMENT = 1
+  DEFAULT CHARSET = utf8mb4;
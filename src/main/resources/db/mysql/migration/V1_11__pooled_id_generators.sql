@@ -0,0 +1,19 @@
+CREATE TABLE `id_generators`
+(
+    `sequence_name` varchar(255) NOT NULL,
+    `next_val`      bigint       NOT NULL,
+    PRIMARY KEY (`sequence_name`)
+) ENGINE = InnoDB
+  DEFAULT CHARSET = utf8mb4;
+
+-- Hibernate allocates ids in blocks of 50 below next_val, which must therefore start above the current ids
+INSERT INTO `id_generators` (`sequence_name`, `next_val`) SELECT 'applications', COALESCE(MAX(`id`), 0) + 50 FROM `applications`;
+INSERT INTO `id_generators` (`sequence_name`, `next_val`) SELECT 'aups', COALESCE(MAX(`id`), 0) + 50 FROM `aups`;
+INSERT INTO `id_generators` (`sequence_name`, `next_val`) SELECT 'institutions', COALESCE(MAX(`id`), 0) + 50 FROM `institutions`;
+INSERT INTO `id_generators` (`sequence_name`, `next_val`) SELECT 'institution_memberships', COALESCE(MAX(`id`), 0) + 50 FROM `institution_memberships`;
+INSERT INTO `id_generators` (`sequence_name`, `next_val`) SELECT 'invitations', COALESCE(MAX(`id`), 0) + 50 FROM `invitations`;
+INSERT INTO `id_generators` (`sequence_name`, `next_val`) SELECT 'invitation_roles', COALESCE(MAX(`id`), 0) + 50 FROM `invitation_roles`;
+INSERT INTO `id_generators` (`sequence_name`, `next_val`) SELECT 'roles', COALESCE(MAX(`id`), 0) + 50 FROM `roles`;
+INSERT INTO `id_generators` (`sequence_name`, `next_val`) SELECT 'scim_failures', COALESCE(MAX(`id`), 0) + 50 FROM `scim_failures`;
+INSERT INTO `id_generators` (`sequence_name`, `next_val`) SELECT 'users', COALESCE(MAX(`id`), 0) + 50 FROM `users`;
+INSERT INTO `id_generators` (`sequence_name`, `next_val`) SELECT 'user_roles', COALESCE(MAX(`id`), 0) + 50 FROM `user_roles`;
@@ -0,0 +1,9 @@
+CREATE TABLE `job_locks`
+(
+    `name`         varchar(255) NOT NULL,
+    `owner`        varchar(255) DEFAULT NULL,
+    `locked_at`    datetime     DEFAULT NULL,
+    `locked_until` datetime     NOT NULL,
+    PRIMARY KEY (`name`)
+) ENGINE = InnoDB
+  DEFAULT CHARSET = utf8mb4;
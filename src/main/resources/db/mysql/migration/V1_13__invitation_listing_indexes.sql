@@ -0,0 +1,3 @@
+ALTER TABLE `invitations`
+    ADD INDEX `index_invitations_institution_created_at` (`institution_id`, `created_at`),
+    ADD INDEX `index_invitations_institution_expiry_date` (`institution_id`, `expiry_date`);
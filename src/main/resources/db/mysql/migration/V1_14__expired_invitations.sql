@@ -0,0 +1,12 @@
+ALTER TABLE `invitations`
+    ADD INDEX `index_invitations_expiry_date` (`expiry_date`);
+
+CREATE TABLE `expired_invitation_counts`
+(
+    `institution_id` bigint   NOT NULL,
+    `purged_count`   bigint   NOT NULL DEFAULT 0,
+    `last_purged_at` datetime DEFAULT NULL,
+    PRIMARY KEY (`institution_id`),
+    CONSTRAINT `fk_expired_invitation_counts_institution` FOREIGN KEY (`institution_id`) REFERENCES `institutions` (`id`) ON DELETE CASCADE
+) ENGINE = InnoDB
+  DEFAULT CHARSET = utf8mb4;
@@ -0,0 +1,13 @@
+-- Changes to the cached reference data, polled by the other nodes to evict their local second-level cache
+CREATE TABLE `cache_invalidations`
+(
+    `id`          bigint       NOT NULL AUTO_INCREMENT,
+    `entity_name` varchar(255) NOT NULL,
+    `entity_id`   bigint       DEFAULT NULL,
+    `node`        varchar(255) NOT NULL,
+    `created_at`  datetime     DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (`id`),
+    INDEX `index_cache_invalidations_created_at` (`created_at`)
+) ENGINE = InnoDB
+  AUTO_INCREMENT = 1
+  DEFAULT CHARSET = utf8mb4;
@@ -0,0 +1,20 @@
+-- Distinct users per application and institution, maintained by the application and reconciled nightly
+CREATE TABLE `user_counts`
+(
+    `scope`      varchar(32) NOT NULL,
+    `scope_id`   bigint      NOT NULL,
+    `user_count` bigint      NOT NULL DEFAULT 0,
+    PRIMARY KEY (`scope`, `scope_id`)
+) ENGINE = InnoDB
+  DEFAULT CHARSET = utf8mb4;
+
+INSERT INTO `user_counts` (`scope`, `scope_id`, `user_count`)
+SELECT 'APPLICATION', r.application_id, COUNT(DISTINCT ur.user_id)
+FROM user_roles ur
+         INNER JOIN roles r ON r.id = ur.role_id
+GROUP BY r.application_id;
+
+INSERT INTO `user_counts` (`scope`, `scope_id`, `user_count`)
+SELECT 'INSTITUTION', im.institution_id, COUNT(DISTINCT im.user_id)
+FROM institution_memberships im
+GROUP BY im.institution_id;
@@ -0,0 +1,2 @@
+ALTER TABLE `scim_outbox_events` ADD `attempts` int NOT NULL DEFAULT 0;
+ALTER TABLE `scim_outbox_events` ADD `parked` tinyint(1) NOT NULL DEFAULT 0;
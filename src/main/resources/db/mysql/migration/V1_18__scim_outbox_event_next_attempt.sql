@@ -0,0 +1 @@
+ALTER TABLE `scim_outbox_events` ADD `next_attempt_at` datetime DEFAULT NULL;
@@ -0,0 +1,17 @@
+CREATE TABLE `scim_outbox_events`
+(
+    `id`                  bigint       NOT NULL AUTO_INCREMENT,
+    `event_type`          varchar(255) NOT NULL,
+    `application_id`      bigint       NOT NULL,
+    `user_id`             bigint        DEFAULT NULL,
+    `role_id`             bigint        DEFAULT NULL,
+    `operation_type`      varchar(255)  DEFAULT NULL,
+    `service_provider_id` varchar(255)  DEFAULT NULL,
+    `message`             mediumtext    DEFAULT NULL,
+    `created_at`          datetime      DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (`id`),
+    INDEX `index_scim_outbox_events_application` (`application_id`, `id`),
+    CONSTRAINT `fk_scim_outbox_events_application` FOREIGN KEY (`application_id`) REFERENCES `applications` (`id`) ON DELETE CASCADE
+) ENGINE = InnoDB
+  AUTO_INCREMENT = 1
+  DEFAULT CHARSET = utf8mb4;
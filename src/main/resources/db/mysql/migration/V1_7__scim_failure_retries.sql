@@ -0,0 +1,4 @@
+ALTER TABLE `scim_failures` ADD `attempts` int NOT NULL DEFAULT 0;
+ALTER TABLE `scim_failures` ADD `next_attempt_at` datetime DEFAULT NULL;
+ALTER TABLE `scim_failures` ADD `parked` tinyint(1) NOT NULL DEFAULT 0;
+CREATE INDEX `index_scim_failures_next_attempt` ON `scim_failures` (`parked`, `next_attempt_at`);
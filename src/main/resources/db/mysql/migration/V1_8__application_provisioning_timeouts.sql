@@ -0,0 +1,2 @@
+ALTER TABLE `applications` ADD `provisioning_connect_timeout_millis` int DEFAULT NULL;
+ALTER TABLE `applications` ADD `provisioning_read_timeout_millis` int DEFAULT NULL;
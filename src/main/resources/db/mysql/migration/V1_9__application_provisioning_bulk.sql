@@ -0,0 +1 @@
+ALTER TABLE `applications` ADD `provisioning_bulk` bool DEFAULT 0;
@@ -3,11 +3,13 @@ package guests;
 import com.icegreen.greenmail.junit5.GreenMailExtension;
 import com.icegreen.greenmail.store.FolderException;
 import com.icegreen.greenmail.util.ServerSetupTest;
+import guests.repository.QueuedMailRepository;
 import lombok.SneakyThrows;
 import org.apache.commons.mail.util.MimeMessageParser;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.test.context.ActiveProfiles;
 
 import javax.mail.internet.MimeMessage;
@@ -22,11 +24,15 @@ import static org.awaitility.Awaitility.await;
 public class AbstractMailTest extends AbstractTest {
 
     @RegisterExtension
-    static GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP);
+    protected static GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP);
+
+    @Autowired
+    protected QueuedMailRepository queuedMailRepository;
 
     @BeforeEach
     protected void beforeEach() throws FolderException {
         super.beforeEach();
+        queuedMailRepository.deleteAll();
         greenMail.start();
         greenMail.purgeEmailFromAllMailboxes();
     }
@@ -37,7 +37,10 @@ import static com.github.tomakehurst.wiremock.client.WireMock.*;
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
         properties = {
                 "oidc.introspection_uri=http://localhost:8081/introspect",
-                "email.environment=test"
+                "email.environment=test",
+                "scim.outbox.enabled=false",
+                "scim.retry.enabled=false",
+                "cron.lock-at-least-for-minutes=0"
         })
 @SuppressWarnings("unchecked")
 public abstract class AbstractTest {
@@ -70,6 +73,9 @@ public abstract class AbstractTest {
     @Autowired
     protected SCIMFailureRepository scimFailureRepository;
 
+    @Autowired
+    protected JobLockRepository jobLockRepository;
+
     @RegisterExtension
     WireMockExtension mockServer = new WireMockExtension(8081);
 
@@ -87,6 +93,8 @@ public abstract class AbstractTest {
     protected void beforeEach() throws FolderException {
         institutionRepository.deleteAll();
         userRepository.deleteAll();
+        //A lock left by a previous test would skip the next run of the scheduled job
+        jobLockRepository.deleteAllInBatch();
         seed();
         RestAssured.port = port;
     }
@@ -151,6 +159,11 @@ public abstract class AbstractTest {
     }
 
 
+    protected Optional<Invitation> openInvitation(String hash) {
+        //Including the expired invitations
+        return invitationRepository.findByHashAndStatusAndExpiryDateAfter(hash, Status.OPEN, Instant.EPOCH);
+    }
+
     protected User user(Institution institution, Authority authority, String eppn, String givenName, String familyName, String email) {
         return new User(authority, eppn, eppn, givenName, familyName, email, institution);
     }
@@ -101,6 +101,19 @@ class ApplicationControllerTest extends AbstractTest {
                 .statusCode(403);
     }
 
+    @Test
+    void userCount() throws IOException {
+        Long id = applicationRepository.findByEntityIdIgnoreCase("canvas").get().getId();
+        given()
+                .when()
+                .accept(ContentType.JSON)
+                .auth().oauth2(opaqueAccessToken("j.doe@example.com", "introspect.json"))
+                .get("/api/v1/applications/user-count/{id}", id)
+                .then()
+                .statusCode(200)
+                .body(equalTo("2"));
+    }
+
     @Test
     void deleteApplication() throws IOException {
         Application application = applicationRepository.findByEntityIdIgnoreCase("blackboard").get();
@@ -188,6 +201,8 @@ class ApplicationControllerTest extends AbstractTest {
                 .jsonPath()
                 .getList(".", Application.class);
         assertEquals(1, results.size());
+        assertEquals(2, results.get(0).getRoles().size());
+        assertEquals(institution.getId(), results.get(0).getInstitution().getId());
     }
 
     @Test
@@ -1,6 +1,7 @@
 package guests.api;
 
 import guests.AbstractTest;
+import guests.domain.Authority;
 import guests.domain.Institution;
 import guests.domain.ObjectExists;
 import io.restassured.http.ContentType;
@@ -268,6 +269,21 @@ class InstitutionControllerTest extends AbstractTest {
         assertEquals(true, optionalInstitution.isPresent());
     }
 
+    @Test
+    void deleteInstitutionOnlyAdministrators() throws IOException {
+        Institution institution = institutionRepository.findByHomeInstitutionIgnoreCase("uva.nl").get();
+        userRepository.save(user(institution, Authority.INSTITUTION_ADMINISTRATOR, "admin@uva.nl", "John", "Doe", "admin@uva.nl"));
+        given()
+                .when()
+                .auth().oauth2(opaqueAccessToken("j.doe@example.com", "introspect.json"))
+                .pathParam("id", institution.getId())
+                .delete("/api/v1/institutions/{id}")
+                .then()
+                .statusCode(201);
+        assertEquals(false, institutionRepository.findByHomeInstitutionIgnoreCase("uva.nl").isPresent());
+        assertEquals(true, userRepository.findByEduPersonPrincipalNameIgnoreCase("admin@uva.nl").isPresent());
+    }
+
     @Test
     void deleteInstitutionNotAllowed() throws IOException {
         given()
@@ -12,6 +12,7 @@ import java.time.temporal.ChronoUnit;
 import java.util.*;
 
 import static io.restassured.RestAssured.given;
+import static org.awaitility.Awaitility.await;
 import static org.junit.jupiter.api.Assertions.*;
 
 class InvitationControllerTest extends AbstractTest {
@@ -33,6 +34,22 @@ class InvitationControllerTest extends AbstractTest {
         assertEquals("administratorCanvas", invitation.getRoles().iterator().next().getRole().getName());
     }
 
+    @Test
+    void getExpired() throws IOException {
+        Invitation invitation = openInvitation(INVITATION_UTRECHT_HASH).get();
+        invitation.setExpiryDate(Instant.now().minus(1, ChronoUnit.DAYS));
+        invitationRepository.save(invitation);
+
+        given()
+                .when()
+                .accept(ContentType.JSON)
+                .auth().oauth2(opaqueAccessToken("unknown@user.nl", "introspect.json"))
+                .pathParam("hash", INVITATION_UTRECHT_HASH)
+                .get("/api/v1/invitations/{hash}")
+                .then()
+                .statusCode(404);
+    }
+
     @Test
     void getExistingUser() throws IOException {
         Map<String, Object> invitation = given()
@@ -51,7 +68,7 @@ class InvitationControllerTest extends AbstractTest {
 
     @Test
     void getById() throws IOException {
-        Long id = invitationRepository.findByHashAndStatus(INVITATION_UTRECHT_HASH, Status.OPEN).get().getId();
+        Long id = openInvitation(INVITATION_UTRECHT_HASH).get().getId();
         Invitation invitation = given()
                 .when()
                 .accept(ContentType.JSON)
@@ -69,7 +86,7 @@ class InvitationControllerTest extends AbstractTest {
 
     @Test
     void getByIdNotAllowed() throws IOException {
-        Long id = invitationRepository.findByHashAndStatus(INVITATION_UTRECHT_HASH, Status.OPEN).get().getId();
+        Long id = openInvitation(INVITATION_UTRECHT_HASH).get().getId();
         given()
                 .when()
                 .accept(ContentType.JSON)
@@ -130,6 +147,79 @@ class InvitationControllerTest extends AbstractTest {
                 .statusCode(403);
     }
 
+    @Test
+    @SuppressWarnings("unchecked")
+    void pageByInstitution() throws Exception {
+        Institution institution = institutionRepository.findByEntityIdIgnoreCase("https://utrecht").get();
+        Map<String, Object> page = pageByInstitution(institution, Map.of("size", 1, "sort", InvitationSort.EMAIL.name(), "direction", "ASC"));
+        List<Map<String, Object>> results = (List<Map<String, Object>>) page.get("results");
+        assertEquals(1, results.size());
+        Map<String, Object> invitation = results.get(0);
+        assertEquals("equals@test.com", invitation.get("email"));
+        assertEquals("Mary Doe", invitation.get("inviterName"));
+        List<Map<String, Object>> roles = (List<Map<String, Object>>) invitation.get("roles");
+        assertEquals("administratorCanvas", roles.get(0).get("roleName"));
+        assertNotNull(page.get("next"));
+
+        page = pageByInstitution(institution, Map.of("size", 1, "sort", InvitationSort.EMAIL.name(), "direction", "ASC", "after", page.get("next")));
+        results = (List<Map<String, Object>>) page.get("results");
+        assertEquals(1, results.size());
+        assertEquals("guest@test.com", results.get(0).get("email"));
+        assertNull(page.get("next"));
+    }
+
+    @Test
+    void pageByInstitutionWithoutCreatedAt() throws Exception {
+        Institution institution = institutionRepository.findByEntityIdIgnoreCase("https://utrecht").get();
+        User inviter = userRepository.findByEduPersonPrincipalNameIgnoreCase("admin@utrecht.nl").get();
+        Invitation invitation = new Invitation(Authority.GUEST, Status.OPEN, "hash", inviter, institution, "legacy@test.com");
+        invitation.setCreatedAt(null);
+        invitationRepository.save(invitation);
+
+        List<String> emails = emailsInPages(institution, "DESC");
+        assertEquals(3, emails.size());
+        assertEquals("legacy@test.com", emails.get(2));
+
+        emails = emailsInPages(institution, "ASC");
+        assertEquals(3, emails.size());
+        assertEquals("legacy@test.com", emails.get(0));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void pageByInstitutionFiltered() throws Exception {
+        Institution institution = institutionRepository.findByEntityIdIgnoreCase("https://utrecht").get();
+        String now = Instant.now().toString();
+
+        Map<String, Object> page = pageByInstitution(institution, Map.of("status", Status.ACCEPTED.name()));
+        assertEquals(0, ((List<Object>) page.get("results")).size());
+
+        page = pageByInstitution(institution, Map.of("expiresBefore", now));
+        assertEquals(0, ((List<Object>) page.get("results")).size());
+
+        page = pageByInstitution(institution, Map.of("expiresAfter", now, "status", Status.OPEN.name()));
+        assertEquals(2, ((List<Object>) page.get("results")).size());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void pageByApplication() throws Exception {
+        Application application = applicationRepository.findByEntityIdIgnoreCase("CANVAS").get();
+        Map<String, Object> page = given()
+                .when()
+                .accept(ContentType.JSON)
+                .auth().oauth2(opaqueAccessToken("j.doe@example.com", "introspect.json"))
+                .pathParam("applicationId", application.getId())
+                .get("/api/v1/invitations/application/{applicationId}/page")
+                .then()
+                .statusCode(200)
+                .extract()
+                .body()
+                .jsonPath()
+                .getMap(".");
+        assertEquals(2, ((List<Object>) page.get("results")).size());
+    }
+
     @Test
     void post() throws IOException {
         Map<String, Object> invitation = new HashMap<>();
@@ -308,6 +398,77 @@ class InvitationControllerTest extends AbstractTest {
                 invitationRole.getEndDate().toString().substring(0, 10));
     }
 
+    @Test
+    void bulkInvite() throws IOException {
+        Role role = roleRepository.findAll().get(0);
+        User user = userRepository.findByEduPersonPrincipalNameIgnoreCase("admin@utrecht.nl").get();
+        Instant after90days = Instant.now().plus(90, ChronoUnit.DAYS);
+        long beforeCount = invitationRepository.count();
+        Invitation invitation = new Invitation(Authority.GUEST,
+                "Please accept",
+                "guest@example.com",
+                true,
+                Collections.singleton(new InvitationRole(role, after90days)));
+        invitation.setExpiryDate(Instant.now().plus(14, ChronoUnit.DAYS));
+        Institution institution = getInstitution(user);
+        invitation.setInstitution(institution);
+        InvitationRequest invitationRequest = new InvitationRequest(
+                invitation,
+                Arrays.asList("guest@example.com", "admin@example.com", "invalid"),
+                institution.getId());
+        String accessToken = opaqueAccessToken("admin@utrecht.nl", "introspect.json");
+
+        Map<String, Object> job = given()
+                .when()
+                .accept(ContentType.JSON)
+                .contentType(ContentType.JSON)
+                .auth().oauth2(accessToken)
+                .body(invitationRequest)
+                .put("/api/v1/invitations/bulk")
+                .then()
+                .statusCode(202)
+                .extract()
+                .body()
+                .jsonPath()
+                .getMap(".");
+        assertEquals(2, job.get("total"));
+
+        await().until(() -> given()
+                .when()
+                .accept(ContentType.JSON)
+                .auth().oauth2(accessToken)
+                .pathParam("jobId", job.get("id"))
+                .get("/api/v1/invitations/bulk/{jobId}")
+                .then()
+                .extract()
+                .body()
+                .jsonPath()
+                .getString("status")
+                .equals("COMPLETED"));
+
+        List<Invitation> invitationList = invitationRepository.findAll();
+        assertEquals(beforeCount + 2, invitationList.size());
+
+        Invitation bulkInvitation = invitationList.stream()
+                .filter(inv -> inv.getEmail().equals("admin@example.com"))
+                .findFirst()
+                .get();
+        assertEquals(Status.OPEN, bulkInvitation.getStatus());
+        assertEquals(role.getId(), bulkInvitation.getRoles().iterator().next().getRole().getId());
+    }
+
+    @Test
+    void bulkInviteUnknownJob() throws IOException {
+        given()
+                .when()
+                .accept(ContentType.JSON)
+                .auth().oauth2(opaqueAccessToken("admin@utrecht.nl", "introspect.json"))
+                .pathParam("jobId", UUID.randomUUID().toString())
+                .get("/api/v1/invitations/bulk/{jobId}")
+                .then()
+                .statusCode(404);
+    }
+
     @Test
     void putNotAllowedAuthority() throws IOException {
         Role role = roleRepository.findAll().get(0);
@@ -335,7 +496,7 @@ class InvitationControllerTest extends AbstractTest {
 
     @Test
     void deleteNotAllowed() throws IOException {
-        Long id = invitationRepository.findByHashAndStatus(INVITATION_UTRECHT_HASH, Status.OPEN).get().getId();
+        Long id = openInvitation(INVITATION_UTRECHT_HASH).get().getId();
         given()
                 .when()
                 .accept(ContentType.JSON)
@@ -349,7 +510,7 @@ class InvitationControllerTest extends AbstractTest {
 
     @Test
     void delete() throws IOException {
-        Long id = invitationRepository.findByHashAndStatus(INVITATION_UTRECHT_HASH, Status.OPEN).get().getId();
+        Long id = openInvitation(INVITATION_UTRECHT_HASH).get().getId();
         given()
                 .when()
                 .accept(ContentType.JSON)
@@ -363,7 +524,7 @@ class InvitationControllerTest extends AbstractTest {
 
     @Test
     void resendNotAllowed() throws IOException {
-        Long id = invitationRepository.findByHashAndStatus(INVITATION_UTRECHT_HASH, Status.OPEN).get().getId();
+        Long id = openInvitation(INVITATION_UTRECHT_HASH).get().getId();
         Map<String, Object> invitation = new HashMap<>();
         invitation.put("id", id);
         invitation.put("message", "Please...");
@@ -381,7 +542,7 @@ class InvitationControllerTest extends AbstractTest {
 
     @Test
     void resendAllowedInvitationIsForGuest() throws IOException {
-        Invitation invitation = invitationRepository.findByHashAndStatus(INVITATION_UTRECHT_HASH, Status.OPEN).get();
+        Invitation invitation = openInvitation(INVITATION_UTRECHT_HASH).get();
         invitation.setIntendedAuthority(Authority.GUEST);
         invitationRepository.save(invitation);
 
@@ -401,7 +562,7 @@ class InvitationControllerTest extends AbstractTest {
                 .then()
                 .statusCode(201);
 
-        invitation = invitationRepository.findByHashAndStatus(INVITATION_UTRECHT_HASH, Status.OPEN).get();
+        invitation = openInvitation(INVITATION_UTRECHT_HASH).get();
 
         assertEquals(invitationUpdate.getMessage(), invitation.getMessage());
         assertEquals(invitationUpdate.getExpiryDate().toString().substring(0, 10),
@@ -410,7 +571,7 @@ class InvitationControllerTest extends AbstractTest {
 
     @Test
     void updateInvitation() throws IOException {
-        Invitation invitation = invitationRepository.findByHashAndStatus(INVITATION_UTRECHT_HASH, Status.OPEN).get();
+        Invitation invitation = openInvitation(INVITATION_UTRECHT_HASH).get();
         Long id = invitation.getId();
 
         InvitationUpdate invitationUpdate = new InvitationUpdate();
@@ -427,14 +588,14 @@ class InvitationControllerTest extends AbstractTest {
                 .then()
                 .statusCode(201);
 
-        invitation = invitationRepository.findByHashAndStatus(INVITATION_UTRECHT_HASH, Status.OPEN).get();
+        invitation = openInvitation(INVITATION_UTRECHT_HASH).get();
         assertEquals(invitationUpdate.getExpiryDate().toString().substring(0, 10),
                 invitation.getExpiryDate().toString().substring(0, 10));
     }
 
     @Test
     void deleteAllowedByInviterGuestInvitation() throws IOException {
-        Invitation invitation = invitationRepository.findByHashAndStatus(INVITATION_UTRECHT_HASH, Status.OPEN).get();
+        Invitation invitation = openInvitation(INVITATION_UTRECHT_HASH).get();
         invitation.setIntendedAuthority(Authority.GUEST);
         invitationRepository.save(invitation);
 
@@ -450,5 +611,32 @@ class InvitationControllerTest extends AbstractTest {
         assertFalse(invitationRepository.findById(id).isPresent());
     }
 
+    @SuppressWarnings("unchecked")
+    private List<String> emailsInPages(Institution institution, String direction) throws IOException {
+        List<String> emails = new ArrayList<>();
+        Map<String, Object> queryParams = new HashMap<>(Map.of("size", 1, "sort", InvitationSort.CREATED_AT.name(), "direction", direction));
+        Map<String, Object> page;
+        do {
+            page = pageByInstitution(institution, queryParams);
+            ((List<Map<String, Object>>) page.get("results")).forEach(result -> emails.add((String) result.get("email")));
+            queryParams.put("after", page.get("next"));
+        } while (page.get("next") != null);
+        return emails;
+    }
 
-}
\ No newline at end of file
+    private Map<String, Object> pageByInstitution(Institution institution, Map<String, Object> queryParams) throws IOException {
+        return given()
+                .when()
+                .accept(ContentType.JSON)
+                .auth().oauth2(opaqueAccessToken("j.doe@example.com", "introspect.json"))
+                .pathParam("institutionId", institution.getId())
+                .queryParams(queryParams)
+                .get("/api/v1/invitations/institution/{institutionId}/page")
+                .then()
+                .statusCode(200)
+                .extract()
+                .body()
+                .jsonPath()
+                .getMap(".");
+    }
+}
@@ -20,7 +20,7 @@ class InvitationMailControllerTest extends AbstractMailTest {
 
     @Test
     void resend() throws Exception {
-        Long id = invitationRepository.findByHashAndStatus(INVITATION_UTRECHT_HASH, Status.OPEN).get().getId();
+        Long id = openInvitation(INVITATION_UTRECHT_HASH).get().getId();
         Map<String, Object> invitation = new HashMap<>();
         invitation.put("id", id);
         invitation.put("message", "Please...");
@@ -56,7 +56,7 @@ class InvitationMailControllerTest extends AbstractMailTest {
         administratorCanvas.setServiceProviderId(null);
         roleRepository.save(administratorCanvas);
 
-        Invitation invitation = invitationRepository.findByHashAndStatus(INVITATION_UTRECHT_HASH, Status.OPEN).get();
+        Invitation invitation = openInvitation(INVITATION_UTRECHT_HASH).get();
         Role guestBlackboard = roleRepository.findByName("guestBlackboard").get();
         invitation.addInvitationRole(new InvitationRole(guestBlackboard, null));
         invitationRepository.save(invitation);
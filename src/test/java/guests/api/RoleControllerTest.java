@@ -19,6 +19,7 @@ import static org.junit.jupiter.api.Assertions.assertNotNull;
 class RoleControllerTest extends AbstractTest {
 
     @Test
+    @SuppressWarnings("unchecked")
     void rolesByInstitution() throws IOException {
         Institution institution = institutionRepository.findByEntityIdIgnoreCase("https://utrecht").get();
         List<Map> results = given()
@@ -33,6 +34,9 @@ class RoleControllerTest extends AbstractTest {
                 .jsonPath()
                 .getList(".", Map.class);
         assertEquals(2, results.size());
+        Map<String, Object> application = (Map<String, Object>) results.get(0).get("application");
+        assertEquals("CANVAS", application.get("name"));
+        assertEquals(institution.getId().intValue(), ((Map<String, Object>) application.get("institution")).get("id"));
     }
 
     @Test
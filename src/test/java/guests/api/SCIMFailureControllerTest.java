@@ -76,6 +76,7 @@ class SCIMFailureControllerTest extends AbstractTest {
                 .jsonPath()
                 .getMap(".");
         assertEquals("message", results.get("message"));
+        assertEquals(scimFailure.getMessage(), scimFailureRepository.findById(scimFailure.getId()).get().getMessage());
     }
 
     @Test
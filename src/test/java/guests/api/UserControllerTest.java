@@ -6,9 +6,7 @@ import io.restassured.http.ContentType;
 import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 
 import static io.restassured.RestAssured.given;
 import static org.junit.jupiter.api.Assertions.*;
@@ -101,6 +99,88 @@ class UserControllerTest extends AbstractTest {
         assertEquals(2, userRepository.findById(guest.getId()).get().getInstitutionMemberships().size());
     }
 
+    @Test
+    @SuppressWarnings("unchecked")
+    void pageByInstitution() throws IOException {
+        Institution institution = institutionRepository.findByEntityIdIgnoreCase("https://utrecht").get();
+        Map<String, Object> page = pageByInstitution(institution, Map.of("size", 2));
+        List<Map<String, Object>> results = (List<Map<String, Object>>) page.get("results");
+        assertEquals(2, results.size());
+        assertEquals("Doe", results.get(0).get("familyName"));
+        assertEquals("iter", results.get(1).get("familyName"));
+        assertNotNull(page.get("next"));
+
+        page = pageByInstitution(institution, Map.of("size", 2, "after", page.get("next")));
+        results = (List<Map<String, Object>>) page.get("results");
+        assertEquals(1, results.size());
+        assertEquals("ln", results.get(0).get("familyName"));
+        assertNull(page.get("next"));
+    }
+
+    @Test
+    void pageByInstitutionWithoutFamilyName() throws IOException {
+        Institution institution = institutionRepository.findByEntityIdIgnoreCase("https://utrecht").get();
+        userRepository.save(user(institution, Authority.GUEST, "anonymous@utrecht.nl", "anonymous", null, "anonymous@utrecht.nl"));
+
+        assertEquals(Arrays.asList(null, "Doe", "iter", "ln"), familyNamesInPages(institution, "ASC"));
+        assertEquals(Arrays.asList("ln", "iter", "Doe", null), familyNamesInPages(institution, "DESC"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void pageByInstitutionFiltered() throws IOException {
+        Institution institution = institutionRepository.findByEntityIdIgnoreCase("https://utrecht").get();
+        Map<String, Object> page = pageByInstitution(institution, Map.of("name", "MARY"));
+        List<Map<String, Object>> results = (List<Map<String, Object>>) page.get("results");
+        assertEquals(1, results.size());
+        assertEquals("admin@utrecht.nl", results.get(0).get("email"));
+        assertEquals(Authority.INSTITUTION_ADMINISTRATOR.name(), results.get(0).get("authority"));
+
+        page = pageByInstitution(institution, Map.of("authority", Authority.GUEST.name(), "email", "utrecht"));
+        results = (List<Map<String, Object>>) page.get("results");
+        assertEquals(1, results.size());
+        assertEquals("guest@utrecht.nl", results.get(0).get("eduPersonPrincipalName"));
+
+        page = pageByInstitution(institution, Map.of("sort", UserSort.EMAIL.name(), "direction", "DESC"));
+        results = (List<Map<String, Object>>) page.get("results");
+        assertEquals("inviter@utrecht.nl", results.get(0).get("email"));
+    }
+
+    @Test
+    void pageByInstitutionInvalidCursor() throws IOException {
+        Institution institution = institutionRepository.findByEntityIdIgnoreCase("https://utrecht").get();
+        given()
+                .when()
+                .accept(ContentType.JSON)
+                .auth().oauth2(opaqueAccessToken("j.doe@example.com", "introspect.json"))
+                .pathParam("institutionId", institution.getId())
+                .queryParam("after", "nope")
+                .get("/api/v1/users/institution/{institutionId}/page")
+                .then()
+                .statusCode(400);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void pageByApplication() throws IOException {
+        Application application = applicationRepository.findByEntityIdIgnoreCase("CANVAS").get();
+        Map<String, Object> page = given()
+                .when()
+                .accept(ContentType.JSON)
+                .auth().oauth2(opaqueAccessToken("j.doe@example.com", "introspect.json"))
+                .pathParam("applicationId", application.getId())
+                .get("/api/v1/users/application/{applicationId}/page")
+                .then()
+                .statusCode(200)
+                .extract()
+                .body()
+                .jsonPath()
+                .getMap(".");
+        List<Map<String, Object>> results = (List<Map<String, Object>>) page.get("results");
+        assertEquals(2, results.size());
+        assertEquals(Authority.GUEST.name(), results.get(1).get("authority"));
+    }
+
     @Test
     @SuppressWarnings("unchecked")
     void emailsByInstitution() throws IOException {
@@ -363,4 +443,33 @@ class UserControllerTest extends AbstractTest {
                 .then()
                 .statusCode(403);
     }
-}
\ No newline at end of file
+
+    @SuppressWarnings("unchecked")
+    private List<String> familyNamesInPages(Institution institution, String direction) throws IOException {
+        List<String> familyNames = new ArrayList<>();
+        Map<String, Object> queryParams = new HashMap<>(Map.of("size", 1, "sort", UserSort.FAMILY_NAME.name(), "direction", direction));
+        Map<String, Object> page;
+        do {
+            page = pageByInstitution(institution, queryParams);
+            ((List<Map<String, Object>>) page.get("results")).forEach(result -> familyNames.add((String) result.get("familyName")));
+            queryParams.put("after", page.get("next"));
+        } while (page.get("next") != null);
+        return familyNames;
+    }
+
+    private Map<String, Object> pageByInstitution(Institution institution, Map<String, Object> queryParams) throws IOException {
+        return given()
+                .when()
+                .accept(ContentType.JSON)
+                .auth().oauth2(opaqueAccessToken("j.doe@example.com", "introspect.json"))
+                .pathParam("institutionId", institution.getId())
+                .queryParams(queryParams)
+                .get("/api/v1/users/institution/{institutionId}/page")
+                .then()
+                .statusCode(200)
+                .extract()
+                .body()
+                .jsonPath()
+                .getMap(".");
+    }
+}
@@ -0,0 +1,86 @@
+package guests.cache;
+
+import guests.AbstractTest;
+import guests.domain.Application;
+import guests.domain.Institution;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReferenceDataCacheTest extends AbstractTest {
+
+    @Autowired
+    private ReferenceDataCache referenceDataCache;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void changesAreRecorded() {
+        Institution institution = institutionRepository.findByEntityIdIgnoreCase("https://utrecht").get();
+        institution.setDisplayName("Changed");
+        institutionRepository.save(institution);
+
+        Long count = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM cache_invalidations WHERE entity_name = ? AND entity_id = ?",
+                Long.class, Institution.class.getName(), institution.getId());
+        assertTrue(count > 0);
+        assertTrue(entityManagerFactory.getCache().contains(Institution.class, institution.getId()));
+    }
+
+    @Test
+    void changesOfOtherNodesAreEvicted() {
+        Institution institution = institutionRepository.findByEntityIdIgnoreCase("https://utrecht").get();
+        institutionRepository.findById(institution.getId());
+        assertTrue(entityManagerFactory.getCache().contains(Institution.class, institution.getId()));
+
+        referenceDataCache.poll();
+        jdbcTemplate.update("INSERT INTO cache_invalidations (entity_name, entity_id, node) VALUES (?, ?, ?)",
+                Institution.class.getName(), institution.getId(), "other-node");
+        referenceDataCache.poll();
+
+        assertFalse(entityManagerFactory.getCache().contains(Institution.class, institution.getId()));
+    }
+
+    @Test
+    void deletedInstitutionEvictsItsApplications() {
+        Institution institution = institutionRepository.findByHomeInstitutionIgnoreCase("uva.nl").get();
+        Application application = applicationRepository.findByEntityIdIgnoreCase("blackboard").get();
+        assertTrue(applicationRepository.findById(application.getId()).isPresent());
+        assertTrue(entityManagerFactory.getCache().contains(Application.class, application.getId()));
+
+        institutionRepository.delete(institution);
+
+        assertFalse(entityManagerFactory.getCache().contains(Application.class, application.getId()));
+        assertTrue(applicationRepository.findById(application.getId()).isEmpty());
+        Long count = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM cache_invalidations WHERE entity_name = ? AND entity_id IS NULL",
+                Long.class, Application.class.getName());
+        assertTrue(count > 0);
+    }
+
+    @Test
+    void hitRatio() {
+        LocalStorageAccess region = new LocalStorageAccess("test", 10, Duration.ofMinutes(1));
+        assertEquals(0D, ReferenceDataCache.hitRatio(region));
+
+        region.putIntoCache("key", "value", null);
+        assertEquals("value", region.getFromCache("key", null));
+        assertNull(region.getFromCache("nope", null));
+
+        assertEquals(1L, region.getHits());
+        assertEquals(1L, region.getMisses());
+        assertEquals(0.5D, ReferenceDataCache.hitRatio(region));
+    }
+}
@@ -0,0 +1,30 @@
+package guests.config;
+
+import guests.AbstractTest;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.CoreMatchers.containsString;
+
+class PrometheusEndpointTest extends AbstractTest {
+
+    @Test
+    void prometheus() throws IOException {
+        given()
+                .when()
+                .auth().oauth2(opaqueAccessToken("admin@utrecht.nl", "introspect.json"))
+                .get("/api/v1/users/me")
+                .then()
+                .statusCode(200);
+        given()
+                .when()
+                .get("/actuator/prometheus")
+                .then()
+                .statusCode(200)
+                .body(containsString("user_authentication_total{application=\"invite-server\",outcome=\"known_user\",}"))
+                .body(containsString("http_server_requests_seconds_bucket{"))
+                .body(containsString("hikaricp_connections_active"));
+    }
+}
@@ -0,0 +1,97 @@
+package guests.cron;
+
+import guests.AbstractTest;
+import guests.domain.JobLock;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ScheduledJobRunnerTest extends AbstractTest {
+
+    @Autowired
+    private ScheduledJobRunner subject;
+
+    @Test
+    void run() {
+        String job = UUID.randomUUID().toString();
+        AtomicInteger runs = new AtomicInteger();
+        assertTrue(subject.run(job, Duration.ZERO, runs::incrementAndGet));
+        assertTrue(subject.run(job, Duration.ZERO, runs::incrementAndGet));
+        assertEquals(2, runs.get());
+    }
+
+    @Test
+    void runWhileLocked() {
+        String job = UUID.randomUUID().toString();
+        AtomicBoolean nested = new AtomicBoolean(true);
+        assertTrue(subject.run(job, Duration.ZERO, () -> nested.set(subject.run(job, Duration.ZERO, () -> fail()))));
+        assertFalse(nested.get());
+    }
+
+    @Test
+    void runLockAtLeastFor() {
+        String job = UUID.randomUUID().toString();
+        assertTrue(subject.run(job, Duration.ofHours(1), () -> {
+        }));
+        assertFalse(subject.run(job, Duration.ZERO, () -> fail()));
+    }
+
+    @Test
+    void runPerResource() {
+        String job = UUID.randomUUID().toString();
+        AtomicBoolean other = new AtomicBoolean();
+        assertTrue(subject.run(job, "1", Duration.ZERO, () -> other.set(subject.run(job, "2", Duration.ZERO, () -> {
+        }))));
+        assertTrue(other.get());
+    }
+
+    @Test
+    void renew() {
+        String job = UUID.randomUUID().toString();
+        AtomicBoolean renewed = new AtomicBoolean();
+        assertTrue(subject.run(job, Duration.ZERO, () -> {
+            JobLock jobLock = jobLockRepository.findById(job).get();
+            jobLock.setLockedUntil(Instant.now().plusSeconds(5));
+            jobLockRepository.save(jobLock);
+            renewed.set(subject.renew());
+            assertTrue(jobLockRepository.findById(job).get().getLockedUntil().isAfter(Instant.now().plusSeconds(60)));
+        }));
+        assertTrue(renewed.get());
+    }
+
+    @Test
+    void renewLostLease() {
+        String job = UUID.randomUUID().toString();
+        AtomicBoolean renewed = new AtomicBoolean(true);
+        assertTrue(subject.run(job, Duration.ZERO, () -> {
+            //Another node took over the expired lease
+            JobLock jobLock = jobLockRepository.findById(job).get();
+            jobLock.setOwner("other");
+            jobLockRepository.save(jobLock);
+            renewed.set(subject.renew());
+        }));
+        assertFalse(renewed.get());
+    }
+
+    @Test
+    void renewOutsideJob() {
+        assertTrue(subject.renew());
+    }
+
+    @Test
+    void runWithError() {
+        String job = UUID.randomUUID().toString();
+        assertTrue(subject.run(job, Duration.ZERO, () -> {
+            throw new IllegalArgumentException("test");
+        }));
+        assertTrue(subject.run(job, Duration.ZERO, () -> {
+        }));
+    }
+}
@@ -0,0 +1,43 @@
+package guests.domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AuthorityIndexTest {
+
+    @Test
+    void authority() {
+        AuthorityIndex authorityIndex = AuthorityIndex.of(Map.of(
+                9L, Authority.GUEST,
+                3L, Authority.INSTITUTION_ADMINISTRATOR,
+                5L, Authority.INVITER));
+
+        assertEquals(3, authorityIndex.size());
+        assertEquals(Authority.INSTITUTION_ADMINISTRATOR, authorityIndex.authority(3L));
+        assertEquals(Authority.INVITER, authorityIndex.authority(5L));
+        assertEquals(Authority.GUEST, authorityIndex.authority(9L));
+        assertNull(authorityIndex.authority(4L));
+        assertTrue(authorityIndex.authorityByInstitution(4L).isEmpty());
+        assertFalse(authorityIndex.isSuperAdmin());
+    }
+
+    @Test
+    void rights() {
+        AuthorityIndex authorityIndex = AuthorityIndex.of(Map.of(1L, Authority.INVITER));
+
+        assertTrue(authorityIndex.hasEqualOrHigherRights(1L, Authority.INVITER));
+        assertFalse(authorityIndex.hasEqualOrHigherRights(1L, Authority.INSTITUTION_ADMINISTRATOR));
+        assertTrue(authorityIndex.hasHigherRights(1L, Authority.GUEST));
+        assertFalse(authorityIndex.hasHigherRights(1L, Authority.INVITER));
+        assertFalse(authorityIndex.hasEqualOrHigherRights(2L, Authority.GUEST));
+    }
+
+    @Test
+    void superAdmin() {
+        assertTrue(AuthorityIndex.of(Map.of(1L, Authority.SUPER_ADMIN)).isSuperAdmin());
+        assertFalse(AuthorityIndex.of(Map.of()).isSuperAdmin());
+    }
+}
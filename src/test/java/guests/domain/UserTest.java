@@ -140,6 +140,23 @@ class UserTest {
         assertEquals(0, user.getInstitutionMemberships().size());
     }
 
+    @Test
+    void retainInstitutionData() {
+        User user = new User();
+        AtomicLong id = new AtomicLong();
+        List<Application> apps = Arrays.asList(
+                application("LMS", "provision@scim.org", id, "Guests", "Admins"),
+                application("Blackboard", "provision@scim.org", id, "Students")
+        );
+        apps.forEach(app -> app.getRoles().forEach(role -> user.addUserRole(new UserRole(role, null))));
+        apps.forEach(app -> user.addMembership(new InstitutionMembership(Authority.INVITER, app.getInstitution())));
+
+        long[] roleIdentifiers = apps.get(0).getRoles().stream().mapToLong(Role::getId).sorted().toArray();
+        user.retainInstitutionData(apps.get(0).getInstitution().getId(), roleIdentifiers);
+        assertEquals(2, user.getUserRoles().size());
+        assertEquals(1, user.getInstitutionMemberships().size());
+    }
+
     private Application application(String name, String provisioningHookEmail, AtomicLong id, String... roles) {
         Institution institution = new Institution();
         institution.setId(id.incrementAndGet());
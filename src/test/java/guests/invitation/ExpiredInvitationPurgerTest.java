@@ -0,0 +1,52 @@
+package guests.invitation;
+
+import guests.AbstractTest;
+import guests.domain.ExpiredInvitationCount;
+import guests.domain.Invitation;
+import guests.repository.ExpiredInvitationCountRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.time.Instant;
+import java.time.Period;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExpiredInvitationPurgerTest extends AbstractTest {
+
+    @Autowired
+    private ExpiredInvitationPurger subject;
+
+    @Autowired
+    private ExpiredInvitationCountRepository expiredInvitationCountRepository;
+
+    @Test
+    void purgeExpiredInvitations() {
+        long beforeInvitations = invitationRepository.count();
+        Invitation invitation = openInvitation(INVITATION_UTRECHT_HASH).get();
+        Long institutionId = invitation.getInstitution().getId();
+        long beforeCount = expiredInvitationCountRepository.findById(institutionId)
+                .map(ExpiredInvitationCount::getPurgedCount)
+                .orElse(0L);
+        invitation.setExpiryDate(Instant.now().minus(Period.ofDays(60)));
+        invitationRepository.save(invitation);
+
+        assertEquals(1, subject.purgeExpiredInvitations());
+
+        assertEquals(beforeInvitations, invitationRepository.count() + 1);
+        assertTrue(openInvitation(INVITATION_UTRECHT_HASH).isEmpty());
+        assertEquals(beforeCount + 1, expiredInvitationCountRepository.findById(institutionId).get().getPurgedCount());
+    }
+
+    @Test
+    void purgeWithinRetention() {
+        long beforeInvitations = invitationRepository.count();
+        Invitation invitation = openInvitation(INVITATION_UTRECHT_HASH).get();
+        invitation.setExpiryDate(Instant.now().minus(Period.ofDays(1)));
+        invitationRepository.save(invitation);
+
+        assertEquals(0, subject.purgeExpiredInvitations());
+        assertEquals(beforeInvitations, invitationRepository.count());
+    }
+}
@@ -0,0 +1,62 @@
+package guests.mail;
+
+import guests.AbstractMailTest;
+import guests.domain.QueuedMail;
+import guests.domain.SCIMFailure;
+import org.apache.commons.mail.util.MimeMessageParser;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.*;
+
+class MailQueueTest extends AbstractMailTest {
+
+    @Autowired
+    private MailBox mailBox;
+
+    @Autowired
+    private MailQueue mailQueue;
+
+    @Test
+    void sendQueuedMail() throws Exception {
+        mailBox.sendScimFailureMail(scimFailure());
+
+        MimeMessageParser parser = mailMessage();
+        assertTrue(parser.getHtmlContent().contains("SCIMFailure"));
+
+        await().until(() -> queuedMailRepository.count() == 0);
+    }
+
+    @Test
+    void retryFailedMail() {
+        greenMail.stop();
+
+        mailBox.sendScimFailureMail(scimFailure());
+
+        await().until(() -> queuedMailRepository.findAll().stream().anyMatch(mail -> mail.getAttempts() == 1));
+        List<QueuedMail> mails = queuedMailRepository.findAll();
+        assertEquals(1, mails.size());
+
+        QueuedMail mail = mails.get(0);
+        assertFalse(mail.isFailed());
+        assertNotNull(mail.getLastError());
+        assertTrue(mail.getNextAttemptAt().isAfter(Instant.now()));
+        assertEquals("j.doe@example.com", mail.getRecipients());
+    }
+
+    @Test
+    void backoff() {
+        assertEquals(Duration.ofSeconds(30), mailQueue.backoff(1));
+        assertEquals(Duration.ofSeconds(60), mailQueue.backoff(2));
+        assertEquals(Duration.ofHours(1), mailQueue.backoff(20));
+    }
+
+    private SCIMFailure scimFailure() {
+        return new SCIMFailure("message", "users", "POST", "http://localhost:8081/scim/v1/users", null, null);
+    }
+}
@@ -0,0 +1,66 @@
+package guests.mail;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MailTemplatesTest {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void render() {
+        MailTemplates mailTemplates = new MailTemplates("", meterRegistry);
+
+        String html = mailTemplates.render("scim_provisioning_en.html", Map.of("userRequest", "{\"id\":\"123\"}"));
+        String text = mailTemplates.render("scim_provisioning_en.txt", Map.of("userRequest", "{\"id\":\"123\"}"));
+
+        assertTrue(html.contains("123"));
+        assertTrue(text.contains("123"));
+        assertEquals(1L, meterRegistry.get("mail.template.render").tag("template", "scim_provisioning_en.html").timer().count());
+        assertEquals(text.length(), meterRegistry.get("mail.template.size").tag("template", "scim_provisioning_en.txt").summary().totalAmount());
+    }
+
+    @Test
+    void renderReusesBuffer() {
+        MailTemplates mailTemplates = new MailTemplates("", meterRegistry);
+
+        String first = mailTemplates.render("scim_provisioning_en.txt", Map.of("userRequest", "first"));
+        String second = mailTemplates.render("scim_provisioning_en.txt", Map.of("userRequest", "second"));
+
+        assertTrue(first.contains("first"));
+        assertFalse(second.contains("first"));
+    }
+
+    @Test
+    void unknownTemplate() {
+        MailTemplates mailTemplates = new MailTemplates("", meterRegistry);
+
+        assertThrows(IllegalArgumentException.class, () -> mailTemplates.render("nope.html", Map.of()));
+    }
+
+    @Test
+    void reloadFromDirectory(@TempDir Path directory) throws IOException {
+        File template = directory.resolve("hello.txt").toFile();
+        Files.writeString(template.toPath(), "Hello {{name}}", StandardCharsets.UTF_8);
+        MailTemplates mailTemplates = new MailTemplates(directory.toString(), meterRegistry, Duration.ZERO);
+
+        assertEquals("Hello John", mailTemplates.render("hello.txt", Map.of("name", "John")));
+
+        Files.writeString(template.toPath(), "Goodbye {{name}}", StandardCharsets.UTF_8);
+        assertTrue(template.setLastModified(template.lastModified() + 10_000));
+
+        assertEquals("Goodbye John", mailTemplates.render("hello.txt", Map.of("name", "John")));
+    }
+}
@@ -0,0 +1,57 @@
+package guests.repository;
+
+import guests.AbstractTest;
+import guests.config.HashGenerator;
+import guests.domain.*;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InvitationRepositoryTest extends AbstractTest {
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void saveAllInsertsInBatches() {
+        Role role = roleRepository.findAll().get(0);
+        User user = userRepository.findByEduPersonPrincipalNameIgnoreCase("admin@utrecht.nl").get();
+        Institution institution = getInstitution(user);
+        List<Invitation> invitations = IntStream.range(0, 20)
+                .mapToObj(i -> {
+                    Invitation invitation = new Invitation(Authority.GUEST, Status.OPEN, HashGenerator.generateHash(),
+                            user, institution, String.format("guest%s@example.com", i));
+                    invitation.addInvitationRole(new InvitationRole(role, null));
+                    return invitation;
+                })
+                .collect(Collectors.toList());
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+        try {
+            new TransactionTemplate(transactionManager).executeWithoutResult(status -> invitationRepository.saveAll(invitations));
+
+            assertEquals(40, statistics.getEntityInsertCount());
+            //Without batching every invitation and invitation_role would be a separate statement
+            assertTrue(statistics.getPrepareStatementCount() < 10);
+        } finally {
+            statistics.setStatisticsEnabled(false);
+        }
+    }
+
+}
@@ -0,0 +1,36 @@
+package guests.repository;
+
+import guests.AbstractTest;
+import guests.domain.Authority;
+import guests.domain.Institution;
+import guests.domain.UserPrincipal;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UserRepositoryTest extends AbstractTest {
+
+    @Test
+    void findPrincipalByEduPersonPrincipalName() {
+        Institution institution = institutionRepository.findByEntityIdIgnoreCase("https://utrecht").get();
+        UserPrincipal principal = userRepository.findPrincipalByEduPersonPrincipalName("ADMIN@utrecht.nl").get();
+
+        assertEquals("admin@utrecht.nl", principal.getEduPersonPrincipalName());
+        assertEquals("Mary Doe", principal.getName());
+        assertEquals(Authority.INSTITUTION_ADMINISTRATOR, principal.authorityByInstitution(institution.getId()).get());
+        assertEquals(1, principal.getAuthorityIndex().size());
+        assertFalse(principal.isSuperAdmin());
+        assertFalse(principal.hasChanged(Map.of("given_name", "Mary", "family_name", "Doe", "email", "admin@utrecht.nl")));
+        assertTrue(principal.hasChanged(Map.of("given_name", "Mary", "family_name", "Smith", "email", "admin@utrecht.nl")));
+    }
+
+    @Test
+    void findPrincipalByEduPersonPrincipalNameNotFound() {
+        assertTrue(userRepository.findPrincipalByEduPersonPrincipalName("nope@utrecht.nl").isEmpty());
+    }
+
+}
@@ -0,0 +1,61 @@
+package guests.scim;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CircuitBreakerTest {
+
+    private final AtomicLong nanos = new AtomicLong();
+    private final CircuitBreaker subject = new CircuitBreaker(2, Duration.ofSeconds(60), nanos::get);
+
+    @Test
+    void opensAfterConsecutiveFailures() {
+        assertTrue(subject.tryAcquirePermission());
+        subject.onFailure();
+        assertEquals(CircuitBreaker.State.CLOSED, subject.getState());
+
+        subject.onFailure();
+        assertEquals(CircuitBreaker.State.OPEN, subject.getState());
+        assertFalse(subject.tryAcquirePermission());
+    }
+
+    @Test
+    void successResetsFailures() {
+        subject.onFailure();
+        subject.onSuccess();
+        subject.onFailure();
+        assertEquals(CircuitBreaker.State.CLOSED, subject.getState());
+        assertEquals(1, subject.getConsecutiveFailures());
+    }
+
+    @Test
+    void halfOpenPermitsOneTrial() {
+        subject.onFailure();
+        subject.onFailure();
+        nanos.addAndGet(Duration.ofSeconds(61).toNanos());
+
+        assertTrue(subject.tryAcquirePermission());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, subject.getState());
+        assertFalse(subject.tryAcquirePermission());
+
+        subject.onSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, subject.getState());
+        assertTrue(subject.tryAcquirePermission());
+    }
+
+    @Test
+    void halfOpenFailureOpensAgain() {
+        subject.onFailure();
+        subject.onFailure();
+        nanos.addAndGet(Duration.ofSeconds(61).toNanos());
+
+        assertTrue(subject.tryAcquirePermission());
+        subject.onFailure();
+        assertEquals(CircuitBreaker.State.OPEN, subject.getState());
+        assertFalse(subject.tryAcquirePermission());
+    }
+}
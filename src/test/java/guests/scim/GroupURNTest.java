@@ -26,6 +26,12 @@ class GroupURNTest {
         assertEquals("urn:collab:group:test.eduid.nl:home.nl:app_name:role_name", urn);
     }
 
+    @Test
+    void urnFromRoleNames() {
+        String urn = GroupURN.urnFromRole("urn:collab:group:test.eduid.nl", "HOME.NL", "APP_NAME", "ROLE_NAME");
+        assertEquals("urn:collab:group:test.eduid.nl:home.nl:app_name:role_name", urn);
+    }
+
     @Test
     void parseUrnRole() {
         ExternalID externalID = GroupURN.parseUrnRole("urn:collab:group:test.eduid.nl:HOME.NL:APP_NAME:ROLE_NAME");
@@ -0,0 +1,90 @@
+package guests.scim;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import guests.AbstractTest;
+import guests.domain.SCIMFailure;
+import guests.domain.User;
+import guests.domain.UserRole;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpMethod;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static guests.scim.SCIMServiceDefault.USER_API;
+import static org.junit.jupiter.api.Assertions.*;
+
+class SCIMFailureRetrierTest extends AbstractTest {
+
+    @Autowired
+    private SCIMFailureRetrier subject;
+
+    @Test
+    void retrySucceeds() throws JsonProcessingException {
+        seedDeleteUserFailure();
+        stubForDeleteUser();
+
+        assertEquals(1, subject.retryFailures());
+        assertEquals(0, scimFailureRepository.count());
+    }
+
+    @Test
+    void retryFailsAndDefersApplication() throws JsonProcessingException {
+        SCIMFailure first = seedDeleteUserFailure();
+        SCIMFailure second = seedDeleteUserFailure();
+
+        assertEquals(0, subject.retryFailures());
+
+        SCIMFailure firstFromDB = scimFailureRepository.findById(first.getId()).get();
+        assertEquals(1, firstFromDB.getAttempts());
+        assertTrue(firstFromDB.getNextAttemptAt().isAfter(Instant.now()));
+        assertFalse(firstFromDB.isParked());
+
+        SCIMFailure secondFromDB = scimFailureRepository.findById(second.getId()).get();
+        assertEquals(0, secondFromDB.getAttempts());
+        assertEquals(firstFromDB.getNextAttemptAt(), secondFromDB.getNextAttemptAt());
+
+        //Nothing is retryable until the backoff has passed
+        assertEquals(0, subject.retryFailures());
+        assertEquals(1, scimFailureRepository.findById(first.getId()).get().getAttempts());
+    }
+
+    @Test
+    void retryParksAfterMaxAttempts() throws JsonProcessingException {
+        SCIMFailure scimFailure = seedDeleteUserFailure();
+        scimFailure.setAttempts(9);
+        scimFailureRepository.save(scimFailure);
+
+        subject.retryFailures();
+
+        SCIMFailure scimFailureFromDB = scimFailureRepository.findById(scimFailure.getId()).get();
+        assertEquals(10, scimFailureFromDB.getAttempts());
+        assertTrue(scimFailureFromDB.isParked());
+    }
+
+    @Test
+    void backoff() {
+        Duration first = subject.backoff(1);
+        assertTrue(first.compareTo(Duration.ofSeconds(30)) >= 0);
+        assertTrue(first.compareTo(Duration.ofSeconds(60)) <= 0);
+
+        Duration last = subject.backoff(100);
+        assertTrue(last.compareTo(Duration.ofHours(3)) >= 0);
+        assertTrue(last.compareTo(Duration.ofHours(6)) <= 0);
+    }
+
+    private SCIMFailure seedDeleteUserFailure() throws JsonProcessingException {
+        User user = userRepository.findByEduPersonPrincipalNameIgnoreCase("admin@utrecht.nl").get();
+        UserRole userRole = user.getUserRoles().iterator().next();
+        SCIMFailure scimFailure = new SCIMFailure(
+                objectMapper.writeValueAsString(new UserRequest(user)),
+                USER_API,
+                HttpMethod.DELETE.name(),
+                "http://localhost:8081/scim/v1/users",
+                userRole.getServiceProviderId(),
+                userRole.getRole().getApplication()
+        );
+        return scimFailureRepository.save(scimFailure);
+    }
+}
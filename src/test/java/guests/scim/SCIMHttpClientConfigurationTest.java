@@ -0,0 +1,45 @@
+package guests.scim;
+
+import guests.AbstractTest;
+import io.micrometer.core.instrument.MeterRegistry;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.io.IOException;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SCIMHttpClientConfigurationTest extends AbstractTest {
+
+    @Autowired
+    private OkHttpClient scimOkHttpClient;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void connectionReuse() throws IOException {
+        stubFor(get(urlPathMatching("/scim/v1/ping")).willReturn(aResponse().withStatus(200).withBody("pong")));
+        scimOkHttpClient.connectionPool().evictAll();
+        long hitsBefore = meterRegistry.get("scim.http.connection.acquire").tag("pool", "hit").timer().count();
+        long missesBefore = meterRegistry.get("scim.http.connection.acquire").tag("pool", "miss").timer().count();
+
+        for (int i = 0; i < 3; i++) {
+            Request request = new Request.Builder().url("http://localhost:8081/scim/v1/ping").build();
+            try (Response response = scimOkHttpClient.newCall(request).execute()) {
+                assertEquals("pong", response.body().string());
+            }
+        }
+
+        long hits = meterRegistry.get("scim.http.connection.acquire").tag("pool", "hit").timer().count() - hitsBefore;
+        long misses = meterRegistry.get("scim.http.connection.acquire").tag("pool", "miss").timer().count() - missesBefore;
+        assertEquals(1, misses);
+        assertEquals(2, hits);
+        assertTrue(meterRegistry.find("scim.http.connection.pool.connection.count").gauges().size() > 0);
+    }
+}
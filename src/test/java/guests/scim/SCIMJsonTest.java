@@ -0,0 +1,39 @@
+package guests.scim;
+
+import guests.config.JacksonConfiguration;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SCIMJsonTest {
+
+    private final SCIMJson scimJson = new SCIMJson(new JacksonConfiguration().objectMapper());
+
+    @Test
+    void compact() {
+        String json = scimJson.compact(new GroupRequest("urn", "displayName", List.of(new Member("value"))));
+
+        assertFalse(json.contains("\n"));
+        assertFalse(json.contains(" : "));
+        assertTrue(json.contains("\"members\":[{\"value\":\"value\"}]"));
+        //Null values are not included
+        assertFalse(json.contains("\"id\""));
+    }
+
+    @Test
+    void pretty() {
+        String json = scimJson.compact(new GroupRequest("urn", "displayName", List.of()));
+        String pretty = scimJson.pretty(json);
+
+        assertTrue(pretty.contains("\n"));
+        assertTrue(pretty.contains("\"members\" : [ ]"));
+    }
+
+    @Test
+    void prettyNoJson() {
+        assertEquals("message", scimJson.pretty("message"));
+        assertNull(scimJson.pretty(null));
+    }
+}
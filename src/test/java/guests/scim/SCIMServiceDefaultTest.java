@@ -8,9 +8,13 @@ import org.apache.commons.mail.util.MimeMessageParser;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import java.time.Instant;
+import java.time.Period;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
 import static org.junit.jupiter.api.Assertions.*;
 
 class SCIMServiceDefaultTest extends AbstractMailTest {
@@ -40,6 +44,58 @@ class SCIMServiceDefaultTest extends AbstractMailTest {
         assertNoSCIMFailures();
     }
 
+    @Test
+    void newUserRolesRequestBulk() throws JsonProcessingException {
+        User user = seedUserWithBulkProvisioning();
+        Role role = user.getUserRoles().iterator().next().getRole();
+        String userServiceProviderId = UUID.randomUUID().toString();
+        String roleServiceProviderId = UUID.randomUUID().toString();
+        stubForBulk(List.of(
+                bulkOperationResponse("user-" + user.getId(), "201", "http://localhost:8081/scim/v1/users/" + userServiceProviderId),
+                bulkOperationResponse("role-" + role.getId(), "201", "http://localhost:8081/scim/v1/groups/" + roleServiceProviderId)));
+
+        scimService.newUserRolesRequest(user, user.getUserRoles());
+
+        assertEquals(userServiceProviderId, user.getUserRoles().iterator().next().getServiceProviderId());
+        assertEquals(roleServiceProviderId, role.getServiceProviderId());
+        verify(1, postRequestedFor(urlPathEqualTo("/scim/v1/bulk"))
+                .withRequestBody(containing("bulkId:user-" + user.getId())));
+        verify(0, postRequestedFor(urlPathEqualTo("/scim/v1/users")));
+        verify(0, anyRequestedFor(urlPathMatching("/scim/v1/groups(.*)")));
+        assertNoSCIMFailures();
+    }
+
+    @Test
+    void newUserRequestBulkOperationFailure() throws JsonProcessingException {
+        User user = seedUserWithBulkProvisioning();
+        Role role = user.getUserRoles().iterator().next().getRole();
+        String userServiceProviderId = UUID.randomUUID().toString();
+        stubForBulk(List.of(
+                bulkOperationResponse("user-" + user.getId(), "201", "http://localhost:8081/scim/v1/users/" + userServiceProviderId),
+                bulkOperationResponse("role-" + role.getId(), "409", null)));
+
+        scimService.newUserRequest(user);
+
+        assertEquals(userServiceProviderId, user.getUserRoles().iterator().next().getServiceProviderId());
+        assertNull(role.getServiceProviderId());
+        assertSCIMFailure("http://localhost:8081/scim/v1/groups");
+
+        String message = scimFailureRepository.findAll().get(0).getMessage();
+        assertTrue(message.contains(userServiceProviderId));
+        assertFalse(message.contains("bulkId:"));
+    }
+
+    @Test
+    void newUserRequestBulkUserFailure() throws JsonProcessingException {
+        User user = seedUserWithBulkProvisioning();
+        stubForBulk(List.of(bulkOperationResponse("user-" + user.getId(), "400", null)));
+
+        scimService.newUserRequest(user);
+
+        assertNull(user.getUserRoles().iterator().next().getServiceProviderId());
+        assertSCIMFailure("http://localhost:8081/scim/v1/users");
+    }
+
     @Test
     void updateUserRequest() {
         User user = seedUser();
@@ -172,6 +228,31 @@ class SCIMServiceDefaultTest extends AbstractMailTest {
         assertNoSCIMFailures();
     }
 
+    @Test
+    void updateRoleRequestsPatch() {
+        List<UserRole> userRoles = seedUserRolesForSameRole(false);
+        stubFor(patch(urlPathMatching("/scim/v1/groups/(.*)"))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("{}")));
+
+        scimService.updateRoleRequests(userRoles, OperationType.Remove);
+
+        verify(1, patchRequestedFor(urlPathMatching("/scim/v1/groups/(.*)")));
+        assertNoSCIMFailures();
+    }
+
+    @Test
+    void updateRoleRequestsPut() throws JsonProcessingException {
+        List<UserRole> userRoles = seedUserRolesForSameRole(true);
+        stubForUpdateRole();
+
+        scimService.updateRoleRequests(userRoles, OperationType.Remove);
+
+        verify(1, putRequestedFor(urlPathMatching("/scim/v1/groups/(.*)")));
+        assertNoSCIMFailures();
+    }
+
     @Test
     void updateRoleRequestNoProvisioning() {
         User user = seedUser();
@@ -293,6 +374,50 @@ class SCIMServiceDefaultTest extends AbstractMailTest {
         return user;
     }
 
+    private User seedUserWithBulkProvisioning() {
+        User user = seedUser();
+        Application application = user.getUserRoles().iterator().next().getRole().getApplication();
+        application.setProvisioningBulk(true);
+
+        applicationRepository.save(application);
+
+        return user;
+    }
+
+    private Map<String, Object> bulkOperationResponse(String bulkId, String status, String location) {
+        return location == null ?
+                Map.of("method", "POST", "bulkId", bulkId, "status", status) :
+                Map.of("method", "POST", "bulkId", bulkId, "status", status, "location", location);
+    }
+
+    private void stubForBulk(List<Map<String, Object>> operations) throws JsonProcessingException {
+        Map<String, Object> body = Map.of(
+                "schemas", List.of("urn:ietf:params:scim:api:messages:2.0:BulkResponse"),
+                "Operations", operations);
+        stubFor(post(urlPathEqualTo("/scim/v1/bulk"))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBody(objectMapper.writeValueAsString(body))));
+    }
+
+    private List<UserRole> seedUserRolesForSameRole(boolean updateRolePutMethod) {
+        User admin = userRepository.findByEduPersonPrincipalNameIgnoreCase("admin@utrecht.nl").get();
+        Role role = admin.getUserRoles().iterator().next().getRole();
+        Application application = applicationRepository.findById(role.getApplication().getId()).get();
+        application.setUpdateRolePutMethod(updateRolePutMethod);
+        applicationRepository.save(application);
+
+        User guest = userRepository.findByEduPersonPrincipalNameIgnoreCase("guest@utrecht.nl").get();
+        UserRole userRole = new UserRole(role, Instant.now().plus(Period.ofDays(90)));
+        userRole.setServiceProviderId(UUID.randomUUID().toString());
+        guest.addUserRole(userRole);
+        userRepository.save(guest);
+
+        List<UserRole> userRoles = userRoleRepository.findByRoleId(role.getId());
+        assertEquals(2, userRoles.size());
+        return userRoles;
+    }
+
     private String seedSCIMUserRole(User user) {
         UserRole userRole = user.getUserRoles().iterator().next();
         String serviceProviderId = stubForUpdateUser();
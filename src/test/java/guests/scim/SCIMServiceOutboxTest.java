@@ -0,0 +1,217 @@
+package guests.scim;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import guests.AbstractTest;
+import guests.domain.Application;
+import guests.domain.Role;
+import guests.domain.SCIMOutboxEvent;
+import guests.domain.SCIMOutboxEventType;
+import guests.domain.Status;
+import guests.domain.User;
+import guests.repository.SCIMOutboxEventRepository;
+import io.restassured.http.ContentType;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static io.restassured.RestAssured.given;
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@TestPropertySource(properties = {"scim.outbox.enabled=true", "scim.outbox.max-attempts=1"})
+class SCIMServiceOutboxTest extends AbstractTest {
+
+    @Autowired
+    private SCIMService scimService;
+
+    @Autowired
+    private SCIMOutboxEventRepository scimOutboxEventRepository;
+
+    @Autowired
+    private SCIMOutboxDispatcher scimOutboxDispatcher;
+
+    @Test
+    void outboxIsPrimary() {
+        assertTrue(scimService instanceof SCIMServiceOutbox);
+    }
+
+    @Test
+    void newRoleRequest() throws JsonProcessingException {
+        String serviceProviderId = stubForCreateRole();
+        Application application = applicationRepository.findByEntityIdIgnoreCase("CANVAS").get();
+        Role role = roleRepository.save(new Role("outbox", application));
+
+        scimService.newRoleRequest(role);
+
+        await().until(() -> scimOutboxEventRepository.count() == 0L);
+        assertEquals(serviceProviderId, roleRepository.findById(role.getId()).get().getServiceProviderId());
+        assertEquals(0L, scimFailureRepository.count());
+    }
+
+    @Test
+    void deleteUserRequest() throws JsonProcessingException {
+        stubForUpdateRole();
+        stubForDeleteUser();
+        User user = userRepository.findByEduPersonPrincipalNameIgnoreCase("guest@utrecht.nl").get();
+
+        scimService.deleteUserRequest(user);
+        userRepository.delete(user);
+
+        await().until(() -> scimOutboxEventRepository.count() == 0L);
+        verify(putRequestedFor(urlPathMatching("/scim/v1/groups/(.*)")));
+        verify(deleteRequestedFor(urlPathMatching("/scim/v1/users/(.*)")));
+        assertEquals(0L, scimFailureRepository.count());
+    }
+
+    @Test
+    void failedEventIsParked() {
+        Application application = applicationRepository.findByEntityIdIgnoreCase("CANVAS").get();
+        Role role = roleRepository.save(new Role("parked", application));
+        SCIMOutboxEvent event = new SCIMOutboxEvent(SCIMOutboxEventType.ROLE_MEMBERSHIP, application.getId());
+        event.setRoleId(role.getId());
+        event.setOperationType("Unknown");
+        Long eventId = scimOutboxEventRepository.save(event).getId();
+
+        scimOutboxDispatcher.dispatch();
+
+        await().until(() -> scimOutboxEventRepository.findById(eventId).get().isParked());
+        assertEquals(1, scimOutboxEventRepository.findById(eventId).get().getAttempts());
+        assertEquals(0L, scimOutboxEventRepository.countByParked(false));
+    }
+
+    @Test
+    void parkedEventBlocksLaterEvents() throws IOException {
+        String serviceProviderId = stubForCreateRole();
+        Application application = applicationRepository.findByEntityIdIgnoreCase("CANVAS").get();
+        Role role = roleRepository.save(new Role("blocked", application));
+        SCIMOutboxEvent event = new SCIMOutboxEvent(SCIMOutboxEventType.ROLE_MEMBERSHIP, application.getId());
+        event.setRoleId(role.getId());
+        event.setOperationType("Unknown");
+        Long eventId = scimOutboxEventRepository.save(event).getId();
+        SCIMOutboxEvent later = new SCIMOutboxEvent(SCIMOutboxEventType.ROLE_CREATE, application.getId());
+        later.setRoleId(role.getId());
+        Long laterId = scimOutboxEventRepository.save(later).getId();
+
+        scimOutboxDispatcher.dispatch();
+
+        await().until(() -> scimOutboxEventRepository.findById(eventId).get().isParked());
+        assertTrue(scimOutboxEventRepository.findById(laterId).isPresent());
+        List<Map> parked = given()
+                .when()
+                .accept(ContentType.JSON)
+                .auth().oauth2(opaqueAccessToken("j.doe@example.com", "introspect.json"))
+                .get("/api/v1/scim/outbox/parked")
+                .then()
+                .extract()
+                .body()
+                .jsonPath()
+                .getList(".", Map.class);
+        assertEquals(1, parked.size());
+
+        given()
+                .when()
+                .accept(ContentType.JSON)
+                .auth().oauth2(opaqueAccessToken("j.doe@example.com", "introspect.json"))
+                .pathParam("id", eventId)
+                .delete("/api/v1/scim/outbox/{id}")
+                .then()
+                .statusCode(201);
+
+        await().until(() -> scimOutboxEventRepository.count() == 0L);
+        assertEquals(serviceProviderId, roleRepository.findById(role.getId()).get().getServiceProviderId());
+    }
+
+    @Test
+    void resendParkedEventNotAllowed() throws IOException {
+        given()
+                .when()
+                .accept(ContentType.JSON)
+                .auth().oauth2(opaqueAccessToken("admin@utrecht.nl", "introspect.json"))
+                .pathParam("id", 1L)
+                .put("/api/v1/scim/outbox/{id}")
+                .then()
+                .statusCode(403);
+    }
+
+    @Test
+    void backoff() {
+        Duration first = scimOutboxDispatcher.backoff(1);
+        assertTrue(first.compareTo(Duration.ofMillis(2500)) >= 0);
+        assertTrue(first.compareTo(Duration.ofSeconds(5)) <= 0);
+
+        Duration last = scimOutboxDispatcher.backoff(100);
+        assertTrue(last.compareTo(Duration.ofMinutes(30)) >= 0);
+        assertTrue(last.compareTo(Duration.ofHours(1)) <= 0);
+    }
+
+    @Test
+    void acceptInvitation() throws IOException {
+        String serviceProviderId = stubForCreateUser();
+        stubForUpdateRole();
+        Map<String, Object> invitation = new HashMap<>();
+        invitation.put("hash", INVITATION_UTRECHT_HASH);
+        invitation.put("status", Status.ACCEPTED);
+
+        given()
+                .when()
+                .accept(ContentType.JSON)
+                .contentType(ContentType.JSON)
+                .auth().oauth2(opaqueAccessToken("new@user.nl", "introspect.json"))
+                .body(invitation)
+                .post("/api/v1/invitations")
+                .then()
+                .statusCode(201);
+
+        await().until(() -> scimOutboxEventRepository.count() == 0L);
+        verify(postRequestedFor(urlPathEqualTo("/scim/v1/users")));
+        User user = userRepository.findByEduPersonPrincipalNameIgnoreCase("new@user.nl").get();
+        assertEquals(serviceProviderId, user.getUserRoles().iterator().next().getServiceProviderId());
+        assertEquals(0L, scimFailureRepository.count());
+    }
+
+    @Test
+    void deleteOther() throws IOException {
+        stubForDeleteUser();
+        stubForUpdateRole();
+        User guest = userRepository.findByEduPersonPrincipalNameIgnoreCase("guest@utrecht.nl").get();
+
+        given()
+                .when()
+                .accept(ContentType.JSON)
+                .auth().oauth2(opaqueAccessToken("admin@utrecht.nl", "introspect.json"))
+                .pathParam("userId", guest.getId())
+                .delete("/api/v1/users/{userId}")
+                .then()
+                .statusCode(201);
+
+        await().until(() -> scimOutboxEventRepository.count() == 0L);
+        verify(deleteRequestedFor(urlPathMatching("/scim/v1/users/(.*)")));
+        assertEquals(0L, scimFailureRepository.count());
+    }
+
+    @Test
+    void changedUserIsUpdatedByAuthenticationFilter() throws IOException {
+        stubForUpdateUser();
+
+        //The attributes in introspect.json differ from the seeded guest
+        given()
+                .when()
+                .accept(ContentType.JSON)
+                .auth().oauth2(opaqueAccessToken("guest@utrecht.nl", "introspect.json"))
+                .get("/api/v1/users/me")
+                .then()
+                .statusCode(200);
+
+        await().until(() -> scimOutboxEventRepository.count() == 0L);
+        verify(putRequestedFor(urlPathMatching("/scim/v1/users/(.*)")));
+        assertEquals(0L, scimFailureRepository.count());
+    }
+}
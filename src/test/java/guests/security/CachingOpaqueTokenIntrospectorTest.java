@@ -0,0 +1,89 @@
+package guests.security;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.core.DefaultOAuth2AuthenticatedPrincipal;
+import org.springframework.security.oauth2.core.OAuth2AuthenticatedPrincipal;
+import org.springframework.security.oauth2.server.resource.introspection.BadOpaqueTokenException;
+import org.springframework.security.oauth2.server.resource.introspection.OAuth2IntrospectionException;
+import org.springframework.security.oauth2.server.resource.introspection.OpaqueTokenIntrospector;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.*;
+
+class CachingOpaqueTokenIntrospectorTest {
+
+    private final Instant now = Instant.parse("2022-02-01T10:00:00Z");
+    private final AtomicLong nanos = new AtomicLong();
+    private final OpaqueTokenIntrospector delegate = mock(OpaqueTokenIntrospector.class);
+    private final CachingOpaqueTokenIntrospector subject = new CachingOpaqueTokenIntrospector(
+            delegate, 100, Duration.ofMinutes(5), Duration.ofSeconds(10), Clock.fixed(now, ZoneOffset.UTC), nanos::get);
+
+    @Test
+    void introspectCachesActiveToken() {
+        OAuth2AuthenticatedPrincipal principal = principal(now.plus(Duration.ofHours(1)));
+        when(delegate.introspect("token")).thenReturn(principal);
+
+        assertSame(principal, subject.introspect("token"));
+        assertSame(principal, subject.introspect("token"));
+
+        verify(delegate, times(1)).introspect("token");
+    }
+
+    @Test
+    void introspectExpiresAfterMaxTimeToLive() {
+        when(delegate.introspect("token")).thenReturn(principal(now.plus(Duration.ofHours(1))));
+
+        subject.introspect("token");
+        nanos.addAndGet(Duration.ofMinutes(6).toNanos());
+        subject.introspect("token");
+
+        verify(delegate, times(2)).introspect("token");
+    }
+
+    @Test
+    void introspectExpiredTokenIsNotCached() {
+        when(delegate.introspect("token")).thenReturn(principal(now.minus(Duration.ofHours(1))));
+
+        subject.introspect("token");
+        subject.introspect("token");
+
+        verify(delegate, times(2)).introspect("token");
+    }
+
+    @Test
+    void introspectCachesInactiveTokenBriefly() {
+        when(delegate.introspect("token")).thenThrow(new BadOpaqueTokenException("inactive"));
+
+        assertThrows(BadOpaqueTokenException.class, () -> subject.introspect("token"));
+        assertThrows(BadOpaqueTokenException.class, () -> subject.introspect("token"));
+        verify(delegate, times(1)).introspect("token");
+
+        nanos.addAndGet(Duration.ofSeconds(11).toNanos());
+        assertThrows(BadOpaqueTokenException.class, () -> subject.introspect("token"));
+        verify(delegate, times(2)).introspect("token");
+    }
+
+    @Test
+    void introspectDoesNotCacheFailures() {
+        when(delegate.introspect("token")).thenThrow(new OAuth2IntrospectionException("unavailable"));
+
+        assertThrows(OAuth2IntrospectionException.class, () -> subject.introspect("token"));
+        assertThrows(OAuth2IntrospectionException.class, () -> subject.introspect("token"));
+
+        verify(delegate, times(2)).introspect("token");
+    }
+
+    private OAuth2AuthenticatedPrincipal principal(Instant expiresAt) {
+        Map<String, Object> attributes = Map.of("sub", "sub", "exp", expiresAt);
+        return new DefaultOAuth2AuthenticatedPrincipal(attributes, Collections.emptyList());
+    }
+}
@@ -2,9 +2,15 @@ package guests.security;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import guests.AbstractTest;
+import guests.cron.ScheduledJobRunner;
 import guests.domain.User;
+import guests.scim.SCIMService;
+import guests.usercount.UserCounts;
+import guests.voot.VootMembershipsCache;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import java.time.Instant;
 import java.time.Period;
@@ -16,14 +22,35 @@ class ResourceCleanerTest extends AbstractTest {
     @Autowired
     private ResourceCleaner subject;
 
+    @Autowired
+    private SCIMService scimService;
+
+    @Autowired
+    private VootMembershipsCache vootMembershipsCache;
+
+    @Autowired
+    private UserCounts userCounts;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ScheduledJobRunner scheduledJobRunner;
+
     @Test
     void cleanUsers() throws JsonProcessingException {
         long beforeUsers = userRepository.count();
+        Long applicationId = applicationRepository.findByEntityIdIgnoreCase("canvas").get().getId();
+        long beforeApplicationUsers = userCounts.applicationUserCount(applicationId);
         markUser();
         stubForDeleteUser();
         stubForUpdateRole();
         subject.clean();
         assertEquals(beforeUsers, userRepository.count() + 1);
+        assertEquals(beforeApplicationUsers, userCounts.applicationUserCount(applicationId) + 1);
     }
 
     @Test
@@ -35,14 +62,31 @@ class ResourceCleanerTest extends AbstractTest {
         assertEquals(beforeUserRoles, userRoleRepository.count() + 1);
     }
 
+    @Test
+    void cleanInChunks() throws JsonProcessingException {
+        long beforeUsers = userRepository.count();
+        markUser("guest@utrecht.nl");
+        markUser("inviter@utrecht.nl");
+        stubForDeleteUser();
+        stubForUpdateRole();
+        ResourceCleaner resourceCleaner = new ResourceCleaner(userRepository, userRoleRepository, scimService,
+                vootMembershipsCache, userCounts, meterRegistry, transactionManager, scheduledJobRunner, 1000, 1, 0, true);
+        resourceCleaner.clean();
+        assertEquals(beforeUsers, userRepository.count() + 2);
+    }
+
     @Test
     void notCronJobResponsible() {
-        ResourceCleaner resourceCleaner = new ResourceCleaner(null, null, null, 1, false);
+        ResourceCleaner resourceCleaner = new ResourceCleaner(null, null, null, null, null, null, null, null, 1, 100, 0, false);
         resourceCleaner.clean();
     }
 
     private void markUser() {
-        User user = userRepository.findByEduPersonPrincipalNameIgnoreCase("guest@utrecht.nl").get();
+        markUser("guest@utrecht.nl");
+    }
+
+    private void markUser(String eppn) {
+        User user = userRepository.findByEduPersonPrincipalNameIgnoreCase(eppn).get();
         Instant past = Instant.now().minus(Period.ofDays(1050));
         user.setLastActivity(past);
         user.getUserRoles().forEach(userRole -> userRole.setEndDate(past));
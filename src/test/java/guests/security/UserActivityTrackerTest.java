@@ -0,0 +1,37 @@
+package guests.security;
+
+import guests.AbstractTest;
+import guests.domain.User;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.time.Instant;
+import java.time.Period;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UserActivityTrackerTest extends AbstractTest {
+
+    @Autowired
+    private UserActivityTracker subject;
+
+    @Test
+    void flush() {
+        User user = userRepository.findByEduPersonPrincipalNameIgnoreCase("guest@utrecht.nl").get();
+        Instant past = Instant.now().minus(Period.ofDays(50));
+        user.setLastActivity(past);
+        userRepository.save(user);
+
+        subject.touch(user);
+        subject.touch(user);
+        subject.flush();
+
+        User updatedUser = userRepository.findByEduPersonPrincipalNameIgnoreCase("guest@utrecht.nl").get();
+        assertTrue(updatedUser.getLastActivity().isAfter(past));
+    }
+
+    @Test
+    void flushWithoutActivity() {
+        subject.flush();
+    }
+}
@@ -0,0 +1,79 @@
+package guests.usercount;
+
+import guests.AbstractTest;
+import guests.domain.Role;
+import guests.domain.User;
+import guests.domain.UserRole;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.Period;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UserCountsTest extends AbstractTest {
+
+    @Autowired
+    private UserCounts userCounts;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void seededCounts() {
+        assertEquals(2L, userCounts.applicationUserCount(applicationId("canvas")));
+        assertEquals(0L, userCounts.applicationUserCount(applicationId("blackboard")));
+        assertEquals(3L, userCounts.institutionUserCount(institutionId("utrecht.nl")));
+        assertEquals(0L, userCounts.institutionUserCount(institutionId("uva.nl")));
+    }
+
+    @Test
+    void distinctUsersPerApplication() {
+        Long canvasId = applicationId("canvas");
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.executeWithoutResult(status -> {
+            User guest = userRepository.findByEduPersonPrincipalNameIgnoreCase("guest@utrecht.nl").get();
+            Role administratorCanvas = roleRepository.findByName("administratorCanvas").get();
+            guest.addUserRole(new UserRole(administratorCanvas, Instant.now().plus(Period.ofDays(30))));
+        });
+        assertEquals(2L, userCounts.applicationUserCount(canvasId));
+
+        transactionTemplate.executeWithoutResult(status -> {
+            User guest = userRepository.findByEduPersonPrincipalNameIgnoreCase("guest@utrecht.nl").get();
+            List.copyOf(guest.getUserRoles()).forEach(guest::removeUserRole);
+        });
+        assertEquals(1L, userCounts.applicationUserCount(canvasId));
+
+        transactionTemplate.executeWithoutResult(status ->
+                userRepository.delete(userRepository.findByEduPersonPrincipalNameIgnoreCase("admin@utrecht.nl").get()));
+        assertEquals(0L, userCounts.applicationUserCount(canvasId));
+        assertEquals(2L, userCounts.institutionUserCount(institutionId("utrecht.nl")));
+    }
+
+    @Test
+    void reconcile() {
+        Long canvasId = applicationId("canvas");
+        jdbcTemplate.update("UPDATE user_counts SET user_count = 42 WHERE scope = 'APPLICATION' AND scope_id = ?", canvasId);
+
+        assertTrue(userCounts.reconcileAll() > 0);
+        assertEquals(2L, userCounts.applicationUserCount(canvasId));
+        assertEquals(0, userCounts.reconcileAll());
+    }
+
+    private Long applicationId(String entityId) {
+        return applicationRepository.findByEntityIdIgnoreCase(entityId).get().getId();
+    }
+
+    private Long institutionId(String homeInstitution) {
+        return institutionRepository.findByHomeInstitutionIgnoreCase(homeInstitution).get().getId();
+    }
+}
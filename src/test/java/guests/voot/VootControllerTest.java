@@ -1,9 +1,14 @@
 package guests.voot;
 
 import guests.AbstractTest;
+import guests.domain.Role;
+import guests.domain.User;
+import guests.domain.UserRole;
 import io.restassured.http.ContentType;
 import org.junit.jupiter.api.Test;
 
+import java.time.Instant;
+import java.time.Period;
 import java.util.List;
 import java.util.Map;
 
@@ -29,6 +34,23 @@ class VootControllerTest extends AbstractTest {
         assertEquals("urn:collab:group:test.eduid.nl:utrecht.nl:canvas:administratorcanvas", results.get(0).get("urn"));
     }
 
+    @Test
+    void getGroupMembershipsAfterUserRoleChange() {
+        assertEquals(1, groupMemberships("admin@utrecht.nl").size());
+
+        User user = userRepository.findBySubIgnoreCase("admin@utrecht.nl").get();
+        Role role = roleRepository.findByApplication_id(user.getUserRoles().iterator().next().getRole().getApplication().getId())
+                .stream()
+                .filter(r -> r.getName().equals("guestCanvas"))
+                .findFirst()
+                .get();
+        user.addUserRole(new UserRole(role, Instant.now().plus(Period.ofDays(90))));
+        userRepository.save(user);
+
+        List<Map> results = groupMemberships("admin@utrecht.nl");
+        assertEquals(2, results.size());
+    }
+
     @Test
     void getEmptyGroupMemberships() {
         List<Map> results = given()
@@ -57,4 +79,18 @@ class VootControllerTest extends AbstractTest {
                 .statusCode(401);
     }
 
+    private List<Map> groupMemberships(String unspecifiedId) {
+        return given()
+                .when()
+                .accept(ContentType.JSON)
+                .auth().basic("voot", "secret")
+                .pathParam("unspecifiedId", unspecifiedId)
+                .get("/api/voot/{unspecifiedId}")
+                .then()
+                .extract()
+                .body()
+                .jsonPath()
+                .getList(".", Map.class);
+    }
+
 }